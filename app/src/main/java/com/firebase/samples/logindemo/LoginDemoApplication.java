@@ -1,21 +1,38 @@
 package com.firebase.samples.logindemo;
 
 import android.app.Application;
+import android.util.Log;
 
-import com.facebook.FacebookSdk;
 import com.firebase.client.Firebase;
 
 /**
  * Initialize Firebase with the application context. This must happen before the client is used.
+ * <p/>
+ * The provider SDKs are not initialized here, {@link ProviderInitializer} sets them up the first time they are needed.
+ * The {@link MainThreadWatchdog} is started here if <code>res/values/config.xml</code> turns it on.
  *
  * @author mimming
  * @since 12/17/14
  */
 public class LoginDemoApplication extends Application {
+
+    private static final String TAG = LoginDemoApplication.class.getSimpleName();
+
     @Override
     public void onCreate() {
         super.onCreate();
+        ProviderInitializer.start();
         Firebase.setAndroidContext(this);
-        FacebookSdk.sdkInitialize(this);
+        if (getResources().getBoolean(R.bool.main_thread_watchdog)) {
+            MainThreadWatchdog.enable(getResources().getInteger(R.integer.main_thread_budget_ms),
+                    new MainThreadWatchdog.Listener() {
+                        @Override
+                        public void onOverBudget(MainThreadWatchdog.Callback callback, MainThreadWatchdog.Step step,
+                                                 String report) {
+                            Log.w(TAG, report);
+                        }
+                    });
+        }
+        ProviderInitializer.recordSinceStart("application_created");
     }
 }
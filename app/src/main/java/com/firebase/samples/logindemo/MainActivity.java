@@ -1,285 +1,318 @@
 package com.firebase.samples.logindemo;
 
+import android.app.Activity;
 import android.app.AlertDialog;
 import android.app.ProgressDialog;
+import android.content.DialogInterface;
 import android.content.Intent;
-import android.content.IntentSender;
-import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.support.v7.app.ActionBarActivity;
 import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
-import android.widget.Button;
+import android.view.ViewStub;
 import android.widget.TextView;
+import android.widget.Toast;
 
-import com.facebook.AccessToken;
-import com.facebook.AccessTokenTracker;
-import com.facebook.CallbackManager;
-import com.facebook.login.LoginManager;
-import com.facebook.login.widget.LoginButton;
 import com.firebase.client.AuthData;
-import com.firebase.client.Firebase;
 import com.firebase.client.FirebaseError;
-import com.google.android.gms.auth.GoogleAuthException;
-import com.google.android.gms.auth.GoogleAuthUtil;
-import com.google.android.gms.auth.UserRecoverableAuthException;
-import com.google.android.gms.common.ConnectionResult;
-import com.google.android.gms.common.Scopes;
-import com.google.android.gms.common.SignInButton;
-import com.google.android.gms.common.api.GoogleApiClient;
-import com.google.android.gms.plus.Plus;
-
-import java.io.IOException;
-import java.util.HashMap;
+
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * This application demos the use of the Firebase Login feature. It currently supports logging in
  * with Google, Facebook, Twitter, Email/Password, and Anonymous providers.
  * <p/>
- * The methods in this class have been divided into sections based on providers (with a few
- * general methods).
+ * The provider specific parts of a login live in {@link AuthProvider}s, which are looked up in the
+ * {@link AuthProviderRegistry} and only loaded once the provider is used. Every provider comes with an auth module,
+ * and only the buttons of the providers the app was built with are shown:
  * <p/>
- * Facebook provides its own API via the {@link com.facebook.login.widget.LoginButton}.
- * Google provides its own API via the {@link com.google.android.gms.common.api.GoogleApiClient}.
- * Twitter requires us to use a Web View to authenticate, see
- * {@link com.firebase.samples.logindemo.TwitterOAuthActivity}
- * Email/Password is provided using {@link com.firebase.client.Firebase}
- * Anonymous is provided using {@link com.firebase.client.Firebase}
+ * Facebook provides its own API via the LoginManager, see FacebookAuthProvider in auth-facebook.
+ * Google provides its own API via the GoogleApiClient, see GoogleAuthProvider in auth-google.
+ * Twitter requires us to use a Web View to authenticate, see TwitterOAuthActivity in auth-twitter.
+ * Email/Password is provided using {@link com.firebase.client.Firebase}, see auth-password.
+ * Anonymous is provided using {@link com.firebase.client.Firebase}, see auth-core.
  */
-public class MainActivity extends ActionBarActivity implements
-        GoogleApiClient.ConnectionCallbacks,
-        GoogleApiClient.OnConnectionFailedListener {
+public class MainActivity extends ActionBarActivity implements AuthProvider.Host {
 
     private static final String TAG = MainActivity.class.getSimpleName();
 
-    /* *************************************
-     *              GENERAL                *
-     ***************************************/
+    /* The login buttons, and the providers they log in with */
+    private static final int[] LOGIN_BUTTON_IDS = {
+            R.id.login_with_facebook,
+            R.id.login_with_google,
+            R.id.login_with_twitter,
+            R.id.login_with_password,
+            R.id.login_anonymously
+    };
+    private static final String[] LOGIN_BUTTON_PROVIDERS = {
+            "facebook",
+            "google",
+            "twitter",
+            "password",
+            "anonymous"
+    };
+
     /* TextView that is used to display information about the logged in user */
     private TextView mLoggedInStatusTextView;
 
     /* A dialog that is presented until the Firebase authentication finished. */
     private ProgressDialog mAuthProgressDialog;
 
-    /* A reference to the Firebase */
-    private Firebase mFirebaseRef;
+    /* The process wide Firebase session, which survives this activity being recreated */
+    private AuthSession mAuthSession;
+
+    /* Subscription to the Firebase session changes */
+    private StateStream.Subscription<AuthData> mAuthStateSubscription;
+
+    /* Listener for login results */
+    private AuthSession.Listener mAuthSessionListener;
 
     /* Data from the authenticated user */
     private AuthData mAuthData;
-    
-    /* Listener for Firebase session changes */
-    private Firebase.AuthStateListener mAuthStateListener;
 
-    /* *************************************
-     *              FACEBOOK               *
-     ***************************************/
-    /* The login button for Facebook */
-    private LoginButton mFacebookLoginButton;
-    /* The callback manager for Facebook */
-    private CallbackManager mFacebookCallbackManager;
-    /* Used to track user logging in/out off Facebook */
-    private AccessTokenTracker mFacebookAccessTokenTracker;
+    /* Persisted snapshot of the last session, used to render the logged in state before Firebase reports it */
+    private SessionCache mSessionCache;
 
+    /* The session that is currently rendered, either restored from the cache or built from mAuthData */
+    private SessionCache.Session mSession;
 
-    /* *************************************
-     *              GOOGLE                 *
-     ***************************************/
-    /* Request code used to invoke sign in user interactions for Google+ */
-    public static final int RC_GOOGLE_LOGIN = 1;
+    /* The login providers, created on first use */
+    private AuthProviderRegistry mProviders;
 
-    /* Client used to interact with Google APIs. */
-    private GoogleApiClient mGoogleApiClient;
+    /* Container of the login buttons, inflated from a ViewStub the first time they are shown */
+    private View mLoginButtons;
 
-    /* A flag indicating that a PendingIntent is in progress and prevents us from starting further intents. */
-    private boolean mGoogleIntentInProgress;
+    /* Logins requested while the device was offline, replayed once it is back online */
+    private PendingAuthQueue mPendingAuth;
 
-    /* Track whether the sign-in button has been clicked so that we know to resolve all issues preventing sign-in
-     * without waiting. */
-    private boolean mGoogleLoginClicked;
+    private ConnectivityMonitor mConnectivityMonitor;
 
-    /* Store the connection result from onConnectionFailed callbacks so that we can resolve them when the user clicks
-     * sign-in. */
-    private ConnectionResult mGoogleConnectionResult;
+    /* Warms up the provider the user most likely logs in with */
+    private PrewarmScheduler mPrewarmScheduler;
 
-    /* The login button for Google */
-    private SignInButton mGoogleLoginButton;
+    /* Listener for the device coming back online */
+    private ConnectivityMonitor.Listener mConnectivityListener;
 
-    /* *************************************
-     *              TWITTER                *
-     ***************************************/
-    public static final int RC_TWITTER_LOGIN = 2;
+    /* Whether the providers and pending logins are handed to the activity that replaces this one */
+    private boolean mRetainingState;
 
-    private Button mTwitterLoginButton;
+    /* Whether the session of a new auth state is resolved in the background, see res/values/config.xml */
+    private boolean mResolveSessionInBackground;
 
-    /* *************************************
-     *              PASSWORD               *
-     ***************************************/
-    private Button mPasswordLoginButton;
+    /* Counts the auth states set, so that a session resolved in the background for an older one is dropped */
+    private volatile int mAuthDataGeneration;
 
-    /* *************************************
-     *            ANONYMOUSLY              *
-     ***************************************/
-    private Button mAnonymousLoginButton;
+    /**
+     * What is kept when the activity is recreated for a configuration change.
+     */
+    private static class RetainedState {
+        final AuthProviderRegistry providers;
+        final PendingAuthQueue pendingAuth;
+
+        RetainedState(AuthProviderRegistry providers, PendingAuthQueue pendingAuth) {
+            this.providers = providers;
+            this.pendingAuth = pendingAuth;
+        }
+    }
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        ProviderInitializer.recordSinceStart("main_activity_created");
         super.onCreate(savedInstanceState);
         /* Load the view and display it */
         setContentView(R.layout.activity_main);
+        ProviderInitializer.reportFirstFrame(this);
 
-        /* *************************************
-         *              FACEBOOK               *
-         ***************************************/
-        /* Load the Facebook login button and set up the tracker to monitor access token changes */
-        mFacebookCallbackManager = CallbackManager.Factory.create();
-        mFacebookLoginButton = (LoginButton) findViewById(R.id.login_with_facebook);
-        mFacebookAccessTokenTracker = new AccessTokenTracker() {
-            @Override
-            protected void onCurrentAccessTokenChanged(AccessToken oldAccessToken, AccessToken currentAccessToken) {
-                Log.i(TAG, "Facebook.AccessTokenTracker.OnCurrentAccessTokenChanged");
-                MainActivity.this.onFacebookAccessTokenChange(currentAccessToken);
-            }
-        };
-
-        /* *************************************
-         *               GOOGLE                *
-         ***************************************/
-        /* Load the Google login button */
-        mGoogleLoginButton = (SignInButton) findViewById(R.id.login_with_google);
-        mGoogleLoginButton.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View view) {
-                mGoogleLoginClicked = true;
-                if (!mGoogleApiClient.isConnecting()) {
-                    if (mGoogleConnectionResult != null) {
-                        resolveSignInError();
-                    } else if (mGoogleApiClient.isConnected()) {
-                        getGoogleOAuthTokenAndLogin();
-                    } else {
-                    /* connect API now */
-                        Log.d(TAG, "Trying to connect to Google API");
-                        mGoogleApiClient.connect();
-                    }
-                }
-            }
-        });
-        /* Setup the Google API object to allow Google+ logins */
-        mGoogleApiClient = new GoogleApiClient.Builder(this)
-                .addConnectionCallbacks(this)
-                .addOnConnectionFailedListener(this)
-                .addApi(Plus.API)
-                .addScope(Plus.SCOPE_PLUS_LOGIN)
-                .build();
-
-        /* *************************************
-         *                TWITTER              *
-         ***************************************/
-        mTwitterLoginButton = (Button) findViewById(R.id.login_with_twitter);
-        mTwitterLoginButton.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View view) {
-                loginWithTwitter();
-            }
-        });
-
-        /* *************************************
-         *               PASSWORD              *
-         ***************************************/
-        mPasswordLoginButton = (Button) findViewById(R.id.login_with_password);
-        mPasswordLoginButton.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View view) {
-                loginWithPassword();
-            }
-        });
-
-        /* *************************************
-         *              ANONYMOUSLY            *
-         ***************************************/
-        /* Load and setup the anonymous login button */
-        mAnonymousLoginButton = (Button) findViewById(R.id.login_anonymously);
-        mAnonymousLoginButton.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View view) {
-                loginAnonymously();
-            }
-        });
-
-        /* *************************************
-         *               GENERAL               *
-         ***************************************/
         mLoggedInStatusTextView = (TextView) findViewById(R.id.login_status);
 
-        /* Create the Firebase ref that is used for all authentication with Firebase */
-        mFirebaseRef = new Firebase(getResources().getString(R.string.firebase_url));
+        /* Pick up the providers (and any login they have under way) of the activity this one replaces */
+        RetainedState retainedState = (RetainedState) getLastCustomNonConfigurationInstance();
+        if (retainedState != null) {
+            mProviders = retainedState.providers;
+            mProviders.attach(this);
+            mPendingAuth = retainedState.pendingAuth;
+        } else {
+            mProviders = new AuthProviderRegistry(this);
+            mPendingAuth = new PendingAuthQueue();
+        }
+
+        mAuthSession = AuthSession.getInstance(this);
+        mPrewarmScheduler = PrewarmScheduler.getInstance(this);
+        mResolveSessionInBackground = getResources().getBoolean(R.bool.resolve_session_in_background);
 
         /* Setup the progress dialog that is displayed later when authenticating with Firebase */
         mAuthProgressDialog = new ProgressDialog(this);
         mAuthProgressDialog.setTitle("Loading");
         mAuthProgressDialog.setMessage("Authenticating with Firebase...");
-        mAuthProgressDialog.setCancelable(false);
-        mAuthProgressDialog.show();
+        /* Cancelling the dialog cancels the logins it waits for, see LoginDeadline */
+        mAuthProgressDialog.setCancelable(true);
+        mAuthProgressDialog.setCanceledOnTouchOutside(false);
+        mAuthProgressDialog.setOnCancelListener(new DialogInterface.OnCancelListener() {
+            @Override
+            public void onCancel(DialogInterface dialog) {
+                mAuthSession.cancelLogins();
+            }
+        });
 
-        mAuthStateListener = new Firebase.AuthStateListener() {
+        /* Render the last known session right away if there is one. Firebase revalidates it in the background and
+         * the UI is only updated again if the session turns out to be different. */
+        mSessionCache = new SessionCache(this);
+        SessionCache.Session cachedSession = mSessionCache.load();
+        if (cachedSession != null) {
+            showAuthenticatedSession(cachedSession);
+        } else {
+            inflateLoginButtons();
+            prewarmProviders();
+        }
+
+        mAuthSessionListener = new AuthSession.Listener() {
             @Override
-            public void onAuthStateChanged(AuthData authData) {
+            public void onAuthenticated(String provider, AuthData authData) {
+                boolean timed = MainThreadWatchdog.begin(MainThreadWatchdog.Callback.AUTHENTICATED);
+                MainThreadWatchdog.step(MainThreadWatchdog.Step.UI);
                 mAuthProgressDialog.hide();
                 setAuthenticatedUser(authData);
+                MainThreadWatchdog.end(timed);
+            }
+
+            @Override
+            public void onAuthenticationError(String provider, FirebaseError firebaseError) {
+                boolean timed = MainThreadWatchdog.begin(MainThreadWatchdog.Callback.AUTHENTICATION_ERROR);
+                MainThreadWatchdog.step(MainThreadWatchdog.Step.UI);
+                mAuthProgressDialog.hide();
+                /* failures are rare, so the recent events are formatted and attached to the report here */
+                Log.w(TAG, provider + " login failed with " + firebaseError + ", recent auth events:\n"
+                        + AuthEventLog.getReport());
+                /* the user cancelled the login, there is nothing to tell them */
+                if (firebaseError.getCode() != FirebaseError.DENIED_BY_USER) {
+                    showErrorDialog(firebaseError.toString());
+                }
+                /* A failed switch rendered the account it switched to, show who is actually logged in */
+                if (mAuthSession.hasAuthState()) {
+                    setAuthenticatedUser(mAuthSession.getAuthData());
+                }
+                MainThreadWatchdog.end(timed);
             }
         };
+        if ((!mAuthSession.hasAuthState() && cachedSession == null) || mAuthSession.isAuthInProgress()) {
+            mAuthProgressDialog.show();
+        }
         /* Check if the user is authenticated with Firebase already. If this is the case we can set the authenticated
-         * user and hide hide any login buttons */
-        mFirebaseRef.addAuthStateListener(mAuthStateListener);
+         * user and hide any login buttons. After a rotation the session already knows, so the subscription is
+         * handed the auth state right away rather than waiting for Firebase. */
+        mAuthStateSubscription = mAuthSession.getAuthStates().subscribe(MainThreadExecutor.getInstance(),
+                new StateStream.Subscriber<AuthData>() {
+                    @Override
+                    public void onState(AuthData authData) {
+                        boolean timed = MainThreadWatchdog.begin(MainThreadWatchdog.Callback.AUTH_STATE);
+                        MainThreadWatchdog.step(MainThreadWatchdog.Step.UI);
+                        if (!mAuthSession.isAuthInProgress()) {
+                            mAuthProgressDialog.hide();
+                        }
+                        setAuthenticatedUser(authData);
+                        MainThreadWatchdog.end(timed);
+                    }
+                });
+        mAuthSession.attach(mAuthSessionListener);
+
+        mConnectivityMonitor = ConnectivityMonitor.getInstance(this);
+        mConnectivityListener = new ConnectivityMonitor.Listener() {
+            @Override
+            public void onConnected() {
+                replayPendingLogins();
+            }
+        };
+        mConnectivityMonitor.addListener(mConnectivityListener);
+    }
+
+    /**
+     * Inflate the login buttons and hook them up to their providers, hiding those of providers the app was not built
+     * with. A provider (and its SDK) is only loaded once its button is clicked.
+     */
+    private void inflateLoginButtons() {
+        if (mLoginButtons != null) {
+            return;
+        }
+        long start = SystemClock.elapsedRealtime();
+        mLoginButtons = ((ViewStub) findViewById(R.id.login_buttons_stub)).inflate();
+        for (int i = 0; i < LOGIN_BUTTON_IDS.length; i++) {
+            final String provider = LOGIN_BUTTON_PROVIDERS[i];
+            View button = findViewById(LOGIN_BUTTON_IDS[i]);
+            if (!mProviders.isRegistered(provider)) {
+                button.setVisibility(View.GONE);
+                continue;
+            }
+            button.setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View view) {
+                    login(provider);
+                }
+            });
+        }
+        ProviderInitializer.recordDuration("login_buttons_inflated", start);
+    }
+
+    /**
+     * Hand the providers, with the logins they have under way, and the pending logins to the recreated activity.
+     */
+    @Override
+    public Object onRetainCustomNonConfigurationInstance() {
+        mRetainingState = true;
+        return new RetainedState(mProviders, mPendingAuth);
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        // if user logged in with Facebook, stop tracking their token
-        if (mFacebookAccessTokenTracker != null) {
-            mFacebookAccessTokenTracker.stopTracking();
+        if (!mRetainingState) {
+            mPrewarmScheduler.cancel();
+            for (AuthProvider provider : mProviders.getLoaded()) {
+                provider.onDestroy();
+            }
         }
-        
-        // if changing configurations, stop tracking firebase session.
-        mFirebaseRef.removeAuthStateListener(mAuthStateListener);
+
+        // stop listening, the session keeps tracking the firebase session and any logins in flight
+        mAuthStateSubscription.cancel();
+        mAuthSession.detach(mAuthSessionListener);
+        mConnectivityMonitor.removeListener(mConnectivityListener);
+        mAuthProgressDialog.dismiss();
+
+        // drop any background work that would otherwise call back into this activity
+        AuthExecutor.getInstance().cancelAll(this);
     }
 
     /**
      * This method fires when any startActivityForResult finishes. The requestCode maps to
-     * the value passed into startActivityForResult.
+     * the value passed into startActivityForResult, and is handled by the provider that started it.
      */
     @Override
     public void onActivityResult(int requestCode, int resultCode, Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
-        Map<String, String> options = new HashMap<String, String>();
-        if (requestCode == RC_GOOGLE_LOGIN) {
-            /* This was a request by the Google API */
-            if (resultCode != RESULT_OK) {
-                mGoogleLoginClicked = false;
-            }
-            mGoogleIntentInProgress = false;
-            if (!mGoogleApiClient.isConnecting()) {
-                mGoogleApiClient.connect();
+        boolean timed = MainThreadWatchdog.begin(MainThreadWatchdog.Callback.ACTIVITY_RESULT);
+        MainThreadWatchdog.step(MainThreadWatchdog.Step.PROVIDER);
+        for (AuthProvider provider : mProviders.getLoaded()) {
+            if (provider.onActivityResult(requestCode, resultCode, data)) {
+                break;
             }
-        } else if (requestCode == RC_TWITTER_LOGIN) {
-            options.put("oauth_token", data.getStringExtra("oauth_token"));
-            options.put("oauth_token_secret", data.getStringExtra("oauth_token_secret"));
-            options.put("user_id", data.getStringExtra("user_id"));
-            authWithFirebase("twitter", options);
-        } else {
-            /* Otherwise, it's probably the request by the Facebook login button, keep track of the session */
-            mFacebookCallbackManager.onActivityResult(requestCode, resultCode, data);
         }
+        MainThreadWatchdog.end(timed);
     }
 
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
-        /* If a user is currently authenticated, display a logout menu */
-        if (this.mAuthData != null) {
+        /* If a user is currently authenticated, display a logout menu, and a switch menu if there are accounts to
+         * switch to */
+        if (this.mSession != null || !mAuthSession.getAccounts().isEmpty()) {
             getMenuInflater().inflate(R.menu.main, menu);
+            menu.findItem(R.id.action_logout).setVisible(this.mSession != null);
             return true;
         } else {
             return false;
@@ -293,27 +326,44 @@ public class MainActivity extends ActionBarActivity implements
             logout();
             return true;
         }
+        if (id == R.id.action_switch_account) {
+            showAccountPicker();
+            return true;
+        }
         return super.onOptionsItemSelected(item);
     }
 
+    /**
+     * Adds the auth latency percentiles to the output of
+     * <code>adb shell dumpsys activity com.firebase.samples.logindemo/.MainActivity</code>.
+     */
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        AuthMetrics.dump(prefix, writer);
+        AuthHttpClient.getInstance().dump(prefix, writer);
+        writer.println(prefix + "Accounts: " + mAuthSession.getAccountStats());
+        writer.println(prefix + "Anonymous users: " + mAuthSession.getAnonymousStats());
+        writer.println(prefix + "Prewarms: " + mPrewarmScheduler.getStats());
+        AuthEventLog.dump(prefix, writer);
+        MainThreadWatchdog.dump(prefix, writer);
+        StateStream<AuthData> authStates = mAuthSession.getAuthStates();
+        writer.println(prefix + "Auth states: subscribers=" + authStates.getSubscriberCount() + " published="
+                + authStates.getPublishedCount() + " delivered=" + authStates.getDeliveredCount() + " dropped="
+                + authStates.getDroppedCount());
+    }
+
     /**
      * Unauthenticate from Firebase and from providers where necessary.
      */
     private void logout() {
-        if (this.mAuthData != null) {
+        if (this.mSession != null) {
             /* logout of Firebase */
-            mFirebaseRef.unauth();
-            /* Logout of any of the Frameworks. This step is optional, but ensures the user is not logged into
+            mAuthSession.unauth();
+            /* Logout of the provider as well. This step is optional, but ensures the user is not logged into
              * Facebook/Google+ after logging out of Firebase. */
-            if (this.mAuthData.getProvider().equals("facebook")) {
-                /* Logout from Facebook */
-                LoginManager.getInstance().logOut();
-            } else if (this.mAuthData.getProvider().equals("google")) {
-                /* Logout from Google+ */
-                if (mGoogleApiClient.isConnected()) {
-                    Plus.AccountApi.clearDefaultAccount(mGoogleApiClient);
-                    mGoogleApiClient.disconnect();
-                }
+            if (mProviders.isRegistered(this.mSession.getProvider())) {
+                mProviders.get(this.mSession.getProvider()).logout();
             }
             /* Update authenticated user and show login buttons */
             setAuthenticatedUser(null);
@@ -321,238 +371,306 @@ public class MainActivity extends ActionBarActivity implements
     }
 
     /**
-     * This method will attempt to authenticate a user to firebase given an oauth_token (and other
-     * necessary parameters depending on the provider)
+     * Let the user pick one of the other accounts that logged in recently, or add one with the login buttons.
      */
-    private void authWithFirebase(final String provider, Map<String, String> options) {
-        if (options.containsKey("error")) {
-            showErrorDialog(options.get("error"));
-        } else {
-            mAuthProgressDialog.show();
-            if (provider.equals("twitter")) {
-                // if the provider is twitter, we pust pass in additional options, so use the options endpoint
-                mFirebaseRef.authWithOAuthToken(provider, options, new AuthResultHandler(provider));
-            } else {
-                // if the provider is not twitter, we just need to pass in the oauth_token
-                mFirebaseRef.authWithOAuthToken(provider, options.get("oauth_token"), new AuthResultHandler(provider));
+    private void showAccountPicker() {
+        final List<AccountStore.Account<AuthSession.Renewal>> accounts =
+                new ArrayList<AccountStore.Account<AuthSession.Renewal>>();
+        for (AccountStore.Account<AuthSession.Renewal> account : mAuthSession.getAccounts()) {
+            if (mSession == null || !account.getKey().equals(
+                    AccountStore.key(mSession.getProvider(), mSession.getUid()))) {
+                accounts.add(account);
             }
         }
+        String[] labels = new String[accounts.size() + 1];
+        for (int i = 0; i < accounts.size(); i++) {
+            AccountStore.Account<AuthSession.Renewal> account = accounts.get(i);
+            String name = account.getDisplayName() != null ? account.getDisplayName() : account.getUid();
+            labels[i] = name + " (" + account.getProvider() + ")";
+        }
+        labels[accounts.size()] = "Add account";
+        new AlertDialog.Builder(this)
+                .setTitle("Switch account")
+                .setItems(labels, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        if (which < accounts.size()) {
+                            switchAccount(accounts.get(which));
+                        } else {
+                            /* the current account stays logged in until another one logs in */
+                            showLoginButtons();
+                        }
+                    }
+                })
+                .show();
     }
 
     /**
-     * Once a user is logged in, take the mAuthData provided from Firebase and "use" it.
+     * Switch to an account that logged in before. It is shown right away, Firebase confirms it in the background,
+     * unless it cannot be switched to without logging in with its provider again.
      */
-    private void setAuthenticatedUser(AuthData authData) {
-        if (authData != null) {
-            /* Hide all the login buttons */
-            mFacebookLoginButton.setVisibility(View.GONE);
-            mGoogleLoginButton.setVisibility(View.GONE);
-            mTwitterLoginButton.setVisibility(View.GONE);
-            mPasswordLoginButton.setVisibility(View.GONE);
-            mAnonymousLoginButton.setVisibility(View.GONE);
-            mLoggedInStatusTextView.setVisibility(View.VISIBLE);
-            /* show a provider specific status text */
-            String name = null;
-            if (authData.getProvider().equals("facebook")
-                    || authData.getProvider().equals("google")
-                    || authData.getProvider().equals("twitter")) {
-                name = (String) authData.getProviderData().get("displayName");
-            } else if (authData.getProvider().equals("anonymous")
-                    || authData.getProvider().equals("password")) {
-                name = authData.getUid();
-            } else {
-                Log.e(TAG, "Invalid provider: " + authData.getProvider());
-            }
-            if (name != null) {
-                mLoggedInStatusTextView.setText("Logged in as " + name + " (" + authData.getProvider() + ")");
-            }
+    private void switchAccount(AccountStore.Account<AuthSession.Renewal> account) {
+        if (mAuthSession.switchTo(account.getKey())) {
+            showAuthenticatedSession(new SessionCache.Session(account.getUid(), account.getProvider(),
+                    account.getDisplayName(), account.getExpiresAt() / 1000));
         } else {
-            /* No authenticated user show all the login buttons */
-            mFacebookLoginButton.setVisibility(View.VISIBLE);
-            mGoogleLoginButton.setVisibility(View.VISIBLE);
-            mTwitterLoginButton.setVisibility(View.VISIBLE);
-            mPasswordLoginButton.setVisibility(View.VISIBLE);
-            mAnonymousLoginButton.setVisibility(View.VISIBLE);
-            mLoggedInStatusTextView.setVisibility(View.GONE);
+            login(account.getProvider());
         }
-        this.mAuthData = authData;
-        /* invalidate options menu to hide/show the logout button */
-        supportInvalidateOptionsMenu();
     }
 
     /**
-     * Show errors to users
+     * Start a login with the given provider, or queue it until the device is online again. A queued login is only
+     * recorded as a pick, and its deadline only started, once it is replayed.
      */
-    private void showErrorDialog(String message) {
-        new AlertDialog.Builder(this)
-                .setTitle("Error")
-                .setMessage(message)
-                .setPositiveButton(android.R.string.ok, null)
-                .setIcon(android.R.drawable.ic_dialog_alert)
-                .show();
+    private void login(String provider) {
+        if (!mConnectivityMonitor.isConnected()) {
+            queueLogin(provider, null);
+            return;
+        }
+        startProviderLogin(provider);
+    }
+
+    private void startProviderLogin(String provider) {
+        mPrewarmScheduler.recordLogin(provider);
+        mAuthSession.startLogin(provider);
+        mProviders.get(provider).login();
     }
 
     /**
-     * Utility class for authentication results
+     * Hold on to a login until the device is online again, instead of letting it fail.
      */
-    private class AuthResultHandler implements Firebase.AuthResultHandler {
-
-        private final String provider;
-
-        public AuthResultHandler(String provider) {
-            this.provider = provider;
+    private void queueLogin(String provider, Map<String, String> options) {
+        if (mPendingAuth.enqueue(provider, options)) {
+            AuthEventLog.record(provider, AuthEventLog.Event.QUEUED, 0);
         }
+        Toast.makeText(this, "You are offline, logging in with " + provider + " once the network is back",
+                Toast.LENGTH_LONG).show();
+    }
 
-        @Override
-        public void onAuthenticated(AuthData authData) {
-            mAuthProgressDialog.hide();
-            Log.i(TAG, provider + " auth successful");
-            setAuthenticatedUser(authData);
+    /**
+     * Run the logins that were requested while the device was offline, in the order they were requested.
+     */
+    private void replayPendingLogins() {
+        if (mPendingAuth.isEmpty()) {
+            return;
+        }
+        for (PendingAuthQueue.Request request : mPendingAuth.drain()) {
+            if (mSession != null) {
+                /* logged in already, e.g. because Firebase restored a session in the meantime */
+                Log.i(TAG, "Dropping queued " + request.getProvider() + " login, already logged in");
+            } else if (request.getOptions() == null) {
+                startProviderLogin(request.getProvider());
+            } else {
+                authWithFirebase(request.getProvider(), request.getOptions());
+            }
         }
+    }
 
-        @Override
-        public void onAuthenticationError(FirebaseError firebaseError) {
+    /**
+     * This method will attempt to authenticate a user to firebase given an oauth_token (and other
+     * necessary parameters depending on the provider)
+     */
+    @Override
+    public void authWithFirebase(String provider, Map<String, String> options) {
+        String error = AuthOptions.getError(options);
+        if (error != null) {
+            showErrorDialog(error);
+        } else if (!mConnectivityMonitor.isConnected()) {
+            /* the provider token was obtained, but it cannot be handed to Firebase right now */
             mAuthProgressDialog.hide();
-            showErrorDialog(firebaseError.toString());
+            queueLogin(provider, options);
+        } else {
+            mAuthProgressDialog.show();
+            mAuthSession.authWithOAuthToken(provider, options);
         }
     }
 
-    /* ************************************
-     *             FACEBOOK               *
-     **************************************
+    /**
+     * Once a user is logged in, take the mAuthData provided from Firebase and "use" it.
      */
-    private void onFacebookAccessTokenChange(AccessToken token) {
-        if (token != null) {
-            mAuthProgressDialog.show();
-            mFirebaseRef.authWithOAuthToken("facebook", token.getToken(), new AuthResultHandler("facebook"));
-        } else {
-            // Logged out of Facebook and currently authenticated with Firebase using Facebook, so do a logout
-            if (this.mAuthData != null && this.mAuthData.getProvider().equals("facebook")) {
-                mFirebaseRef.unauth();
-                setAuthenticatedUser(null);
+    private void setAuthenticatedUser(final AuthData authData) {
+        this.mAuthData = authData;
+        final int generation = ++mAuthDataGeneration;
+        if (authData == null) {
+            MainThreadWatchdog.step(MainThreadWatchdog.Step.SESSION_CACHE);
+            synchronized (mSessionCache) {
+                mSessionCache.clear();
+            }
+            MainThreadWatchdog.step(MainThreadWatchdog.Step.UI);
+            if (mSession != null) {
+                showLoginButtons();
             }
+        } else if (mResolveSessionInBackground) {
+            /* only the views are updated on the main thread, once the session is resolved */
+            AuthExecutor.getInstance().submit(this, new Callable<SessionCache.Session>() {
+                @Override
+                public SessionCache.Session call() {
+                    return resolveSession(authData, generation);
+                }
+            }, new AuthExecutor.Callback<SessionCache.Session>() {
+                @Override
+                public void onResult(SessionCache.Session session) {
+                    if (generation != mAuthDataGeneration) {
+                        return;
+                    }
+                    boolean timed = MainThreadWatchdog.begin(MainThreadWatchdog.Callback.SESSION_RESOLVED);
+                    showResolvedSession(session);
+                    MainThreadWatchdog.end(timed);
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    Log.e(TAG, "Unable to resolve the session of " + authData.getUid(), e);
+                }
+            });
+        } else {
+            showResolvedSession(resolveSession(authData, generation));
         }
     }
 
-    /* ************************************
-     *              GOOGLE                *
-     **************************************
+    /**
+     * Build the session to render from the auth data, and save it for the next start unless another auth state was set
+     * in the meantime. Does not touch the UI, so this can run in the background.
      */
-    /* A helper method to resolve the current ConnectionResult error. */
-    private void resolveSignInError() {
-        if (mGoogleConnectionResult.hasResolution()) {
-            try {
-                mGoogleIntentInProgress = true;
-                mGoogleConnectionResult.startResolutionForResult(this, RC_GOOGLE_LOGIN);
-            } catch (IntentSender.SendIntentException e) {
-                // The intent was canceled before it was sent.  Return to the default
-                // state and attempt to connect to get an updated ConnectionResult.
-                mGoogleIntentInProgress = false;
-                mGoogleApiClient.connect();
+    private SessionCache.Session resolveSession(AuthData authData, int generation) {
+        /* show a provider specific status text */
+        MainThreadWatchdog.step(MainThreadWatchdog.Step.PROVIDER_DATA);
+        String name = DisplayNames.resolve(authData.getProvider(), authData.getUid(), authData.getProviderData());
+        if (name == null) {
+            Log.e(TAG, "Invalid provider: " + authData.getProvider());
+        }
+        SessionCache.Session session = SessionCache.Session.fromAuthData(authData, name);
+        MainThreadWatchdog.step(MainThreadWatchdog.Step.SESSION_CACHE);
+        synchronized (mSessionCache) {
+            if (generation == mAuthDataGeneration) {
+                mSessionCache.save(session);
             }
         }
+        return session;
     }
 
-    private void getGoogleOAuthTokenAndLogin() {
-        mAuthProgressDialog.show();
-        /* Get OAuth token in Background */
-        AsyncTask<Void, Void, String> task = new AsyncTask<Void, Void, String>() {
-            String errorMessage = null;
+    /**
+     * Show the session of the authenticated user, unless it is shown already.
+     */
+    private void showResolvedSession(SessionCache.Session session) {
+        MainThreadWatchdog.step(MainThreadWatchdog.Step.UI);
+        /* Only touch the UI if the session differs from the one that is already shown, e.g. the cached one */
+        if (!session.isSameUser(mSession)) {
+            showAuthenticatedSession(session);
+        } else {
+            mSession = session;
+        }
+    }
 
-            @Override
-            protected String doInBackground(Void... params) {
-                String token = null;
-
-                try {
-                    String scope = String.format("oauth2:%s", Scopes.PLUS_LOGIN);
-                    token = GoogleAuthUtil.getToken(MainActivity.this, Plus.AccountApi.getAccountName(mGoogleApiClient), scope);
-                } catch (IOException transientEx) {
-                    /* Network or server error */
-                    Log.e(TAG, "Error authenticating with Google: " + transientEx);
-                    errorMessage = "Network error: " + transientEx.getMessage();
-                } catch (UserRecoverableAuthException e) {
-                    Log.w(TAG, "Recoverable Google OAuth error: " + e.toString());
-                    /* We probably need to ask for permissions, so start the intent if there is none pending */
-                    if (!mGoogleIntentInProgress) {
-                        mGoogleIntentInProgress = true;
-                        Intent recover = e.getIntent();
-                        startActivityForResult(recover, RC_GOOGLE_LOGIN);
+    /**
+     * Hide the login buttons and show who is logged in.
+     */
+    private void showAuthenticatedSession(SessionCache.Session session) {
+        /* Hide all the login buttons, if they have been inflated at all */
+        if (mLoginButtons != null) {
+            mLoginButtons.setVisibility(View.GONE);
+        }
+        mLoggedInStatusTextView.setVisibility(View.VISIBLE);
+        if (session.getDisplayName() != null) {
+            mLoggedInStatusTextView.setText("Logged in as " + session.getDisplayName()
+                    + " (" + session.getProvider() + ")");
+        }
+        this.mSession = session;
+        /* invalidate options menu to hide/show the logout button */
+        supportInvalidateOptionsMenu();
+        final String provider = session.getProvider();
+        if (mProviders.isRegistered(provider)) {
+            /* Let the provider know about the session (e.g. to track the Facebook token), but not before the first
+             * frame is drawn */
+            ProviderInitializer.runWhenIdle(new Runnable() {
+                @Override
+                public void run() {
+                    if (!isFinishing()) {
+                        mProviders.get(provider).onSessionShown();
                     }
-                } catch (GoogleAuthException authEx) {
-                    /* The call is not ever expected to succeed assuming you have already verified that
-                     * Google Play services is installed. */
-                    Log.e(TAG, "Error authenticating with Google: " + authEx.getMessage(), authEx);
-                    errorMessage = "Error authenticating with Google: " + authEx.getMessage();
                 }
-                return token;
-            }
+            });
+        }
+    }
 
+    /**
+     * No authenticated user, show all the login buttons.
+     */
+    private void showLoginButtons() {
+        inflateLoginButtons();
+        mLoginButtons.setVisibility(View.VISIBLE);
+        prewarmProviders();
+        mLoggedInStatusTextView.setVisibility(View.GONE);
+        this.mSession = null;
+        /* invalidate options menu to hide/show the logout button */
+        supportInvalidateOptionsMenu();
+    }
+
+    /**
+     * Let the provider the user most likely logs in with get ready while the login buttons are shown, once the first
+     * frame was drawn and the UI is idle. Without earlier logins to go by, Twitter is warmed up, whose setup takes the
+     * longest.
+     */
+    private void prewarmProviders() {
+        ProviderInitializer.runAfterFirstFrame(new Runnable() {
             @Override
-            protected void onPostExecute(String token) {
-                mGoogleLoginClicked = false;
-                if (token != null) {
-                    /* Successfully got OAuth token, now login with Google */
-                    mFirebaseRef.authWithOAuthToken("google", token, new AuthResultHandler("google"));
-                } else if (errorMessage != null) {
-                    mAuthProgressDialog.hide();
-                    showErrorDialog(errorMessage);
+            public void run() {
+                if (!isFinishing() && mSession == null) {
+                    mPrewarmScheduler.prewarm(mProviders, "twitter");
                 }
             }
-        };
-        task.execute();
+        });
+    }
+
+    /**
+     * Show errors to users
+     */
+    private void showErrorDialog(String message) {
+        new AlertDialog.Builder(this)
+                .setTitle("Error")
+                .setMessage(message)
+                .setPositiveButton(android.R.string.ok, null)
+                .setIcon(android.R.drawable.ic_dialog_alert)
+                .show();
     }
 
+    /* ************************************
+     *          AuthProvider.Host         *
+     **************************************
+     */
     @Override
-    public void onConnected(final Bundle bundle) {
-        /* Connected with Google API, use this to authenticate with Firebase */
-        getGoogleOAuthTokenAndLogin();
+    public Activity getActivity() {
+        return this;
     }
 
+    @Override
+    public AuthSession getAuthSession() {
+        return mAuthSession;
+    }
 
     @Override
-    public void onConnectionFailed(ConnectionResult result) {
-        if (!mGoogleIntentInProgress) {
-            /* Store the ConnectionResult so that we can use it later when the user clicks on the Google+ login button */
-            mGoogleConnectionResult = result;
-
-            if (mGoogleLoginClicked) {
-                /* The user has already clicked login so we attempt to resolve all errors until the user is signed in,
-                 * or they cancel. */
-                resolveSignInError();
-            } else {
-                Log.e(TAG, result.toString());
-            }
-        }
+    public String getSessionProvider() {
+        return mSession != null ? mSession.getProvider() : null;
     }
 
     @Override
-    public void onConnectionSuspended(int i) {
-        // ignore
+    public void showProgress() {
+        mAuthProgressDialog.show();
     }
 
-    /* ************************************
-     *               TWITTER              *
-     **************************************
-     */
-    private void loginWithTwitter() {
-        startActivityForResult(new Intent(this, TwitterOAuthActivity.class), RC_TWITTER_LOGIN);
+    @Override
+    public void hideProgress() {
+        mAuthProgressDialog.hide();
     }
 
-    /* ************************************
-     *              PASSWORD              *
-     **************************************
-     */
-    public void loginWithPassword() {
-        mAuthProgressDialog.show();
-        mFirebaseRef.authWithPassword("test@firebaseuser.com", "test1234", new AuthResultHandler("password"));
+    @Override
+    public void showError(String message) {
+        showErrorDialog(message);
     }
 
-    /* ************************************
-     *             ANONYMOUSLY            *
-     **************************************
-     */
-    private void loginAnonymously() {
-        mAuthProgressDialog.show();
-        mFirebaseRef.authAnonymously(new AuthResultHandler("anonymous"));
+    @Override
+    public void onProviderLoggedOut(String provider) {
+        mAuthSession.unauth();
+        setAuthenticatedUser(null);
     }
 }
@@ -0,0 +1,151 @@
+package com.firebase.samples.logindemo;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.firebase.client.AuthData;
+
+import java.io.UnsupportedEncodingException;
+import java.util.zip.CRC32;
+
+/**
+ * Persists a snapshot of the last Firebase session, so that {@link MainActivity} can render the logged in state on a
+ * cold start before Firebase reports it. Snapshots are stored with a CRC32 checksum, which catches corruption but not
+ * tampering, and are discarded when it does not match or their token has expired.
+ */
+public class SessionCache {
+
+    private static final String TAG = SessionCache.class.getSimpleName();
+
+    private static final String PREFS_NAME = "session_cache";
+
+    private static final String KEY_UID = "uid";
+    private static final String KEY_PROVIDER = "provider";
+    private static final String KEY_DISPLAY_NAME = "display_name";
+    private static final String KEY_EXPIRES = "expires";
+    private static final String KEY_CHECKSUM = "checksum";
+
+    private final SharedPreferences mPreferences;
+
+    public SessionCache(Context context) {
+        mPreferences = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Returns the persisted session, or null if there is none, it failed the integrity check or it has expired.
+     */
+    public Session load() {
+        long checksum = mPreferences.getLong(KEY_CHECKSUM, -1);
+        if (checksum == -1) {
+            return null;
+        }
+        Session session = new Session(
+                mPreferences.getString(KEY_UID, null),
+                mPreferences.getString(KEY_PROVIDER, null),
+                mPreferences.getString(KEY_DISPLAY_NAME, null),
+                mPreferences.getLong(KEY_EXPIRES, 0));
+        if (session.getUid() == null || session.getProvider() == null || checksum != checksum(session)) {
+            Log.w(TAG, "Discarding session snapshot that failed the integrity check");
+            clear();
+            return null;
+        }
+        if (session.isExpired()) {
+            clear();
+            return null;
+        }
+        return session;
+    }
+
+    public void save(Session session) {
+        mPreferences.edit()
+                .putString(KEY_UID, session.getUid())
+                .putString(KEY_PROVIDER, session.getProvider())
+                .putString(KEY_DISPLAY_NAME, session.getDisplayName())
+                .putLong(KEY_EXPIRES, session.getExpires())
+                .putLong(KEY_CHECKSUM, checksum(session))
+                .apply();
+    }
+
+    public void clear() {
+        mPreferences.edit()
+                .remove(KEY_UID)
+                .remove(KEY_PROVIDER)
+                .remove(KEY_DISPLAY_NAME)
+                .remove(KEY_EXPIRES)
+                .remove(KEY_CHECKSUM)
+                .apply();
+    }
+
+    private static long checksum(Session session) {
+        CRC32 crc = new CRC32();
+        try {
+            crc.update(session.getUid().getBytes("UTF-8"));
+            crc.update(0);
+            crc.update(session.getProvider().getBytes("UTF-8"));
+            crc.update(0);
+            if (session.getDisplayName() != null) {
+                crc.update(session.getDisplayName().getBytes("UTF-8"));
+            }
+            crc.update(0);
+            crc.update(Long.toString(session.getExpires()).getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            /* UTF-8 is always supported */
+            throw new AssertionError(e);
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * The parts of a Firebase session that are needed to render the logged in state.
+     */
+    public static class Session {
+
+        private final String uid;
+        private final String provider;
+        private final String displayName;
+        /* Expiry of the Firebase token, in seconds since the epoch */
+        private final long expires;
+
+        public Session(String uid, String provider, String displayName, long expires) {
+            this.uid = uid;
+            this.provider = provider;
+            this.displayName = displayName;
+            this.expires = expires;
+        }
+
+        public static Session fromAuthData(AuthData authData, String displayName) {
+            return new Session(authData.getUid(), authData.getProvider(), displayName, authData.getExpires());
+        }
+
+        public String getUid() {
+            return uid;
+        }
+
+        public String getProvider() {
+            return provider;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        public long getExpires() {
+            return expires;
+        }
+
+        public boolean isExpired() {
+            return expires * 1000 <= System.currentTimeMillis();
+        }
+
+        /**
+         * Whether both sessions render the same way, ignoring the token expiry.
+         */
+        public boolean isSameUser(Session other) {
+            return other != null
+                    && uid.equals(other.uid)
+                    && provider.equals(other.provider)
+                    && (displayName == null ? other.displayName == null : displayName.equals(other.displayName));
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.firebase.samples.logindemo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The sessions of the accounts that were logged in recently, so that switching back to one of them does not need
+ * another login with its provider. Holds a bounded number of accounts and evicts the least recently used one. Used by
+ * {@link AuthSession} from the main thread, it is not thread safe.
+ *
+ * @param <R> how an account logs in again once its token expired
+ */
+public class AccountStore<R> {
+
+    public static final int DEFAULT_CAPACITY = 5;
+
+    /* Tokens that expire sooner than this are not used anymore */
+    public static final long VALIDITY_MARGIN_MS = 60 * 1000;
+
+    /**
+     * What switching to an account needs, see {@link #check(String)}.
+     */
+    public enum Status {
+        /* The token is still valid, Firebase is authenticated with it without a provider login */
+        VALID,
+        /* The token expired, the account has to log in again */
+        EXPIRED,
+        /* The account is not in the store */
+        UNKNOWN
+    }
+
+    private final Clock mClock;
+
+    private final int mCapacity;
+
+    /* In access order, so that the eldest entry is the least recently used one */
+    private final LinkedHashMap<String, Account<R>> mAccounts;
+
+    private long mValidCount;
+
+    private long mExpiredCount;
+
+    private long mUnknownCount;
+
+    private long mEvictedCount;
+
+    public AccountStore(Clock clock) {
+        this(clock, DEFAULT_CAPACITY);
+    }
+
+    public AccountStore(Clock clock, int capacity) {
+        mClock = clock;
+        mCapacity = capacity;
+        mAccounts = new LinkedHashMap<String, Account<R>>(capacity + 1, 1f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Account<R>> eldest) {
+                if (size() > mCapacity) {
+                    mEvictedCount++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public static String key(String provider, String uid) {
+        return provider + '/' + uid;
+    }
+
+    /**
+     * Adds or replaces the account, which becomes the most recently used one.
+     */
+    public void put(Account<R> account) {
+        mAccounts.put(account.getKey(), account);
+    }
+
+    /**
+     * Returns the account and marks it as the most recently used one, or returns null if it is not in the store.
+     */
+    public Account<R> get(String key) {
+        return mAccounts.get(key);
+    }
+
+    /**
+     * Looks the account up for a switch and counts the outcome, see {@link Status}.
+     */
+    public Status check(String key) {
+        Account<R> account = mAccounts.get(key);
+        if (account == null) {
+            mUnknownCount++;
+            return Status.UNKNOWN;
+        }
+        if (!isValid(account)) {
+            mExpiredCount++;
+            return Status.EXPIRED;
+        }
+        mValidCount++;
+        return Status.VALID;
+    }
+
+    /**
+     * Whether the token of the account can still be used.
+     */
+    public boolean isValid(Account<R> account) {
+        return account.getToken() != null && account.getExpiresAt() - VALIDITY_MARGIN_MS > mClock.now();
+    }
+
+    public Account<R> remove(String key) {
+        return mAccounts.remove(key);
+    }
+
+    public void clear() {
+        mAccounts.clear();
+    }
+
+    public int size() {
+        return mAccounts.size();
+    }
+
+    /**
+     * Returns the accounts, the most recently used one first.
+     */
+    public List<Account<R>> getAccounts() {
+        List<Account<R>> accounts = new ArrayList<Account<R>>(mAccounts.values());
+        Collections.reverse(accounts);
+        return accounts;
+    }
+
+    /**
+     * The number of switches that could use the token of the account.
+     */
+    public long getValidCount() {
+        return mValidCount;
+    }
+
+    /**
+     * The number of switches to an account whose token had expired.
+     */
+    public long getExpiredCount() {
+        return mExpiredCount;
+    }
+
+    /**
+     * The number of switches to an account that was not (or no longer) in the store.
+     */
+    public long getUnknownCount() {
+        return mUnknownCount;
+    }
+
+    /**
+     * The number of accounts that were evicted to make room for another one.
+     */
+    public long getEvictedCount() {
+        return mEvictedCount;
+    }
+
+    /**
+     * An account that was logged in, with its Firebase token.
+     */
+    public static class Account<R> {
+
+        private final String provider;
+        private final String uid;
+        private final String displayName;
+        private final String token;
+        /* Expiry of the token, in terms of the clock of the store */
+        private final long expiresAt;
+        private final R renewal;
+
+        public Account(String provider, String uid, String displayName, String token, long expiresAt, R renewal) {
+            this.provider = provider;
+            this.uid = uid;
+            this.displayName = displayName;
+            this.token = token;
+            this.expiresAt = expiresAt;
+            this.renewal = renewal;
+        }
+
+        public String getKey() {
+            return key(provider, uid);
+        }
+
+        public String getProvider() {
+            return provider;
+        }
+
+        public String getUid() {
+            return uid;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        public String getToken() {
+            return token;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+
+        /**
+         * How the account logs in again once its token expired, or null if it cannot.
+         */
+        public R getRenewal() {
+            return renewal;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.firebase.samples.logindemo;
+
+/**
+ * Anonymous login, provided by {@link com.firebase.client.Firebase} itself.
+ */
+public class AnonymousAuthProvider extends AuthProvider {
+
+    @Override
+    public String getName() {
+        return "anonymous";
+    }
+
+    @Override
+    public void login() {
+        mHost.showProgress();
+        mHost.getAuthSession().authAnonymously();
+    }
+}
@@ -0,0 +1,188 @@
+package com.firebase.samples.logindemo;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.firebase.client.AuthData;
+import com.firebase.client.Firebase;
+import com.firebase.client.FirebaseError;
+
+/**
+ * Persists the Firebase token of the anonymous user, so that logging in anonymously again resumes the same user with
+ * {@link Firebase#authWithCustomToken} rather than creating a new one with {@link Firebase#authAnonymously}. All
+ * methods must be called from the main thread.
+ */
+public class AnonymousIdentity {
+
+    private static final String TAG = AnonymousIdentity.class.getSimpleName();
+
+    private static final String PREFS_NAME = "anonymous_identity";
+
+    private static final String KEY_UID = "uid";
+    private static final String KEY_TOKEN = "token";
+    private static final String KEY_EXPIRES_AT = "expires_at";
+    private static final String KEY_CREATED_COUNT = "created_count";
+    private static final String KEY_RESUMED_COUNT = "resumed_count";
+
+    private static AnonymousIdentity sInstance;
+
+    /**
+     * The two Firebase calls of an anonymous login.
+     */
+    interface Backend {
+        void authWithCustomToken(String token, Firebase.AuthResultHandler handler);
+
+        void authAnonymously(Firebase.AuthResultHandler handler);
+    }
+
+    private final SharedPreferences mPreferences;
+
+    private final Clock mClock;
+
+    public static AnonymousIdentity getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new AnonymousIdentity(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private AnonymousIdentity(Context context) {
+        this(context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE), Clock.WALL);
+    }
+
+    AnonymousIdentity(SharedPreferences preferences, Clock clock) {
+        mPreferences = preferences;
+        mClock = clock;
+    }
+
+    /**
+     * Makes one attempt of an anonymous login: resumes the persisted anonymous user while its token is valid, and
+     * creates a new one otherwise, or if Firebase rejects the token.
+     */
+    public void login(final Firebase firebaseRef, Firebase.AuthResultHandler handler) {
+        login(new Backend() {
+            @Override
+            public void authWithCustomToken(String token, Firebase.AuthResultHandler handler) {
+                firebaseRef.authWithCustomToken(token, handler);
+            }
+
+            @Override
+            public void authAnonymously(Firebase.AuthResultHandler handler) {
+                firebaseRef.authAnonymously(handler);
+            }
+        }, handler);
+    }
+
+    void login(final Backend backend, final Firebase.AuthResultHandler handler) {
+        final String token = getResumableToken();
+        if (token == null) {
+            create(backend, handler);
+            return;
+        }
+        backend.authWithCustomToken(token, new Firebase.AuthResultHandler() {
+            @Override
+            public void onAuthenticated(AuthData authData) {
+                Log.d(TAG, "Resumed anonymous user " + authData.getUid());
+                increment(KEY_RESUMED_COUNT);
+                /* keep the expiry Firebase reports now, so that the next login can resume past the one of the create */
+                save(authData);
+                handler.onAuthenticated(authData);
+            }
+
+            @Override
+            public void onAuthenticationError(FirebaseError firebaseError) {
+                if (firebaseError.getCode() == FirebaseError.INVALID_TOKEN
+                        || firebaseError.getCode() == FirebaseError.EXPIRED_TOKEN) {
+                    Log.w(TAG, "Anonymous token was rejected, creating a new anonymous user: " + firebaseError);
+                    clear();
+                    create(backend, handler);
+                } else {
+                    handler.onAuthenticationError(firebaseError);
+                }
+            }
+        });
+    }
+
+    private void create(Backend backend, final Firebase.AuthResultHandler handler) {
+        backend.authAnonymously(new Firebase.AuthResultHandler() {
+            @Override
+            public void onAuthenticated(AuthData authData) {
+                Log.d(TAG, "Created anonymous user " + authData.getUid());
+                increment(KEY_CREATED_COUNT);
+                save(authData);
+                handler.onAuthenticated(authData);
+            }
+
+            @Override
+            public void onAuthenticationError(FirebaseError firebaseError) {
+                handler.onAuthenticationError(firebaseError);
+            }
+        });
+    }
+
+    /**
+     * The token of the persisted anonymous user, or null if there is none or it is about to expire.
+     */
+    public String getResumableToken() {
+        String token = mPreferences.getString(KEY_TOKEN, null);
+        long expiresAt = mPreferences.getLong(KEY_EXPIRES_AT, 0);
+        if (token == null || expiresAt - AccountStore.VALIDITY_MARGIN_MS <= mClock.now()) {
+            return null;
+        }
+        return token;
+    }
+
+    /**
+     * The uid of the persisted anonymous user, or null if there is none.
+     */
+    public String getUid() {
+        return mPreferences.getString(KEY_UID, null);
+    }
+
+    private void save(AuthData authData) {
+        /* Firebase reports the expiry in seconds, 0 if the session does not expire */
+        long expiresAt = authData.getExpires() > 0 ? authData.getExpires() * 1000 : Long.MAX_VALUE;
+        mPreferences.edit()
+                .putString(KEY_UID, authData.getUid())
+                .putString(KEY_TOKEN, authData.getToken())
+                .putLong(KEY_EXPIRES_AT, expiresAt)
+                .apply();
+    }
+
+    /**
+     * Forgets the anonymous user, the next anonymous login creates a new one.
+     */
+    public void clear() {
+        mPreferences.edit()
+                .remove(KEY_UID)
+                .remove(KEY_TOKEN)
+                .remove(KEY_EXPIRES_AT)
+                .apply();
+    }
+
+    private void increment(String key) {
+        mPreferences.edit().putLong(key, mPreferences.getLong(key, 0) + 1).apply();
+    }
+
+    /**
+     * The number of anonymous accounts created on the backend.
+     */
+    public long getCreatedCount() {
+        return mPreferences.getLong(KEY_CREATED_COUNT, 0);
+    }
+
+    /**
+     * The number of anonymous logins that resumed the persisted user, i.e. the account creations avoided.
+     */
+    public long getResumedCount() {
+        return mPreferences.getLong(KEY_RESUMED_COUNT, 0);
+    }
+
+    /**
+     * The account creations and the ones avoided, for dumpsys.
+     */
+    public String getStats() {
+        return "created=" + getCreatedCount() + " resumed=" + getResumedCount() + " (account creations avoided)";
+    }
+}
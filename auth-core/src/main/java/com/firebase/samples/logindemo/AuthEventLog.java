@@ -0,0 +1,174 @@
+package com.firebase.samples.logindemo;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps the latest {@link #CAPACITY} events of the logins in a ring of primitive arrays, so that a slow or failed login
+ * can be reconstructed after logcat has rotated. Recording neither allocates nor takes a lock; only {@link #dump} and
+ * {@link #getReport()} format the events, skipping a slot that is overwritten while it is read.
+ */
+public final class AuthEventLog {
+
+    /**
+     * What happened.
+     */
+    public enum Event {
+        /* A login, or a phase of it, started */
+        START,
+        /* A login, or a phase of it, succeeded */
+        SUCCESS,
+        /* A login, or a phase of it, failed, the code says why */
+        ERROR,
+        /* A failed Firebase request is retried, the code is the error it failed with */
+        RETRY,
+        /* A login did not start, as the circuit breaker of its provider is open */
+        REJECTED,
+        /* A login joined the same login already in flight */
+        JOINED,
+        /* A login was queued until the device is online again */
+        QUEUED,
+        /* A phase ran out of time, see LoginDeadline */
+        TIMEOUT,
+        /* The user cancelled the login */
+        CANCELLED
+    }
+
+    /* The number of events kept, a power of two */
+    public static final int CAPACITY = 256;
+
+    private static final int MASK = CAPACITY - 1;
+
+    private static final AuthMetrics.Phase[] PHASES = AuthMetrics.Phase.values();
+
+    private static final Event[] EVENTS = Event.values();
+
+    /* No phase, the event is about the login as a whole */
+    private static final byte NO_PHASE = -1;
+
+    private static final AtomicLong sSequence = new AtomicLong();
+
+    /* The sequence number of the event in each slot, starting at 1, 0 while the slot is written */
+    private static final AtomicLongArray sStamps = new AtomicLongArray(CAPACITY);
+
+    /* The fields of the events are atomic too, so that a dump cannot read them before the first or after the second
+     * read of the stamp. The provider, phase and event are packed into one int, see pack(). */
+    private static final AtomicLongArray sTimes = new AtomicLongArray(CAPACITY);
+    private static final AtomicIntegerArray sKinds = new AtomicIntegerArray(CAPACITY);
+    private static final AtomicIntegerArray sCodes = new AtomicIntegerArray(CAPACITY);
+
+    private AuthEventLog() {
+    }
+
+    /**
+     * Records an event of a login as a whole.
+     */
+    public static void record(String provider, Event event, int code) {
+        record(provider, null, event, code);
+    }
+
+    /**
+     * Records an event of a phase of a login.
+     *
+     * @param phase the phase, or null for the login as a whole
+     * @param code  e.g. a FirebaseError code or an HTTP status, 0 if there is none
+     */
+    public static void record(String provider, AuthMetrics.Phase phase, Event event, int code) {
+        long time = System.nanoTime();
+        long sequence = sSequence.incrementAndGet();
+        int slot = (int) (sequence & MASK);
+        sStamps.set(slot, 0);
+        /* ordered after the stamp is cleared, so a dump that reads one of them sees the slot change */
+        sTimes.lazySet(slot, time);
+        sKinds.lazySet(slot, pack(AuthMetrics.indexOf(provider), phase != null ? phase.ordinal() : NO_PHASE,
+                event.ordinal()));
+        sCodes.lazySet(slot, code);
+        sStamps.lazySet(slot, sequence);
+    }
+
+    private static int pack(int provider, int phase, int event) {
+        return (provider & 0xff) << 16 | (phase & 0xff) << 8 | event & 0xff;
+    }
+
+    /**
+     * The number of events recorded, including the ones that have been overwritten since.
+     */
+    public static long getRecordedCount() {
+        return sSequence.get();
+    }
+
+    /**
+     * Forgets the events that are kept by clearing the stamps of their slots. The sequence numbers are not reset, so
+     * {@link #getRecordedCount()} still counts the events recorded before.
+     */
+    public static void reset() {
+        for (int slot = 0; slot < CAPACITY; slot++) {
+            sStamps.set(slot, 0);
+        }
+    }
+
+    /**
+     * Writes the events that are kept, the oldest first, with their time relative to the latest one.
+     */
+    public static void dump(String prefix, PrintWriter writer) {
+        long last = sSequence.get();
+        long first = Math.max(1, last - CAPACITY + 1);
+        long now = 0;
+        boolean hasEvent = false;
+        writer.print(prefix);
+        writer.println("Auth events (ms before the latest):");
+        for (long sequence = last; sequence >= first && !hasEvent; sequence--) {
+            /* find the time of the latest event that is complete */
+            int slot = (int) (sequence & MASK);
+            if (sStamps.get(slot) == sequence) {
+                now = sTimes.get(slot);
+                hasEvent = sStamps.get(slot) == sequence;
+            }
+        }
+        if (!hasEvent) {
+            return;
+        }
+        for (long sequence = first; sequence <= last; sequence++) {
+            int slot = (int) (sequence & MASK);
+            if (sStamps.get(slot) != sequence) {
+                continue;
+            }
+            long time = sTimes.get(slot);
+            int kind = sKinds.get(slot);
+            int code = sCodes.get(slot);
+            if (sStamps.get(slot) != sequence) {
+                /* overwritten while it was read */
+                continue;
+            }
+            writer.print(prefix);
+            writer.print("  -");
+            writer.print((now - time) / 1000 / 1000.0);
+            writer.print(' ');
+            writer.print(AuthMetrics.getProvider(kind >> 16 & 0xff));
+            writer.print(' ');
+            byte phase = (byte) (kind >> 8);
+            writer.print(phase != NO_PHASE ? PHASES[phase].name().toLowerCase() : "login");
+            writer.print(' ');
+            writer.print(EVENTS[kind & 0xff].name().toLowerCase());
+            if (code != 0) {
+                writer.print(" code=");
+                writer.print(code);
+            }
+            writer.println();
+        }
+    }
+
+    /**
+     * The events that are kept as text, e.g. to attach to an error report.
+     */
+    public static String getReport() {
+        StringWriter report = new StringWriter();
+        PrintWriter writer = new PrintWriter(report);
+        dump("", writer);
+        writer.flush();
+        return report.toString();
+    }
+}
@@ -0,0 +1,199 @@
+package com.firebase.samples.logindemo;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A process wide executor for the blocking network calls of the login flows (fetching provider tokens and the like).
+ * <p/>
+ * Work runs on a small, bounded thread pool. Every task is submitted on behalf of an owner, usually an Activity, and
+ * its {@link Callback} is invoked on the main thread unless the task was cancelled. The executor holds on to the owner
+ * until its tasks complete, so an owner that does not live as long as the process must call
+ * {@link #cancelAll(Object)} from its onDestroy.
+ */
+public class AuthExecutor {
+
+    private static final String TAG = AuthExecutor.class.getSimpleName();
+
+    private static final int POOL_SIZE = 3;
+
+    private static final int QUEUE_CAPACITY = 32;
+
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static AuthExecutor sInstance;
+
+    private final ThreadPoolExecutor mExecutor;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /* Tasks that have not completed yet, by owner. A task is removed as soon as it completes or is cancelled. */
+    private final Map<Object, List<AuthTask<?>>> mTasks = new HashMap<Object, List<AuthTask<?>>>();
+
+    /**
+     * Receives the result of a task on the main thread.
+     */
+    public interface Callback<T> {
+        void onResult(T result);
+
+        void onError(Exception e);
+    }
+
+    public static synchronized AuthExecutor getInstance() {
+        if (sInstance == null) {
+            sInstance = new AuthExecutor();
+        }
+        return sInstance;
+    }
+
+    private AuthExecutor() {
+        mExecutor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(QUEUE_CAPACITY), new AuthThreadFactory());
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Runs the work in the background and delivers its result to the callback on the main thread, as long as the task
+     * has not been cancelled by then.
+     */
+    public <T> AuthTask<T> submit(Object owner, Callable<T> work, Callback<T> callback) {
+        AuthTask<T> task = new AuthTask<T>(owner, work, callback);
+        synchronized (mTasks) {
+            List<AuthTask<?>> tasks = mTasks.get(owner);
+            if (tasks == null) {
+                tasks = new ArrayList<AuthTask<?>>();
+                mTasks.put(owner, tasks);
+            }
+            tasks.add(task);
+        }
+        try {
+            mExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Too many pending auth tasks, rejecting task");
+            task.reject(e);
+        }
+        return task;
+    }
+
+    /**
+     * Cancels all tasks of the given owner that have not completed yet. None of their callbacks will be invoked.
+     */
+    public void cancelAll(Object owner) {
+        List<AuthTask<?>> tasks;
+        synchronized (mTasks) {
+            tasks = mTasks.remove(owner);
+        }
+        if (tasks != null) {
+            for (AuthTask<?> task : tasks) {
+                task.cancel(true);
+            }
+        }
+    }
+
+    private void remove(AuthTask<?> task) {
+        synchronized (mTasks) {
+            List<AuthTask<?>> tasks = mTasks.get(task.mOwner);
+            if (tasks != null) {
+                tasks.remove(task);
+                if (tasks.isEmpty()) {
+                    mTasks.remove(task.mOwner);
+                }
+            }
+        }
+    }
+
+    /**
+     * A cancellable handle to a submitted task.
+     */
+    public class AuthTask<T> extends FutureTask<T> {
+
+        private final Object mOwner;
+
+        /* Cleared on cancellation so the callback (and the activity it references) can be collected */
+        private volatile Callback<T> mCallback;
+
+        private volatile Exception mRejection;
+
+        private AuthTask(Object owner, Callable<T> work, Callback<T> callback) {
+            super(work);
+            mOwner = owner;
+            mCallback = callback;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            mCallback = null;
+            return super.cancel(mayInterruptIfRunning);
+        }
+
+        private void reject(Exception e) {
+            mRejection = e;
+            done();
+        }
+
+        @Override
+        protected void done() {
+            remove(this);
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    Callback<T> callback = mCallback;
+                    mCallback = null;
+                    if (callback == null || isCancelled()) {
+                        return;
+                    }
+                    if (mRejection != null) {
+                        callback.onError(mRejection);
+                        return;
+                    }
+                    T result;
+                    try {
+                        result = get();
+                    } catch (ExecutionException e) {
+                        Throwable cause = e.getCause();
+                        callback.onError(cause instanceof Exception ? (Exception) cause : e);
+                        return;
+                    } catch (CancellationException e) {
+                        return;
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    callback.onResult(result);
+                }
+            });
+        }
+    }
+
+    private static class AuthThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "auth-executor-" + mCount.incrementAndGet());
+        }
+    }
+}
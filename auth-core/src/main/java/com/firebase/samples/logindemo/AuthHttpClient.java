@@ -0,0 +1,470 @@
+package com.firebase.samples.logindemo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A process wide HTTP client for the requests the auth code makes itself, such as the Twitter OAuth handshake. It
+ * reads every response to the end so that {@link HttpURLConnection} keeps the connection alive for the next request,
+ * and {@link #preconnect(String)} opens one ahead of a likely request. The requests of a login phase run as a
+ * {@link Call} that the phase can bound and abort.
+ * <p/>
+ * HttpURLConnection does not tell whether a request reused a connection, so the reuse is estimated from a model of its
+ * pool, and the connect times of both groups are recorded to show whether the estimate holds. Thread safe.
+ */
+public class AuthHttpClient {
+
+    /* How long Android's HttpURLConnection keeps idle connections */
+    public static final long ANDROID_KEEP_ALIVE_MS = 5 * 60 * 1000;
+
+    /* How long the JDK's HttpURLConnection keeps idle connections, unless the server asks for another time */
+    public static final long JDK_KEEP_ALIVE_MS = 5 * 1000;
+
+    /* Idle connections kept per host, as in both implementations */
+    private static final int MAX_IDLE_PER_HOST = 5;
+
+    /* The timeouts twitter4j used for the Twitter handshake, for requests that are not part of a Call */
+    private static final int CONNECT_TIMEOUT_MS = 20 * 1000;
+    private static final int READ_TIMEOUT_MS = 120 * 1000;
+
+    private static final double[] DUMPED_PERCENTILES = {50, 90, 99};
+
+    private static AuthHttpClient sInstance;
+
+    private final long mKeepAliveMs;
+
+    private final Clock mClock;
+
+    private final Executor mPreconnectExecutor;
+
+    /* The model of the connection pool: when each idle connection of a host was released, the most recent first */
+    private final Map<String, ArrayDeque<Long>> mIdle = new HashMap<String, ArrayDeque<Long>>();
+
+    /* Hosts a preconnect is in flight for, guarded by mIdle */
+    private final Set<String> mPreconnecting = new HashSet<String>();
+
+    private final AtomicLong mRequestCount = new AtomicLong();
+
+    private final AtomicLong mReusedCount = new AtomicLong();
+
+    private final AtomicLong mPreconnectCount = new AtomicLong();
+
+    private final LatencyHistogram mHandshakeLatency = new LatencyHistogram();
+
+    private final LatencyHistogram mReusedConnectLatency = new LatencyHistogram();
+
+    /**
+     * The response to a request, which has been read completely.
+     */
+    public static class Response {
+
+        private final int statusCode;
+        private final String body;
+
+        public Response(int statusCode, String body) {
+            this.statusCode = statusCode;
+            this.body = body;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public String getBody() {
+            return body;
+        }
+    }
+
+    /**
+     * The requests of one phase of a login, e.g. fetching a Twitter request token with its retries. They share the
+     * time the phase has, which bounds the connect and read timeouts of each, and can be aborted from another thread
+     * when the phase times out or is cancelled: the connection of the request under way is disconnected, which fails
+     * it right away instead of leaving it to block a thread until its timeout.
+     */
+    public static class Call {
+
+        private final long mDeadlineNanos;
+
+        /* The connection of the request under way, or null. Guarded by this. */
+        private HttpURLConnection mConnection;
+
+        private boolean mAborted;
+
+        /**
+         * @param budgetMs the time the requests have, e.g. {@link LoginDeadline#getPhaseBudgetMs}
+         */
+        public Call(long budgetMs) {
+            mDeadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMs);
+        }
+
+        /**
+         * The time the requests have left, 0 once it is used up.
+         */
+        public long getRemainingMs() {
+            return Math.max(0, TimeUnit.NANOSECONDS.toMillis(mDeadlineNanos - System.nanoTime()));
+        }
+
+        /**
+         * Disconnects the request under way, and fails the ones that follow with an {@link AbortedException}.
+         */
+        public void abort() {
+            HttpURLConnection connection;
+            synchronized (this) {
+                mAborted = true;
+                connection = mConnection;
+                mConnection = null;
+            }
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+
+        public synchronized boolean isAborted() {
+            return mAborted;
+        }
+
+        /* Makes the connection the one under way, and returns the time it has */
+        private synchronized int attach(HttpURLConnection connection) throws AbortedException {
+            if (mAborted) {
+                throw new AbortedException("The request was aborted");
+            }
+            long remaining = getRemainingMs();
+            if (remaining == 0) {
+                throw new AbortedException("The time for the request is used up");
+            }
+            mConnection = connection;
+            return (int) Math.min(remaining, Integer.MAX_VALUE);
+        }
+
+        private synchronized void detach(HttpURLConnection connection) {
+            if (mConnection == connection) {
+                mConnection = null;
+            }
+        }
+    }
+
+    /**
+     * A request was not made because its {@link Call} was aborted or ran out of time. Retrying it is pointless.
+     */
+    public static class AbortedException extends InterruptedIOException {
+
+        private static final long serialVersionUID = 1L;
+
+        public AbortedException(String message) {
+            super(message);
+        }
+    }
+
+    public static synchronized AuthHttpClient getInstance() {
+        if (sInstance == null) {
+            sInstance = new AuthHttpClient(ANDROID_KEEP_ALIVE_MS, Clock.SYSTEM, newPreconnectExecutor());
+        }
+        return sInstance;
+    }
+
+    /**
+     * @param keepAliveMs        how long the HttpURLConnection of the platform keeps idle connections
+     * @param preconnectExecutor runs the requests of {@link #preconnect(String)}
+     */
+    public AuthHttpClient(long keepAliveMs, Clock clock, Executor preconnectExecutor) {
+        mKeepAliveMs = keepAliveMs;
+        mClock = clock;
+        mPreconnectExecutor = preconnectExecutor;
+    }
+
+    /**
+     * Makes a request and reads its response. This blocks.
+     *
+     * @param body    the request body, or null for none
+     * @param headers name, value pairs of request headers
+     */
+    public Response execute(String method, String url, String body, String... headers) throws IOException {
+        return execute(null, method, url, body, headers);
+    }
+
+    /**
+     * Makes a request as part of a call, see {@link Call}, and reads its response. This blocks.
+     *
+     * @param call bounds the timeouts of the request and aborts it, or null for the default timeouts
+     */
+    public Response execute(Call call, String method, String url, String body, String... headers)
+            throws IOException {
+        mRequestCount.incrementAndGet();
+        return execute(call, method, new URL(url), true, body, headers);
+    }
+
+    /**
+     * Opens a connection to the host of the url in the background, so that the next request to it can reuse the
+     * connection. Does nothing if the host has an idle connection already or one is being opened.
+     */
+    public void preconnect(String url) {
+        final URL origin;
+        try {
+            URL parsed = new URL(url);
+            origin = new URL(parsed.getProtocol(), parsed.getHost(), parsed.getPort(), "/");
+        } catch (IOException e) {
+            return;
+        }
+        final String host = getHost(origin);
+        synchronized (mIdle) {
+            if (hasIdle(host) || !mPreconnecting.add(host)) {
+                return;
+            }
+        }
+        mPreconnectCount.incrementAndGet();
+        mPreconnectExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    /* a HEAD request has no body to read, its connection is idle as soon as the headers arrived */
+                    execute(null, "HEAD", origin, false, null);
+                } catch (IOException e) {
+                    /* the request that follows connects itself */
+                } finally {
+                    synchronized (mIdle) {
+                        mPreconnecting.remove(host);
+                    }
+                }
+            }
+        });
+    }
+
+    private Response execute(Call call, String method, URL url, boolean isRequest, String body, String... headers)
+            throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        int connectTimeout = CONNECT_TIMEOUT_MS;
+        int readTimeout = READ_TIMEOUT_MS;
+        if (call != null) {
+            int remaining = call.attach(connection);
+            connectTimeout = Math.min(connectTimeout, remaining);
+            readTimeout = Math.min(readTimeout, remaining);
+        }
+        try {
+            return execute(connection, connectTimeout, readTimeout, method, url, isRequest, body, headers);
+        } catch (IOException e) {
+            if (call != null && call.isAborted()) {
+                /* the disconnect failed the request, which says nothing about the server */
+                AbortedException aborted = new AbortedException("The request was aborted");
+                aborted.initCause(e);
+                throw aborted;
+            }
+            throw e;
+        } finally {
+            if (call != null) {
+                call.detach(connection);
+            }
+        }
+    }
+
+    private Response execute(HttpURLConnection connection, int connectTimeout, int readTimeout, String method, URL url,
+                             boolean isRequest, String body, String... headers) throws IOException {
+        String host = getHost(url);
+        boolean reused = acquire(host);
+        if (reused && isRequest) {
+            mReusedCount.incrementAndGet();
+        }
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+        connection.setInstanceFollowRedirects(false);
+        connection.setRequestMethod(method);
+        for (int i = 0; i + 1 < headers.length; i += 2) {
+            connection.setRequestProperty(headers[i], headers[i + 1]);
+        }
+        byte[] bytes = body != null ? body.getBytes("UTF-8") : null;
+        if (bytes != null) {
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(bytes.length);
+        }
+
+        long connectStart = System.nanoTime();
+        connection.connect();
+        (reused ? mReusedConnectLatency : mHandshakeLatency).record(System.nanoTime() - connectStart);
+
+        if (bytes != null) {
+            OutputStream out = connection.getOutputStream();
+            out.write(bytes);
+            out.close();
+        }
+        int status = connection.getResponseCode();
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        String response = in != null ? read(in) : "";
+        /* the connection is not disconnected, so it goes back to the pool unless the server closes it */
+        if (!"close".equalsIgnoreCase(connection.getHeaderField("Connection"))) {
+            release(host);
+        }
+        return new Response(status, response);
+    }
+
+    /* Takes an idle connection of the host from the model, returns whether there was one */
+    private boolean acquire(String host) {
+        synchronized (mIdle) {
+            if (!hasIdle(host)) {
+                return false;
+            }
+            mIdle.get(host).removeFirst();
+        }
+        return true;
+    }
+
+    private void release(String host) {
+        synchronized (mIdle) {
+            ArrayDeque<Long> idle = mIdle.get(host);
+            if (idle == null) {
+                idle = new ArrayDeque<Long>();
+                mIdle.put(host, idle);
+            }
+            if (idle.size() == MAX_IDLE_PER_HOST) {
+                idle.removeLast();
+            }
+            idle.addFirst(mClock.now());
+        }
+    }
+
+    /* Drops the expired idle connections of the host and returns whether one is left. Must hold mIdle. */
+    private boolean hasIdle(String host) {
+        ArrayDeque<Long> idle = mIdle.get(host);
+        if (idle == null) {
+            return false;
+        }
+        long now = mClock.now();
+        while (!idle.isEmpty() && now - idle.peekLast() >= mKeepAliveMs) {
+            idle.removeLast();
+        }
+        return !idle.isEmpty();
+    }
+
+    private static String getHost(URL url) {
+        int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+        return url.getProtocol() + "://" + url.getHost() + ":" + port;
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+            return out.toString("UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+
+    private static ExecutorService newPreconnectExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "AuthHttpClient-preconnect");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * The number of requests made, not counting preconnects.
+     */
+    public long getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    /**
+     * The number of requests estimated to reuse an idle connection, see the class comment.
+     */
+    public long getReusedCount() {
+        return mReusedCount.get();
+    }
+
+    public long getPreconnectCount() {
+        return mPreconnectCount.get();
+    }
+
+    /**
+     * The estimated share of requests that reused an idle connection, from 0 to 1.
+     */
+    public double getReuseRate() {
+        long requests = mRequestCount.get();
+        return requests > 0 ? (double) mReusedCount.get() / requests : 0;
+    }
+
+    /**
+     * The time it took to connect when no idle connection was estimated to be available, i.e. DNS, TCP and TLS.
+     */
+    public LatencyHistogram getHandshakeLatency() {
+        return mHandshakeLatency;
+    }
+
+    /**
+     * The time it took to connect when an idle connection was estimated to be available.
+     */
+    public LatencyHistogram getReusedConnectLatency() {
+        return mReusedConnectLatency;
+    }
+
+    public void resetStats() {
+        mRequestCount.set(0);
+        mReusedCount.set(0);
+        mPreconnectCount.set(0);
+        mHandshakeLatency.reset();
+        mReusedConnectLatency.reset();
+    }
+
+    /**
+     * Writes the estimated connection reuse and the connect latencies.
+     */
+    public void dump(String prefix, PrintWriter writer) {
+        writer.print(prefix);
+        writer.print("HTTP connections: requests=");
+        writer.print(getRequestCount());
+        writer.print(" preconnects=");
+        writer.print(getPreconnectCount());
+        writer.print(" estimated reused=");
+        writer.print(getReusedCount());
+        writer.print(" estimated reuse rate=");
+        writer.println(getReuseRate());
+        dump(prefix, "connect, estimated new", mHandshakeLatency, writer);
+        dump(prefix, "connect, estimated reused", mReusedConnectLatency, writer);
+    }
+
+    private static void dump(String prefix, String name, LatencyHistogram histogram, PrintWriter writer) {
+        if (histogram.getCount() == 0) {
+            return;
+        }
+        writer.print(prefix);
+        writer.print("  ");
+        writer.print(name);
+        writer.print(" (ms): count=");
+        writer.print(histogram.getCount());
+        for (double percentile : DUMPED_PERCENTILES) {
+            writer.print(" p");
+            writer.print((int) percentile);
+            writer.print('=');
+            writer.print(histogram.getPercentileMicros(percentile) / 1000.0);
+        }
+        writer.print(" max=");
+        writer.println(histogram.getMaxMicros() / 1000.0);
+    }
+}
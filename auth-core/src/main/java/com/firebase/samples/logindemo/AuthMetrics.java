@@ -0,0 +1,148 @@
+package com.firebase.samples.logindemo;
+
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records how long each phase of a login takes per provider, and how often it timed out, see {@link LoginDeadline}.
+ * A phase is timed from {@link #start()} to {@link #record(String, Phase, long)}, and the percentiles are dumped with
+ * <code>adb shell dumpsys activity com.firebase.samples.logindemo/.MainActivity</code>.
+ */
+public final class AuthMetrics {
+
+    /**
+     * The phases of a login.
+     */
+    public enum Phase {
+        /* Connecting the provider SDK: GoogleApiClient.connect, or fetching the Twitter request token */
+        CONNECT,
+        /* Fetching the provider token: GoogleAuthUtil.getToken, or the Twitter access token */
+        TOKEN,
+        /* Exchanging the provider token (or credentials) with Firebase, up to the AuthResultHandler callback */
+        FIREBASE
+    }
+
+    /* The providers metrics are kept for, anything else is counted as "other" */
+    private static final String[] PROVIDERS = {"facebook", "google", "twitter", "password", "anonymous", "other"};
+
+    private static final Map<String, Integer> PROVIDER_INDEX = new HashMap<String, Integer>();
+
+    static {
+        for (int i = 0; i < PROVIDERS.length - 1; i++) {
+            PROVIDER_INDEX.put(PROVIDERS[i], i);
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private static final LatencyHistogram[][] sHistograms = new LatencyHistogram[PROVIDERS.length][PHASES.length];
+
+    static {
+        for (int provider = 0; provider < PROVIDERS.length; provider++) {
+            for (int phase = 0; phase < PHASES.length; phase++) {
+                sHistograms[provider][phase] = new LatencyHistogram();
+            }
+        }
+    }
+
+    /* The timeouts by provider and phase, at index provider * PHASES.length + phase */
+    private static final AtomicLongArray sTimeouts = new AtomicLongArray(PROVIDERS.length * PHASES.length);
+
+    private static final double[] DUMPED_PERCENTILES = {50, 90, 99};
+
+    private AuthMetrics() {
+    }
+
+    /**
+     * Returns the timestamp to pass to {@link #record(String, Phase, long)} once the phase has finished.
+     */
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records that the phase of a login with the given provider, started at the given timestamp, has finished.
+     */
+    public static void record(String provider, Phase phase, long start) {
+        getHistogram(provider, phase).record(System.nanoTime() - start);
+    }
+
+    /**
+     * Records that the phase of a login with the given provider ran out of time.
+     */
+    public static void recordTimeout(String provider, Phase phase) {
+        sTimeouts.incrementAndGet(indexOf(provider) * PHASES.length + phase.ordinal());
+    }
+
+    public static long getTimeoutCount(String provider, Phase phase) {
+        return sTimeouts.get(indexOf(provider) * PHASES.length + phase.ordinal());
+    }
+
+    public static LatencyHistogram getHistogram(String provider, Phase phase) {
+        return sHistograms[indexOf(provider)][phase.ordinal()];
+    }
+
+    /**
+     * Returns the given percentile (0 to 100) of the latency of a phase in milliseconds.
+     */
+    public static double getPercentileMillis(String provider, Phase phase, double percentile) {
+        return getHistogram(provider, phase).getPercentileMicros(percentile) / 1000.0;
+    }
+
+    public static void reset() {
+        for (LatencyHistogram[] histograms : sHistograms) {
+            for (LatencyHistogram histogram : histograms) {
+                histogram.reset();
+            }
+        }
+        for (int i = 0; i < sTimeouts.length(); i++) {
+            sTimeouts.set(i, 0);
+        }
+    }
+
+    /**
+     * Writes the percentiles and timeouts of every phase that has been recorded, or timed out, at least once.
+     */
+    public static void dump(String prefix, PrintWriter writer) {
+        writer.print(prefix);
+        writer.println("Auth latencies (ms):");
+        for (int provider = 0; provider < PROVIDERS.length; provider++) {
+            for (int phase = 0; phase < PHASES.length; phase++) {
+                LatencyHistogram histogram = sHistograms[provider][phase];
+                long timeouts = sTimeouts.get(provider * PHASES.length + phase);
+                if (histogram.getCount() == 0 && timeouts == 0) {
+                    continue;
+                }
+                writer.print(prefix);
+                writer.print("  ");
+                writer.print(PROVIDERS[provider]);
+                writer.print(' ');
+                writer.print(PHASES[phase].name().toLowerCase());
+                writer.print(": count=");
+                writer.print(histogram.getCount());
+                for (double percentile : DUMPED_PERCENTILES) {
+                    writer.print(" p");
+                    writer.print((int) percentile);
+                    writer.print('=');
+                    writer.print(histogram.getPercentileMicros(percentile) / 1000.0);
+                }
+                writer.print(" max=");
+                writer.print(histogram.getMaxMicros() / 1000.0);
+                writer.print(" timeouts=");
+                writer.println(timeouts);
+            }
+        }
+    }
+
+    /* The index of the provider the metrics are kept under, shared with AuthEventLog */
+    static int indexOf(String provider) {
+        Integer index = PROVIDER_INDEX.get(provider);
+        return index != null ? index : PROVIDERS.length - 1;
+    }
+
+    static String getProvider(int index) {
+        return PROVIDERS[index];
+    }
+}
@@ -0,0 +1,56 @@
+package com.firebase.samples.logindemo;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds the option maps that are handed to {@link com.firebase.client.Firebase#authWithOAuthToken}, and decides how
+ * they are handed over for each provider.
+ * <p/>
+ * Firebase only takes the oauth_token from most providers. Twitter needs the token secret and user id as well, so its
+ * whole options map is handed over, see {@link #requiresOptions(String)}.
+ */
+public final class AuthOptions {
+
+    public static final String OAUTH_TOKEN = "oauth_token";
+    public static final String OAUTH_TOKEN_SECRET = "oauth_token_secret";
+    public static final String USER_ID = "user_id";
+    public static final String ERROR = "error";
+
+    private AuthOptions() {
+    }
+
+    /**
+     * The options for a provider that only needs an OAuth token.
+     */
+    public static Map<String, String> forToken(String token) {
+        Map<String, String> options = new HashMap<String, String>(2);
+        options.put(OAUTH_TOKEN, token);
+        return options;
+    }
+
+    /**
+     * The options for Twitter, which needs the token secret and user id besides the token.
+     */
+    public static Map<String, String> forTwitter(String token, String tokenSecret, String userId) {
+        Map<String, String> options = new HashMap<String, String>(4);
+        options.put(OAUTH_TOKEN, token);
+        options.put(OAUTH_TOKEN_SECRET, tokenSecret);
+        options.put(USER_ID, userId);
+        return options;
+    }
+
+    /**
+     * Returns the error of a failed provider login, or null if the options are good to use.
+     */
+    public static String getError(Map<String, String> options) {
+        return options.get(ERROR);
+    }
+
+    /**
+     * Whether the provider needs the whole options map passed to Firebase, rather than just the oauth_token.
+     */
+    public static boolean requiresOptions(String provider) {
+        return provider.equals("twitter");
+    }
+}
@@ -0,0 +1,97 @@
+package com.firebase.samples.logindemo;
+
+import android.app.Activity;
+import android.content.Intent;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A login provider, e.g. Facebook or Google, which runs the provider specific part of a login up to the provider token.
+ * Providers are created by the {@link AuthProviderRegistry} when first used, so subclasses must have a public
+ * no-argument constructor.
+ */
+public abstract class AuthProvider {
+
+    /**
+     * The screen that hosts the login.
+     */
+    public interface Host {
+        Activity getActivity();
+
+        /**
+         * Returns the session that Firebase logins are made with.
+         */
+        AuthSession getAuthSession();
+
+        /**
+         * Returns the provider of the session that is currently shown, or null if the user is not logged in.
+         */
+        String getSessionProvider();
+
+        void showProgress();
+
+        void hideProgress();
+
+        void showError(String message);
+
+        /**
+         * Authenticates with Firebase using the provider options, see {@link AuthOptions}.
+         */
+        void authWithFirebase(String provider, Map<String, String> options);
+
+        /**
+         * Called when the user logged out of a provider outside of the app, e.g. in the Facebook app.
+         */
+        void onProviderLoggedOut(String provider);
+    }
+
+    protected Host mHost;
+
+    /* Called again with the new host when the host is recreated, e.g. on rotation */
+    void attach(Host host) {
+        mHost = host;
+    }
+
+    public abstract String getName();
+
+    /**
+     * Starts a login with this provider, e.g. when its login button is clicked.
+     */
+    public abstract void login();
+
+    /**
+     * Logs out of the provider, after the user logged out of Firebase.
+     */
+    public void logout() {
+    }
+
+    /**
+     * Returns true if the activity result belonged to this provider.
+     */
+    public boolean onActivityResult(int requestCode, int resultCode, Intent data) {
+        return false;
+    }
+
+    /**
+     * Called when a session of this provider is shown, e.g. because it was restored on start.
+     */
+    public void onSessionShown() {
+    }
+
+    /**
+     * Returns the setup work to do ahead of a likely login with this provider, in the order it should run. The steps
+     * run on the main thread while the login screen is idle, possibly spread over several idle passes, and the later
+     * ones may be skipped, see {@link PrewarmScheduler}; so a step should be short and not depend on a later one.
+     */
+    public List<Runnable> getPrewarmSteps() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Called when the host is destroyed for good, i.e. not when it is recreated for a configuration change.
+     */
+    public void onDestroy() {
+    }
+}
@@ -0,0 +1,114 @@
+package com.firebase.samples.logindemo;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Looks up the {@link AuthProvider} for a provider name. Every auth module registers its provider class by name with a
+ * meta-data entry {@value #META_DATA_PREFIX}&lt;provider&gt; in its manifest, so a provider and its SDK are only loaded
+ * when first looked up. Every host gets its own provider instances, and attaches again after a configuration change.
+ */
+public class AuthProviderRegistry {
+
+    public static final String META_DATA_PREFIX = "com.firebase.samples.logindemo.provider.";
+
+    /* Provider class names by provider name, read from the manifest the first time they are needed */
+    private static Map<String, String> sProviderClasses;
+
+    private AuthProvider.Host mHost;
+
+    private final Map<String, AuthProvider> mProviders = new HashMap<String, AuthProvider>();
+
+    public AuthProviderRegistry(AuthProvider.Host host) {
+        mHost = host;
+    }
+
+    /**
+     * Hands the providers to a new host, e.g. the activity that was recreated after a rotation.
+     */
+    public void attach(AuthProvider.Host host) {
+        mHost = host;
+        for (AuthProvider provider : mProviders.values()) {
+            provider.attach(host);
+        }
+    }
+
+    /**
+     * Returns the names of the providers the app was built with.
+     */
+    public static Set<String> getRegistered(Context context) {
+        return new TreeSet<String>(getProviderClasses(context).keySet());
+    }
+
+    /**
+     * Whether the app was built with the provider, i.e. links its auth module.
+     */
+    public boolean isRegistered(String name) {
+        return getProviderClasses(mHost.getActivity()).containsKey(name);
+    }
+
+    /**
+     * Returns the provider with the given name, loading and creating it the first time.
+     *
+     * @throws IllegalArgumentException if there is no such provider
+     */
+    public AuthProvider get(String name) {
+        AuthProvider provider = mProviders.get(name);
+        if (provider == null) {
+            String className = getProviderClasses(mHost.getActivity()).get(name);
+            if (className == null) {
+                throw new IllegalArgumentException("Unknown provider: " + name);
+            }
+            try {
+                provider = Class.forName(className).asSubclass(AuthProvider.class).newInstance();
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException("Unable to load provider " + name, e);
+            } catch (InstantiationException e) {
+                throw new IllegalStateException("Unable to create provider " + name, e);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Unable to create provider " + name, e);
+            }
+            provider.attach(mHost);
+            mProviders.put(name, provider);
+        }
+        return provider;
+    }
+
+    /**
+     * Returns the providers that have been created so far.
+     */
+    public Collection<AuthProvider> getLoaded() {
+        return mProviders.values();
+    }
+
+    private static synchronized Map<String, String> getProviderClasses(Context context) {
+        if (sProviderClasses == null) {
+            Bundle metaData;
+            try {
+                ApplicationInfo info = context.getPackageManager().getApplicationInfo(context.getPackageName(),
+                        PackageManager.GET_META_DATA);
+                metaData = info.metaData;
+            } catch (PackageManager.NameNotFoundException e) {
+                throw new IllegalStateException("Unable to read the providers from the manifest", e);
+            }
+            Map<String, String> providerClasses = new HashMap<String, String>();
+            if (metaData != null) {
+                for (String key : metaData.keySet()) {
+                    if (key.startsWith(META_DATA_PREFIX)) {
+                        providerClasses.put(key.substring(META_DATA_PREFIX.length()), metaData.getString(key));
+                    }
+                }
+            }
+            sProviderClasses = providerClasses;
+        }
+        return sProviderClasses;
+    }
+}
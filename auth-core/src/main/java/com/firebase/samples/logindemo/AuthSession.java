@@ -0,0 +1,635 @@
+package com.firebase.samples.logindemo;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.firebase.client.AuthData;
+import com.firebase.client.Firebase;
+import com.firebase.client.FirebaseError;
+import com.firebase.samples.logindemo.core.R;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The Firebase side of the login, kept for the lifetime of the process rather than of an activity, so that recreating
+ * the {@link MainActivity} neither costs a round trip to Firebase nor drops a login that is under way. The auth state
+ * is published by {@link #getAuthStates()}, the results of logins go to the attached {@link Listener}.
+ * <p/>
+ * Identical logins in flight are coalesced, see {@link SingleFlight}, sessions are renewed before they expire, see
+ * {@link SessionRefresher}, and every login runs against a {@link LoginDeadline}. All methods must be called from the
+ * main thread.
+ */
+public class AuthSession {
+
+    private static final String TAG = AuthSession.class.getSimpleName();
+
+    /**
+     * Receives the results of logins on the main thread.
+     */
+    public interface Listener {
+        void onAuthenticated(String provider, AuthData authData);
+
+        void onAuthenticationError(String provider, FirebaseError firebaseError);
+    }
+
+    /**
+     * Logs in again with the provider of a session, before the session expires or when switching back to an account
+     * whose token has expired. A quiet renewal is not reported to the listener.
+     */
+    public interface Renewal {
+        void renew(AuthSession session, boolean quiet);
+    }
+
+    /* The key of the session refresh, see SessionRefresher */
+    private static final String REFRESH_KEY = "firebase";
+
+    private static AuthSession sInstance;
+
+    private final Firebase mFirebaseRef;
+
+    private Listener mListener;
+
+    /* The auth state as Firebase reports it, null while logged out */
+    private final StateStream<AuthData> mAuthStates = new StateStream<AuthData>();
+
+    /* Firebase logins that have not completed yet */
+    private int mAuthInProgress;
+
+    /* The logins in flight, with the callbacks of everyone who asked for them */
+    private final SingleFlight<Firebase.AuthResultHandler> mFlights = new SingleFlight<Firebase.AuthResultHandler>();
+
+    /* Results that arrived while no listener was attached, in order */
+    private final List<Result> mPendingResults = new ArrayList<Result>();
+
+    /* The keys of the flights that are renewals, and are not reported to the listener */
+    private final Set<String> mQuietFlights = new HashSet<String>();
+
+    /* How the sessions of the logins that just succeeded are renewed, by provider, until they are added to the
+     * accounts */
+    private final Map<String, Renewal> mRenewals = new HashMap<String, Renewal>();
+
+    /* The accounts that logged in recently, the Firebase token expiries are in terms of the wall clock */
+    private final AccountStore<Renewal> mAccounts = new AccountStore<Renewal>(Clock.WALL);
+
+    private final SessionRefresher mRefresher;
+
+    private final AnonymousIdentity mAnonymousIdentity;
+
+    /* Counts the logouts, so that a restore that completes after one does not log the user back in */
+    private int mLogoutCount;
+
+    /* The deadlines of the logins under way, by provider */
+    private final Map<String, LoginDeadline> mDeadlines = new HashMap<String, LoginDeadline>();
+
+    private final LoginDeadline.Listener mDeadlineListener = new LoginDeadline.Listener() {
+        @Override
+        public void onAborted(LoginDeadline deadline) {
+            endLogin(deadline);
+            /* an aborted Firebase phase fails its flight itself, see ResultHandler */
+            if (deadline.getAbortedPhase() != AuthMetrics.Phase.FIREBASE) {
+                deliver(new Result(deadline.getProvider(), null, deadline.getError()));
+            }
+        }
+    };
+
+    public static AuthSession getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new AuthSession(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private AuthSession(Context context) {
+        /* Create the Firebase ref that is used for all authentication with Firebase */
+        mFirebaseRef = new Firebase(context.getResources().getString(R.string.firebase_url));
+        mRefresher = SessionRefresher.getInstance(context);
+        mAnonymousIdentity = AnonymousIdentity.getInstance(context);
+        mFirebaseRef.addAuthStateListener(new Firebase.AuthStateListener() {
+            @Override
+            public void onAuthStateChanged(AuthData authData) {
+                scheduleRenewal(authData);
+                mAuthStates.publish(authData);
+            }
+        });
+    }
+
+    public Firebase getFirebaseRef() {
+        return mFirebaseRef;
+    }
+
+    /**
+     * The auth state, i.e. the auth data Firebase reported last or null while logged out. New subscribers are handed
+     * the current state once Firebase has reported it, which it does once per process: after that, e.g. when the
+     * activity is recreated, they do not need to wait for Firebase.
+     */
+    public StateStream<AuthData> getAuthStates() {
+        return mAuthStates;
+    }
+
+    /**
+     * Whether Firebase has reported the auth state since the process started, see {@link #getAuthData()}.
+     */
+    public boolean hasAuthState() {
+        return mAuthStates.hasState();
+    }
+
+    /**
+     * The auth data Firebase reported last, or null if the user is not logged in.
+     */
+    public AuthData getAuthData() {
+        return mAuthStates.getState();
+    }
+
+    /**
+     * Whether a Firebase login is in flight.
+     */
+    public boolean isAuthInProgress() {
+        return mAuthInProgress > 0;
+    }
+
+    /**
+     * Attaches the listener, and delivers the results that arrived while none was attached. The auth state is not
+     * delivered to the listener, see {@link #getAuthStates()}.
+     */
+    public void attach(Listener listener) {
+        mListener = listener;
+        while (mListener == listener && !mPendingResults.isEmpty()) {
+            mPendingResults.remove(0).deliver(listener);
+        }
+    }
+
+    public void detach(Listener listener) {
+        if (mListener == listener) {
+            mListener = null;
+        }
+    }
+
+    /**
+     * Authenticates with Firebase using the provider options, see {@link AuthOptions}. Once that succeeded, the
+     * session is renewed with the same options, unless the provider sets a {@link Renewal} of its own.
+     */
+    public void authWithOAuthToken(String provider, Map<String, String> options) {
+        authWithOAuthToken(provider, options, false);
+    }
+
+    /**
+     * Like {@link #authWithOAuthToken(String, Map)}, for a provider token that was refreshed in the background. The
+     * session is renewed quietly, see {@link #renewAuth(String, String, RetryingAuthHandler.Attempt, boolean)}.
+     */
+    public void renewWithOAuthToken(String provider, Map<String, String> options) {
+        authWithOAuthToken(provider, options, true);
+    }
+
+    private void authWithOAuthToken(final String provider, final Map<String, String> options, boolean quiet) {
+        /* sorted, so that the same options always result in the same credential */
+        final String credential = new TreeMap<String, String>(options).toString();
+        final RetryingAuthHandler.Attempt attempt = new RetryingAuthHandler.Attempt() {
+            @Override
+            public void run(Firebase.AuthResultHandler handler) {
+                if (AuthOptions.requiresOptions(provider)) {
+                    // if the provider is twitter, we pust pass in additional options, so use the options endpoint
+                    mFirebaseRef.authWithOAuthToken(provider, options, handler);
+                } else {
+                    // if the provider is not twitter, we just need to pass in the oauth_token
+                    mFirebaseRef.authWithOAuthToken(provider, options.get(AuthOptions.OAUTH_TOKEN), handler);
+                }
+            }
+        };
+        auth(provider, credential, attempt, new Firebase.AuthResultHandler() {
+            @Override
+            public void onAuthenticated(AuthData authData) {
+                setRenewal(provider, new Renewal() {
+                    @Override
+                    public void renew(AuthSession session, boolean quiet) {
+                        session.renewAuth(provider, credential, attempt, quiet);
+                    }
+                });
+            }
+
+            @Override
+            public void onAuthenticationError(FirebaseError firebaseError) {
+            }
+        }, quiet);
+    }
+
+    /* Password sessions are not renewed, as that would mean keeping the password around */
+    public void authWithPassword(final String email, final String password) {
+        auth("password", email + '\n' + password, new RetryingAuthHandler.Attempt() {
+            @Override
+            public void run(Firebase.AuthResultHandler handler) {
+                mFirebaseRef.authWithPassword(email, password, handler);
+            }
+        }, null);
+    }
+
+    /* Resumes the anonymous user of an earlier login if its token is still valid, see AnonymousIdentity. Anonymous
+     * sessions are not renewed, a new login after the token expired is a new anonymous user. */
+    public void authAnonymously() {
+        auth("anonymous", null, new RetryingAuthHandler.Attempt() {
+            @Override
+            public void run(Firebase.AuthResultHandler handler) {
+                mAnonymousIdentity.login(mFirebaseRef, handler);
+            }
+        }, null);
+    }
+
+    /**
+     * The anonymous account creations, and those avoided by resuming the anonymous user, for dumpsys.
+     */
+    public String getAnonymousStats() {
+        return mAnonymousIdentity.getStats();
+    }
+
+    /**
+     * Runs a Firebase login, with retries, and reports its result to the listener and the optional callback. If the
+     * same login (by provider and credential) is already in flight, no new request is made, and the callback gets the
+     * result of the one in flight. The attempt and callback must not hold on to an activity, as they may outlive it.
+     */
+    public void auth(String provider, String credential, RetryingAuthHandler.Attempt attempt,
+                     Firebase.AuthResultHandler callback) {
+        auth(provider, credential, attempt, callback, false);
+    }
+
+    /**
+     * Like {@link #auth(String, String, RetryingAuthHandler.Attempt, Firebase.AuthResultHandler)}, for a
+     * {@link Renewal}. If it is quiet, the listener only learns about the renewed session through the auth state.
+     */
+    public void renewAuth(String provider, String credential, RetryingAuthHandler.Attempt attempt, boolean quiet) {
+        auth(provider, credential, attempt, null, quiet);
+    }
+
+    /**
+     * Sets how the session of the login that is about to succeed is renewed, replacing the default of repeating the
+     * login. Called from the callback of a successful login.
+     */
+    public void setRenewal(String provider, Renewal renewal) {
+        mRenewals.put(provider, renewal);
+    }
+
+    /**
+     * Called by a {@link Renewal} that could not even start its login, e.g. because it could not get a provider token.
+     * Unless the renewal is quiet, the listener is told about it like about a failed login.
+     */
+    public void onRenewalFailed(String provider, boolean quiet, String message) {
+        Log.w(TAG, "Renewal of the " + provider + " session failed: " + message);
+        if (!quiet) {
+            deliver(new Result(provider, null, new FirebaseError(FirebaseError.PROVIDER_ERROR, message)));
+        }
+    }
+
+    /**
+     * Returns the accounts that logged in recently, the most recently used one first. The current one is included.
+     */
+    public List<AccountStore.Account<Renewal>> getAccounts() {
+        return mAccounts.getAccounts();
+    }
+
+    /**
+     * Switches to an account that logged in before, see {@link #getAccounts()}. While its Firebase token is valid,
+     * Firebase is authenticated with that token right away; otherwise it logs in again through its {@link Renewal}.
+     * The result is reported to the listener like that of any other login. Returns false if the account cannot be
+     * switched to without a login with its provider, e.g. a password login whose token expired.
+     */
+    public boolean switchTo(String key) {
+        AccountStore.Status status = mAccounts.check(key);
+        final AccountStore.Account<Renewal> account = mAccounts.get(key);
+        switch (status) {
+            case VALID:
+                Log.d(TAG, "Switching to " + key + " with its token");
+                auth(account.getProvider(), account.getToken(), withToken(account.getToken()), null, false);
+                return true;
+            case EXPIRED:
+                if (account.getRenewal() != null) {
+                    Log.d(TAG, "Switching to " + key + ", renewing its expired token");
+                    account.getRenewal().renew(this, false);
+                    return true;
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    /* Authenticates Firebase with the token of an account again without telling the listener, e.g. after an aborted
+     * login took effect anyway. Returns false if the token of the account cannot be used anymore. */
+    private boolean restore(final String key) {
+        AccountStore.Account<Renewal> account = mAccounts.get(key);
+        if (account == null || !mAccounts.isValid(account)) {
+            return false;
+        }
+        final int logoutCount = mLogoutCount;
+        auth(account.getProvider(), account.getToken(), withToken(account.getToken()),
+                new Firebase.AuthResultHandler() {
+                    @Override
+                    public void onAuthenticated(AuthData authData) {
+                        if (mLogoutCount != logoutCount) {
+                            Log.d(TAG, "Restored " + key + " after a logout, logging out again");
+                            mFirebaseRef.unauth();
+                        }
+                    }
+
+                    @Override
+                    public void onAuthenticationError(FirebaseError firebaseError) {
+                        /* the aborted login must not stay in effect */
+                        Log.w(TAG, "Restoring " + key + " failed, logging out: " + firebaseError);
+                        mFirebaseRef.unauth();
+                    }
+                }, true);
+        return true;
+    }
+
+    private RetryingAuthHandler.Attempt withToken(final String token) {
+        return new RetryingAuthHandler.Attempt() {
+            @Override
+            public void run(Firebase.AuthResultHandler handler) {
+                mFirebaseRef.authWithCustomToken(token, handler);
+            }
+        };
+    }
+
+    /**
+     * The outcomes of the account switches so far, for dumpsys.
+     */
+    public String getAccountStats() {
+        return mAccounts.size() + " accounts, switches: " + mAccounts.getValidCount() + " with a valid token, "
+                + mAccounts.getExpiredCount() + " expired, " + mAccounts.getUnknownCount() + " unknown, "
+                + mAccounts.getEvictedCount() + " evicted";
+    }
+
+    private void auth(String provider, String credential, RetryingAuthHandler.Attempt attempt,
+                      Firebase.AuthResultHandler callback, boolean quiet) {
+        String key = SingleFlight.key(provider, credential);
+        if (!mFlights.join(key, callback)) {
+            if (!quiet && mQuietFlights.remove(key)) {
+                /* a login joined a renewal, so its result is reported after all */
+                mAuthInProgress++;
+            }
+            AuthEventLog.record(provider, AuthEventLog.Event.JOINED, 0);
+            return;
+        }
+        if (quiet) {
+            mQuietFlights.add(key);
+        } else {
+            mAuthInProgress++;
+        }
+        AuthEventLog.record(provider, AuthEventLog.Event.START, 0);
+        /* renewals run in the background, only the logins the user waits for have a deadline */
+        LoginDeadline deadline = quiet ? null : getDeadline(provider);
+        ResultHandler handler = new ResultHandler(provider, key, deadline);
+        if (deadline != null) {
+            deadline.startPhase(AuthMetrics.Phase.FIREBASE, handler.abort);
+        }
+        /* the retries of a login are dropped with its deadline */
+        RetryingAuthHandler.auth(deadline != null ? deadline : this, provider, attempt, handler);
+    }
+
+    private void scheduleRenewal(AuthData authData) {
+        /* Firebase reports the expiry in seconds, 0 if the session does not expire */
+        if (authData == null || authData.getExpires() <= 0) {
+            mRefresher.cancel(REFRESH_KEY);
+            return;
+        }
+        final String provider = authData.getProvider();
+        final String key = AccountStore.key(provider, authData.getUid());
+        mRefresher.schedule(REFRESH_KEY, authData.getExpires() * 1000, new RefreshScheduler.Task() {
+            @Override
+            public void refresh() {
+                AccountStore.Account<Renewal> account = mAccounts.get(key);
+                Renewal renewal = account != null ? account.getRenewal() : null;
+                if (renewal != null) {
+                    Log.d(TAG, "Renewing the " + provider + " session");
+                    renewal.renew(AuthSession.this, true);
+                } else {
+                    Log.d(TAG, "The " + provider + " session cannot be renewed, it ends when it expires");
+                }
+            }
+        });
+    }
+
+    /**
+     * Starts the deadline of a login with the provider, e.g. when its login button is clicked. A login that joins one
+     * that waits on a backend shares its deadline.
+     */
+    public LoginDeadline startLogin(String provider) {
+        LoginDeadline deadline = mDeadlines.get(provider);
+        if (deadline != null && deadline.isInPhase()) {
+            return deadline;
+        }
+        if (deadline != null) {
+            /* the previous login with the provider ended while the user was in the provider's UI */
+            deadline.finish();
+        }
+        deadline = new LoginDeadline(provider, mDeadlineListener);
+        mDeadlines.put(provider, deadline);
+        return deadline;
+    }
+
+    /**
+     * Returns the deadline of the login under way with the provider, for its phases to run against. Starts one if
+     * there is none.
+     */
+    public LoginDeadline getDeadline(String provider) {
+        LoginDeadline deadline = mDeadlines.get(provider);
+        return deadline != null && !deadline.isDone() ? deadline : startLogin(provider);
+    }
+
+    /**
+     * Cancels the logins that wait on a backend, e.g. because the user dismissed the progress dialog. They fail with
+     * {@link FirebaseError#DENIED_BY_USER}.
+     */
+    public void cancelLogins() {
+        for (LoginDeadline deadline : new ArrayList<LoginDeadline>(mDeadlines.values())) {
+            if (deadline.isInPhase()) {
+                deadline.cancel();
+            } else {
+                endLogin(deadline);
+            }
+        }
+    }
+
+    private void endLogin(LoginDeadline deadline) {
+        deadline.finish();
+        if (mDeadlines.get(deadline.getProvider()) == deadline) {
+            mDeadlines.remove(deadline.getProvider());
+        }
+    }
+
+    /**
+     * The number of logins that joined one in flight instead of making a request of their own.
+     */
+    public long getCoalescedCount() {
+        return mFlights.getCoalescedCount();
+    }
+
+    /**
+     * Logs out, and forgets the account that was logged in.
+     */
+    public void unauth() {
+        mLogoutCount++;
+        mRenewals.clear();
+        AuthData authData = mAuthStates.getState();
+        if (authData != null) {
+            mAccounts.remove(AccountStore.key(authData.getProvider(), authData.getUid()));
+        }
+        mFirebaseRef.unauth();
+    }
+
+    /* Adds the account of a successful login, keeping how it is renewed if the login did not say */
+    private void rememberAccount(String provider, AuthData authData) {
+        String key = AccountStore.key(provider, authData.getUid());
+        Renewal renewal = mRenewals.remove(provider);
+        AccountStore.Account<Renewal> previous = mAccounts.get(key);
+        if (renewal == null && previous != null) {
+            renewal = previous.getRenewal();
+        }
+        String displayName = DisplayNames.resolve(provider, authData.getUid(), authData.getProviderData());
+        mAccounts.put(new AccountStore.Account<Renewal>(provider, authData.getUid(), displayName,
+                authData.getToken(), authData.getExpires() * 1000, renewal));
+    }
+
+    private void onResult(String key, Result result) {
+        if (mQuietFlights.remove(key)) {
+            Log.d(TAG, "Renewal of the " + result.provider + " session "
+                    + (result.error != null ? "failed: " + result.error.getMessage() : "succeeded"));
+            return;
+        }
+        mAuthInProgress--;
+        deliver(result);
+    }
+
+    private void deliver(Result result) {
+        if (mListener != null) {
+            result.deliver(mListener);
+        } else {
+            Log.d(TAG, result.provider + " login finished while detached, delivering it later");
+            mPendingResults.add(result);
+        }
+    }
+
+    private static class Result {
+        final String provider;
+        final AuthData authData;
+        final FirebaseError error;
+
+        Result(String provider, AuthData authData, FirebaseError error) {
+            this.provider = provider;
+            this.authData = authData;
+            this.error = error;
+        }
+
+        void deliver(Listener listener) {
+            if (error != null) {
+                listener.onAuthenticationError(provider, error);
+            } else {
+                listener.onAuthenticated(provider, authData);
+            }
+        }
+    }
+
+    /**
+     * Utility class for authentication results
+     */
+    private class ResultHandler implements Firebase.AuthResultHandler {
+
+        private final String provider;
+
+        private final String key;
+
+        /* The deadline of the login, or null for a renewal */
+        private final LoginDeadline deadline;
+
+        /* The handler is created when the Firebase request is made, so this times the Firebase exchange */
+        private final long start = AuthMetrics.start();
+
+        /* The account that was logged in when the login was made, or null, which an aborted login goes back to */
+        private final String previousKey;
+
+        /* Whether the deadline aborted the login, which already failed then */
+        private boolean aborted;
+
+        /* Fails the login when the Firebase phase times out or the user cancels it */
+        final Runnable abort = new Runnable() {
+            @Override
+            public void run() {
+                aborted = true;
+                RetryingAuthHandler.cancelAll(deadline);
+                fail(deadline.getError());
+            }
+        };
+
+        ResultHandler(String provider, String key, LoginDeadline deadline) {
+            this.provider = provider;
+            this.key = key;
+            this.deadline = deadline;
+            AuthData previous = mAuthStates.getState();
+            this.previousKey = previous != null ? AccountStore.key(previous.getProvider(), previous.getUid()) : null;
+        }
+
+        @Override
+        public void onAuthenticated(AuthData authData) {
+            if (aborted) {
+                /* Firebase cannot abort a login, but the user was told it failed, so it must not take effect */
+                restorePreviousAuth(authData);
+                return;
+            }
+            if (deadline != null) {
+                endLogin(deadline);
+            }
+            AuthMetrics.record(provider, AuthMetrics.Phase.FIREBASE, start);
+            AuthEventLog.record(provider, AuthMetrics.Phase.FIREBASE, AuthEventLog.Event.SUCCESS, 0);
+            for (Firebase.AuthResultHandler callback : mFlights.complete(key)) {
+                if (callback != null) {
+                    callback.onAuthenticated(authData);
+                }
+            }
+            rememberAccount(provider, authData);
+            onResult(key, new Result(provider, authData, null));
+        }
+
+        @Override
+        public void onAuthenticationError(FirebaseError firebaseError) {
+            if (aborted) {
+                return;
+            }
+            if (deadline != null) {
+                endLogin(deadline);
+            }
+            AuthMetrics.record(provider, AuthMetrics.Phase.FIREBASE, start);
+            AuthEventLog.record(provider, AuthMetrics.Phase.FIREBASE, AuthEventLog.Event.ERROR,
+                    firebaseError.getCode());
+            fail(firebaseError);
+        }
+
+        /* Goes back to the account that was logged in before the aborted login, or logs out if there was none. The
+         * listener was told that the login failed, so it is not told about the restore. */
+        private void restorePreviousAuth(AuthData authData) {
+            if (previousKey == null) {
+                Log.d(TAG, "The " + provider + " login succeeded after it was aborted, logging out again");
+                mFirebaseRef.unauth();
+            } else if (previousKey.equals(AccountStore.key(authData.getProvider(), authData.getUid()))) {
+                Log.d(TAG, "The " + provider + " login succeeded after it was aborted, for the same account");
+            } else if (restore(previousKey)) {
+                Log.d(TAG, "The " + provider + " login succeeded after it was aborted, switching back");
+            } else {
+                Log.d(TAG, "The " + provider + " login succeeded after it was aborted, and " + previousKey
+                        + " cannot be switched back to, logging out");
+                mFirebaseRef.unauth();
+            }
+        }
+
+        private void fail(FirebaseError firebaseError) {
+            for (Firebase.AuthResultHandler callback : mFlights.complete(key)) {
+                if (callback != null) {
+                    callback.onAuthenticationError(firebaseError);
+                }
+            }
+            onResult(key, new Result(provider, null, firebaseError));
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.firebase.samples.logindemo;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stops sending login requests to a provider whose backend keeps failing, so a login fails right away instead of
+ * holding the progress dialog open for a round of doomed retries. After {@link #FAILURE_THRESHOLD} transient failures
+ * in a row the breaker rejects requests for {@link #OPEN_MILLIS}, then lets a single trial through, which closes it
+ * again or keeps it open for another period. There is one thread safe breaker per provider.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /* Consecutive transient failures after which the breaker opens */
+    public static final int FAILURE_THRESHOLD = 5;
+
+    /* How long an open breaker rejects requests before it lets a trial request through */
+    public static final long OPEN_MILLIS = 30 * 1000;
+
+    private static final Map<String, CircuitBreaker> sBreakers = new HashMap<String, CircuitBreaker>();
+
+    private final String mName;
+
+    private final int mFailureThreshold;
+
+    private final long mOpenMillis;
+
+    private final Clock mClock;
+
+    private State mState = State.CLOSED;
+
+    private int mConsecutiveFailures;
+
+    /* When the breaker last opened, according to mClock */
+    private long mOpenedAt;
+
+    /* When the trial request of the half open breaker was let through, according to mClock */
+    private long mTrialStartedAt;
+
+    private long mRejectedCount;
+
+    /**
+     * Thrown instead of making a request while the breaker is open.
+     */
+    public static class OpenException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        public OpenException(String name) {
+            super(name + " is temporarily unavailable, try again later");
+        }
+    }
+
+    /**
+     * Returns the breaker of the given provider.
+     */
+    public static CircuitBreaker forProvider(String provider) {
+        synchronized (sBreakers) {
+            CircuitBreaker breaker = sBreakers.get(provider);
+            if (breaker == null) {
+                breaker = new CircuitBreaker(provider, FAILURE_THRESHOLD, OPEN_MILLIS, Clock.SYSTEM);
+                sBreakers.put(provider, breaker);
+            }
+            return breaker;
+        }
+    }
+
+    public CircuitBreaker(String name, int failureThreshold, long openMillis, Clock clock) {
+        mName = name;
+        mFailureThreshold = failureThreshold;
+        mOpenMillis = openMillis;
+        mClock = clock;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * Returns whether a request may be made now. Every permitted request should be followed by a call to
+     * {@link #onSuccess()} or {@link #onFailure()}, a trial request that is not is given up on after the open period.
+     */
+    public synchronized boolean allowRequest() {
+        long now = mClock.now();
+        switch (mState) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (now - mOpenedAt >= mOpenMillis) {
+                    /* let a single trial request through */
+                    mState = State.HALF_OPEN;
+                    mTrialStartedAt = now;
+                    return true;
+                }
+                break;
+            case HALF_OPEN:
+                if (now - mTrialStartedAt >= mOpenMillis) {
+                    /* the trial request never reported back, let another one through */
+                    mTrialStartedAt = now;
+                    return true;
+                }
+                break;
+        }
+        /* open, or half open with the trial request still in flight */
+        mRejectedCount++;
+        return false;
+    }
+
+    /**
+     * Like {@link #allowRequest()}, but throws an {@link OpenException} if the request is rejected.
+     */
+    public void checkRequest() throws OpenException {
+        if (!allowRequest()) {
+            throw new OpenException(mName);
+        }
+    }
+
+    /**
+     * Records that a request went through, or failed with an error that was not transient.
+     */
+    public synchronized void onSuccess() {
+        mConsecutiveFailures = 0;
+        mState = State.CLOSED;
+    }
+
+    /**
+     * Records that a request failed with a transient error.
+     */
+    public synchronized void onFailure() {
+        mConsecutiveFailures++;
+        if (mState == State.HALF_OPEN || mConsecutiveFailures >= mFailureThreshold) {
+            mState = State.OPEN;
+            mOpenedAt = mClock.now();
+        }
+    }
+
+    public synchronized State getState() {
+        return mState;
+    }
+
+    /**
+     * The number of requests that were rejected since the breaker was created.
+     */
+    public synchronized long getRejectedCount() {
+        return mRejectedCount;
+    }
+}
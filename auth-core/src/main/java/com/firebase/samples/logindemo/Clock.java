@@ -0,0 +1,33 @@
+package com.firebase.samples.logindemo;
+
+/**
+ * A millisecond clock, so that time dependent logic can be driven by a fake clock in tests and benchmarks, e.g. a
+ * {@link CircuitBreaker} through its open period.
+ */
+public interface Clock {
+
+    /**
+     * The system's monotonic clock. Only differences between its readings are meaningful.
+     */
+    Clock SYSTEM = new Clock() {
+        @Override
+        public long now() {
+            return System.nanoTime() / 1000000;
+        }
+    };
+
+    /**
+     * The wall clock, in milliseconds since the epoch, for absolute times such as the expiry of a token.
+     */
+    Clock WALL = new Clock() {
+        @Override
+        public long now() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    /**
+     * Returns the current time in milliseconds.
+     */
+    long now();
+}
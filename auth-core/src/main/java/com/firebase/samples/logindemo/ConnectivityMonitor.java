@@ -0,0 +1,85 @@
+package com.firebase.samples.logindemo;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tells whether the device is online, and notifies listeners when it comes back online.
+ * <p/>
+ * The connectivity broadcast is only listened for while there are listeners. All methods must be called from the main
+ * thread, listeners are called on the main thread as well.
+ */
+public class ConnectivityMonitor {
+
+    /**
+     * Notified when the network becomes available again.
+     */
+    public interface Listener {
+        void onConnected();
+    }
+
+    private static ConnectivityMonitor sInstance;
+
+    private final Context mContext;
+
+    private final ConnectivityManager mConnectivityManager;
+
+    private final List<Listener> mListeners = new ArrayList<Listener>();
+
+    private boolean mConnected;
+
+    private final BroadcastReceiver mReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            boolean wasConnected = mConnected;
+            mConnected = isConnected();
+            if (mConnected && !wasConnected) {
+                /* copy, listeners may unregister themselves */
+                for (Listener listener : new ArrayList<Listener>(mListeners)) {
+                    listener.onConnected();
+                }
+            }
+        }
+    };
+
+    public static ConnectivityMonitor getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ConnectivityMonitor(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private ConnectivityMonitor(Context context) {
+        mContext = context;
+        mConnectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+    }
+
+    /**
+     * Whether there is a network connection right now.
+     */
+    public boolean isConnected() {
+        NetworkInfo networkInfo = mConnectivityManager.getActiveNetworkInfo();
+        return networkInfo != null && networkInfo.isConnected();
+    }
+
+    public void addListener(Listener listener) {
+        if (mListeners.isEmpty()) {
+            mConnected = isConnected();
+            mContext.registerReceiver(mReceiver, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+        }
+        mListeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        if (mListeners.remove(listener) && mListeners.isEmpty()) {
+            mContext.unregisterReceiver(mReceiver);
+        }
+    }
+}
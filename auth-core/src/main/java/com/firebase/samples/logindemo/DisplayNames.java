@@ -0,0 +1,37 @@
+package com.firebase.samples.logindemo;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Resolves the name that is shown for an authenticated user: the display name in the provider data of the social
+ * providers, or the uid of anonymous and email & password users, who have no name.
+ */
+public final class DisplayNames {
+
+    /* Whether a provider reports a display name (true) or the uid has to be shown instead (false) */
+    private static final Map<String, Boolean> USES_DISPLAY_NAME = new HashMap<String, Boolean>();
+
+    static {
+        USES_DISPLAY_NAME.put("facebook", true);
+        USES_DISPLAY_NAME.put("google", true);
+        USES_DISPLAY_NAME.put("twitter", true);
+        USES_DISPLAY_NAME.put("anonymous", false);
+        USES_DISPLAY_NAME.put("password", false);
+    }
+
+    private DisplayNames() {
+    }
+
+    /**
+     * Returns the name to show for a user of the given provider, or null if the provider is unknown. Social providers
+     * report a display name, for the others the uid is all there is.
+     */
+    public static String resolve(String provider, String uid, Map<String, Object> providerData) {
+        Boolean usesDisplayName = USES_DISPLAY_NAME.get(provider);
+        if (usesDisplayName == null) {
+            return null;
+        }
+        return usesDisplayName ? (String) providerData.get("displayName") : uid;
+    }
+}
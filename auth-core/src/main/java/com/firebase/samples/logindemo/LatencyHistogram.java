@@ -0,0 +1,109 @@
+package com.firebase.samples.logindemo;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size, thread safe histogram of latencies in microseconds, which does not allocate when recording. Every power
+ * of two is split into 32 buckets, about 3% wide, up to a little over four minutes, and percentiles are interpolated
+ * within their bucket.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /* Latencies of 2^(MAX_EXPONENT + 1) microseconds and more end up in the last bucket */
+    private static final int MAX_EXPONENT = 27;
+
+    private static final int BUCKETS = SUB_BUCKETS * (MAX_EXPONENT - SUB_BUCKET_BITS + 2);
+
+    private final AtomicLongArray mCounts = new AtomicLongArray(BUCKETS);
+
+    private final AtomicLong mCount = new AtomicLong();
+
+    private final AtomicLong mMaxMicros = new AtomicLong();
+
+    /**
+     * Records a latency given in nanoseconds.
+     */
+    public void record(long nanos) {
+        long micros = nanos < 0 ? 0 : nanos / 1000;
+        mCounts.incrementAndGet(bucketIndex(micros));
+        mCount.incrementAndGet();
+        long max = mMaxMicros.get();
+        while (micros > max && !mMaxMicros.compareAndSet(max, micros)) {
+            max = mMaxMicros.get();
+        }
+    }
+
+    public long getCount() {
+        return mCount.get();
+    }
+
+    public long getMaxMicros() {
+        return mMaxMicros.get();
+    }
+
+    /**
+     * Returns the latency in microseconds below which the given percentage (0 to 100) of the recorded latencies fall,
+     * or 0 if nothing has been recorded yet.
+     */
+    public long getPercentileMicros(double percentile) {
+        long count = mCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long inBucket = mCounts.get(i);
+            if (seen + inBucket >= target) {
+                /* assume the latencies in the bucket are spread evenly over it */
+                long lower = bucketLowerBound(i);
+                long width = bucketUpperBound(i) - lower + 1;
+                long micros = lower + width * (target - seen) / inBucket - 1;
+                return Math.min(Math.max(micros, lower), mMaxMicros.get());
+            }
+            seen += inBucket;
+        }
+        return mMaxMicros.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            mCounts.set(i, 0);
+        }
+        mCount.set(0);
+        mMaxMicros.set(0);
+    }
+
+    static int bucketIndex(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int subBucket = (int) (micros >> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS * (exponent - SUB_BUCKET_BITS + 1) + subBucket;
+    }
+
+    /* The smallest latency that is counted in the given bucket */
+    static long bucketLowerBound(int index) {
+        return index == 0 ? 0 : bucketUpperBound(index - 1) + 1;
+    }
+
+    /* The largest latency that is counted in the given bucket */
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int subBucket = index % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (1L << exponent) + (subBucket + 1) * width - 1;
+    }
+}
@@ -0,0 +1,185 @@
+package com.firebase.samples.logindemo;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.firebase.client.FirebaseError;
+
+/**
+ * The time a login may take, and the handle to cancel it. Every phase that waits on a backend runs between
+ * {@link #startPhase} and {@link #endPhase()} with a budget of its own, while all phases together have
+ * {@link #LOGIN_BUDGET_MS}. A phase that times out or is cancelled is aborted, and the login fails with
+ * {@link #getError()}. All methods must be called from the main thread.
+ */
+public class LoginDeadline {
+
+    /* The time all phases of a login may take together */
+    public static final long LOGIN_BUDGET_MS = 60 * 1000;
+
+    /* The time each phase may take, by AuthMetrics.Phase ordinal: connecting, the provider token and Firebase */
+    private static final long[] PHASE_BUDGETS_MS = {15 * 1000, 20 * 1000, 20 * 1000};
+
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Fails the login once its deadline was aborted.
+     */
+    public interface Listener {
+        void onAborted(LoginDeadline deadline);
+    }
+
+    private final String mProvider;
+
+    private final Listener mListener;
+
+    /* The budget the phases that have not run yet have left */
+    private long mRemainingMs = LOGIN_BUDGET_MS;
+
+    /* The phase under way and how to abort it, or null between phases */
+    private AuthMetrics.Phase mPhase;
+    private Runnable mAbortPhase;
+    private long mPhaseStartedAt;
+
+    /* The phase the login was aborted in, or null if it was aborted between phases */
+    private AuthMetrics.Phase mAbortedPhase;
+
+    private boolean mDone;
+
+    private boolean mCancelled;
+
+    private boolean mTimedOut;
+
+    private final Runnable mExpire = new Runnable() {
+        @Override
+        public void run() {
+            expire();
+        }
+    };
+
+    public LoginDeadline(String provider, Listener listener) {
+        mProvider = provider;
+        mListener = listener;
+    }
+
+    public String getProvider() {
+        return mProvider;
+    }
+
+    /**
+     * Starts a phase of the login, which times out after its budget or the budget the login has left, whichever is
+     * less. Ends the phase under way, if any.
+     *
+     * @param abort stops the work of the phase if it times out or the login is cancelled, e.g. cancels its background
+     *              task. Failing the login is up to the {@link Listener}.
+     */
+    public void startPhase(AuthMetrics.Phase phase, Runnable abort) {
+        if (mDone) {
+            return;
+        }
+        endPhase();
+        mPhase = phase;
+        mAbortPhase = abort;
+        mPhaseStartedAt = SystemClock.uptimeMillis();
+        sMainHandler.postAtTime(mExpire, this, mPhaseStartedAt + getPhaseBudgetMs(phase));
+    }
+
+    /**
+     * The time a phase that starts now has, i.e. its own budget or the budget the login has left, whichever is less.
+     * The work of the phase can bound its timeouts by it, see {@link AuthHttpClient.Call}.
+     */
+    public long getPhaseBudgetMs(AuthMetrics.Phase phase) {
+        return Math.min(PHASE_BUDGETS_MS[phase.ordinal()], mRemainingMs);
+    }
+
+    /**
+     * Ends the phase under way, e.g. because its backend answered or the login now waits for the user.
+     */
+    public void endPhase() {
+        if (mPhase == null) {
+            return;
+        }
+        sMainHandler.removeCallbacksAndMessages(this);
+        mRemainingMs = Math.max(0, mRemainingMs - (SystemClock.uptimeMillis() - mPhaseStartedAt));
+        mPhase = null;
+        mAbortPhase = null;
+    }
+
+    /**
+     * Whether a phase is under way, i.e. the login waits on a backend.
+     */
+    public boolean isInPhase() {
+        return mPhase != null;
+    }
+
+    /**
+     * Ends the deadline once the login succeeded or failed by itself.
+     */
+    public void finish() {
+        endPhase();
+        mDone = true;
+    }
+
+    /**
+     * Cancels the login on behalf of the user, aborting the phase under way.
+     */
+    public void cancel() {
+        if (mDone) {
+            return;
+        }
+        mCancelled = true;
+        AuthEventLog.record(mProvider, mPhase, AuthEventLog.Event.CANCELLED, 0);
+        abort();
+    }
+
+    private void expire() {
+        mTimedOut = true;
+        AuthMetrics.recordTimeout(mProvider, mPhase);
+        AuthEventLog.record(mProvider, mPhase, AuthEventLog.Event.TIMEOUT, 0);
+        abort();
+    }
+
+    private void abort() {
+        Runnable abortPhase = mAbortPhase;
+        mAbortedPhase = mPhase;
+        endPhase();
+        mDone = true;
+        if (abortPhase != null) {
+            abortPhase.run();
+        }
+        mListener.onAborted(this);
+    }
+
+    /**
+     * Whether the login ended, by itself or because it was aborted.
+     */
+    public boolean isDone() {
+        return mDone;
+    }
+
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    public boolean isTimedOut() {
+        return mTimedOut;
+    }
+
+    /**
+     * The phase the login was aborted in, or null if it was not aborted or was cancelled between phases.
+     */
+    public AuthMetrics.Phase getAbortedPhase() {
+        return mAbortedPhase;
+    }
+
+    /**
+     * The error an aborted login fails with.
+     */
+    public FirebaseError getError() {
+        if (mCancelled) {
+            return new FirebaseError(FirebaseError.DENIED_BY_USER, "The " + mProvider + " login was cancelled");
+        }
+        return new FirebaseError(FirebaseError.NETWORK_ERROR, "The " + mProvider + " login timed out"
+                + (mAbortedPhase != null ? " in the " + mAbortedPhase.name().toLowerCase() + " phase" : ""));
+    }
+}
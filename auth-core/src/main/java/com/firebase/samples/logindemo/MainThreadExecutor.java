@@ -0,0 +1,36 @@
+package com.firebase.samples.logindemo;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Runs tasks on the main thread: right away if called from the main thread, posted to it otherwise. For subscribers of
+ * a {@link StateStream} that update the UI.
+ */
+public final class MainThreadExecutor implements Executor {
+
+    private static MainThreadExecutor sInstance;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    public static synchronized MainThreadExecutor getInstance() {
+        if (sInstance == null) {
+            sInstance = new MainThreadExecutor();
+        }
+        return sInstance;
+    }
+
+    private MainThreadExecutor() {
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            command.run();
+        } else {
+            mHandler.post(command);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.firebase.samples.logindemo;
+
+import java.io.PrintWriter;
+
+/**
+ * Measures how long the auth callbacks take on the main thread and flags every one over a budget, with the
+ * {@link Step} it spent the most time in, so that dropped frames after a login can be traced to their cause. Off
+ * unless {@link #enable(long, Listener)} is called. The state is static and unsynchronized: callbacks must begin and
+ * end on the main thread.
+ */
+public final class MainThreadWatchdog {
+
+    /**
+     * The auth callbacks that run on the main thread.
+     */
+    public enum Callback {
+        /* A login succeeded, see AuthSession.Listener */
+        AUTHENTICATED,
+        /* A login failed, see AuthSession.Listener */
+        AUTHENTICATION_ERROR,
+        /* Firebase reported a new auth state, see AuthSession#getAuthStates() */
+        AUTH_STATE,
+        /* A provider activity returned its result, see AuthProvider#onActivityResult */
+        ACTIVITY_RESULT,
+        /* The session of an auth state was resolved in the background, and is rendered */
+        SESSION_RESOLVED
+    }
+
+    /**
+     * The steps of a callback, which the time it takes is blamed on.
+     */
+    public enum Step {
+        /* The provider handling the result of its SDK, e.g. the Facebook CallbackManager */
+        PROVIDER,
+        /* Reading the provider data of the auth data, e.g. to resolve the display name */
+        PROVIDER_DATA,
+        /* Saving the session snapshot, see SessionCache */
+        SESSION_CACHE,
+        /* Updating the views and invalidating the options menu */
+        UI,
+        /* Anything before the first step is marked */
+        OTHER
+    }
+
+    /**
+     * Is handed the callbacks that took longer than the budget.
+     */
+    public interface Listener {
+        /**
+         * @param step   the step the callback spent the most time in
+         * @param report how long the callback and each of its steps took, for the log
+         */
+        void onOverBudget(Callback callback, Step step, String report);
+    }
+
+    private static final Callback[] CALLBACKS = Callback.values();
+
+    private static final Step[] STEPS = Step.values();
+
+    /* The budget of a callback, or 0 while the watchdog is off */
+    private static long sBudgetNanos;
+
+    private static Listener sListener;
+
+    /* The callback under way, or null, and the thread it runs on */
+    private static Callback sCallback;
+    private static Thread sThread;
+
+    private static Step sStep;
+
+    private static long sStartedAt;
+
+    private static long sStepStartedAt;
+
+    /* The time the callback under way spent in each step, by Step ordinal */
+    private static final long[] sStepNanos = new long[STEPS.length];
+
+    /* By Callback ordinal */
+    private static final long[] sCalls = new long[CALLBACKS.length];
+    private static final long[] sOverBudget = new long[CALLBACKS.length];
+    private static final long[] sMaxNanos = new long[CALLBACKS.length];
+
+    /* The callbacks over the budget by Callback and Step ordinal, by the step they were blamed on */
+    private static final long[][] sBlamed = new long[CALLBACKS.length][STEPS.length];
+
+    private MainThreadWatchdog() {
+    }
+
+    /**
+     * Starts timing the auth callbacks.
+     *
+     * @param budgetMs the time a callback may take on the main thread before it is flagged, e.g. 8ms for half a frame
+     * @param listener is handed the callbacks over the budget, or null to only count them
+     */
+    public static void enable(long budgetMs, Listener listener) {
+        if (budgetMs <= 0) {
+            throw new IllegalArgumentException("The budget must be positive: " + budgetMs);
+        }
+        sBudgetNanos = budgetMs * 1000000;
+        sListener = listener;
+    }
+
+    /**
+     * Stops timing the auth callbacks, the counts so far are kept.
+     */
+    public static void disable() {
+        sBudgetNanos = 0;
+        sListener = null;
+        sCallback = null;
+        sThread = null;
+    }
+
+    public static boolean isEnabled() {
+        return sBudgetNanos > 0;
+    }
+
+    /**
+     * Starts timing a callback, unless the watchdog is off or another callback is timed already.
+     *
+     * @return whether the callback is timed, to be passed to {@link #end(boolean)}
+     */
+    public static boolean begin(Callback callback) {
+        if (sBudgetNanos == 0 || sCallback != null) {
+            return false;
+        }
+        sCallback = callback;
+        sThread = Thread.currentThread();
+        sStep = Step.OTHER;
+        for (int i = 0; i < sStepNanos.length; i++) {
+            sStepNanos[i] = 0;
+        }
+        sStartedAt = System.nanoTime();
+        sStepStartedAt = sStartedAt;
+        return true;
+    }
+
+    /**
+     * Marks the step the callback under way is in from now on. Does nothing if no callback is timed, or when called
+     * from another thread, e.g. by code that is shared with a background task.
+     */
+    public static void step(Step step) {
+        if (sCallback == null || sThread != Thread.currentThread()) {
+            return;
+        }
+        long now = System.nanoTime();
+        sStepNanos[sStep.ordinal()] += now - sStepStartedAt;
+        sStep = step;
+        sStepStartedAt = now;
+    }
+
+    /**
+     * Ends timing the callback, and flags it if it took longer than the budget.
+     *
+     * @param began what {@link #begin(Callback)} returned
+     */
+    public static void end(boolean began) {
+        Callback callback = sCallback;
+        if (!began || callback == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        sStepNanos[sStep.ordinal()] += now - sStepStartedAt;
+        sCallback = null;
+        sThread = null;
+        long took = now - sStartedAt;
+        int index = callback.ordinal();
+        sCalls[index]++;
+        if (took > sMaxNanos[index]) {
+            sMaxNanos[index] = took;
+        }
+        if (took <= sBudgetNanos) {
+            return;
+        }
+        Step blamed = Step.OTHER;
+        for (Step step : STEPS) {
+            if (sStepNanos[step.ordinal()] > sStepNanos[blamed.ordinal()]) {
+                blamed = step;
+            }
+        }
+        sOverBudget[index]++;
+        sBlamed[index][blamed.ordinal()]++;
+        Listener listener = sListener;
+        if (listener != null) {
+            listener.onOverBudget(callback, blamed, report(callback, took));
+        }
+    }
+
+    /* E.g. "authenticated took 23.1ms, over the budget of 8ms: provider_data=15.2 session_cache=6.8 ui=1.1" */
+    private static String report(Callback callback, long took) {
+        StringBuilder report = new StringBuilder();
+        report.append(callback.name().toLowerCase()).append(" took ").append(took / 1000 / 1000.0)
+                .append("ms, over the budget of ").append(sBudgetNanos / 1000000).append("ms:");
+        for (Step step : STEPS) {
+            long nanos = sStepNanos[step.ordinal()];
+            if (nanos > 0) {
+                report.append(' ').append(step.name().toLowerCase()).append('=').append(nanos / 1000 / 1000.0);
+            }
+        }
+        return report.toString();
+    }
+
+    public static long getCallCount(Callback callback) {
+        return sCalls[callback.ordinal()];
+    }
+
+    public static long getOverBudgetCount(Callback callback) {
+        return sOverBudget[callback.ordinal()];
+    }
+
+    /**
+     * The number of times the callback was over the budget and spent the most time in the given step.
+     */
+    public static long getBlamedCount(Callback callback, Step step) {
+        return sBlamed[callback.ordinal()][step.ordinal()];
+    }
+
+    public static void reset() {
+        for (int callback = 0; callback < CALLBACKS.length; callback++) {
+            sCalls[callback] = 0;
+            sOverBudget[callback] = 0;
+            sMaxNanos[callback] = 0;
+            for (int step = 0; step < STEPS.length; step++) {
+                sBlamed[callback][step] = 0;
+            }
+        }
+    }
+
+    /**
+     * Writes the calls and the callbacks over the budget, by the step they were blamed on, e.g. for dumpsys.
+     */
+    public static void dump(String prefix, PrintWriter writer) {
+        writer.print(prefix);
+        if (!isEnabled()) {
+            writer.println("Main thread watchdog: off");
+            return;
+        }
+        writer.print("Main thread watchdog: budget=");
+        writer.print(sBudgetNanos / 1000000);
+        writer.println("ms");
+        for (Callback callback : CALLBACKS) {
+            int index = callback.ordinal();
+            if (sCalls[index] == 0) {
+                continue;
+            }
+            writer.print(prefix);
+            writer.print("  ");
+            writer.print(callback.name().toLowerCase());
+            writer.print(": calls=");
+            writer.print(sCalls[index]);
+            writer.print(" max=");
+            writer.print(sMaxNanos[index] / 1000 / 1000.0);
+            writer.print(" over budget=");
+            writer.print(sOverBudget[index]);
+            for (Step step : STEPS) {
+                long blamed = sBlamed[index][step.ordinal()];
+                if (blamed > 0) {
+                    writer.print(' ');
+                    writer.print(step.name().toLowerCase());
+                    writer.print('=');
+                    writer.print(blamed);
+                }
+            }
+            writer.println();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.firebase.samples.logindemo;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+
+/**
+ * Parses the URL an OAuth provider redirects to once the user has authorized the application, e.g.
+ * <code>oauth://cb?oauth_token=...&amp;oauth_verifier=...</code>.
+ * <p/>
+ * It checks every page the login WebView loads, so it matches the url by its prefix and only decodes the parameter that
+ * is asked for, rather than parsing each url into an {@link android.net.Uri}.
+ */
+public final class OAuthCallback {
+
+    private OAuthCallback() {
+    }
+
+    /**
+     * Whether the url is a redirect to the given callback url.
+     */
+    public static boolean matches(String url, String callbackUrl) {
+        return url != null && url.startsWith(callbackUrl);
+    }
+
+    /**
+     * Returns the decoded value of the first query parameter with the given name, "" if it has no value, or null if
+     * the url does not have it.
+     */
+    public static String getQueryParameter(String url, String name) {
+        int query = url.indexOf('?');
+        if (query < 0) {
+            return null;
+        }
+        int end = url.indexOf('#', query);
+        if (end < 0) {
+            end = url.length();
+        }
+        int start = query + 1;
+        while (start < end) {
+            int next = url.indexOf('&', start);
+            if (next < 0 || next > end) {
+                next = end;
+            }
+            int equals = url.indexOf('=', start);
+            int nameEnd = (equals < 0 || equals > next) ? next : equals;
+            if (nameEnd - start == name.length() && url.regionMatches(start, name, 0, name.length())) {
+                return nameEnd == next ? "" : decode(url.substring(nameEnd + 1, next));
+            }
+            start = next + 1;
+        }
+        return null;
+    }
+
+    private static String decode(String value) {
+        if (value.indexOf('%') < 0 && value.indexOf('+') < 0) {
+            return value;
+        }
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is not supported", e);
+        } catch (IllegalArgumentException e) {
+            // malformed escape sequence, hand out the raw value
+            return value;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.firebase.samples.logindemo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Holds the logins that were requested while the device was offline, so that they can be replayed in order once the
+ * network is back. A login that is already queued is not queued again, so tapping a login button repeatedly while
+ * offline results in a single login. Not thread safe, it is used from the main thread.
+ */
+public class PendingAuthQueue {
+
+    /**
+     * A login that is waiting for the network.
+     */
+    public static final class Request {
+        private final String mProvider;
+        private final Map<String, String> mOptions;
+
+        public Request(String provider, Map<String, String> options) {
+            mProvider = provider;
+            /* a copy, the request outlives the caller's map */
+            mOptions = options != null ? Collections.unmodifiableMap(new HashMap<String, String>(options)) : null;
+        }
+
+        public String getProvider() {
+            return mProvider;
+        }
+
+        /**
+         * The options to authenticate with Firebase with, or null if the provider login itself has to be started.
+         */
+        public Map<String, String> getOptions() {
+            return mOptions;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Request)) {
+                return false;
+            }
+            Request other = (Request) o;
+            return mProvider.equals(other.mProvider)
+                    && (mOptions == null ? other.mOptions == null : mOptions.equals(other.mOptions));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * mProvider.hashCode() + (mOptions != null ? mOptions.hashCode() : 0);
+        }
+    }
+
+    /* In the order the requests were made */
+    private final Set<Request> mRequests = new LinkedHashSet<Request>();
+
+    private long mCollapsedCount;
+
+    /**
+     * Queues a login, unless the same one is already waiting. Returns whether it was queued.
+     */
+    public boolean enqueue(String provider, Map<String, String> options) {
+        if (mRequests.add(new Request(provider, options))) {
+            return true;
+        }
+        mCollapsedCount++;
+        return false;
+    }
+
+    /**
+     * Removes all waiting requests and returns them in the order they were made.
+     */
+    public List<Request> drain() {
+        List<Request> requests = new ArrayList<Request>(mRequests);
+        mRequests.clear();
+        return requests;
+    }
+
+    public boolean isEmpty() {
+        return mRequests.isEmpty();
+    }
+
+    public int size() {
+        return mRequests.size();
+    }
+
+    /**
+     * The number of requests that were dropped because the same request was already waiting.
+     */
+    public long getCollapsedCount() {
+        return mCollapsedCount;
+    }
+}
@@ -0,0 +1,173 @@
+package com.firebase.samples.logindemo;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Warms up the provider the {@link ProviderPredictor} expects the user to log in with, while the main thread is idle
+ * after the first frame. The steps of a prewarm are timed against {@link #IDLE_PASS_BUDGET_MS} per idle pass and
+ * {@link #MAIN_THREAD_BUDGET_MS} per process. All methods must be called from the main thread.
+ */
+public class PrewarmScheduler {
+
+    private static final String TAG = PrewarmScheduler.class.getSimpleName();
+
+    /* The main thread time the prewarms of a process may take in total */
+    public static final long MAIN_THREAD_BUDGET_MS = 50;
+
+    /* The main thread time the prewarm steps may take before they yield to the next idle pass, about a frame */
+    public static final long IDLE_PASS_BUDGET_MS = 16;
+
+    private static final String PREFS_NAME = "prewarm";
+
+    private static final String KEY_PICKS = "picks";
+
+    private static PrewarmScheduler sInstance;
+
+    private final Context mContext;
+
+    private final SharedPreferences mPreferences;
+
+    private final ProviderPredictor mPredictor;
+
+    /* The main thread time the prewarms took so far */
+    private long mSpentMs;
+
+    /* The provider that was warmed up for the login screen that is shown, or null */
+    private String mPrewarmed;
+
+    /* The steps of the prewarm under way that have not run yet, and whether they wait for an idle pass */
+    private final List<Runnable> mPendingSteps = new ArrayList<Runnable>();
+    private boolean mDeferred;
+
+    /* When the prewarm under way started, see SystemClock#elapsedRealtime() */
+    private long mPrewarmStartedAt;
+
+    private int mPrewarmCount;
+
+    private int mHitCount;
+
+    private int mMissCount;
+
+    private int mOverBudgetCount;
+
+    private int mDeferredCount;
+
+    private int mSkippedStepCount;
+
+    private final Runnable mRunPendingSteps = new Runnable() {
+        @Override
+        public void run() {
+            mDeferred = false;
+            runPendingSteps();
+        }
+    };
+
+    public static PrewarmScheduler getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new PrewarmScheduler(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private PrewarmScheduler(Context context) {
+        mContext = context;
+        mPreferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        mPredictor = ProviderPredictor.decode(mPreferences.getString(KEY_PICKS, null));
+    }
+
+    /**
+     * Records that the user picked the given provider to log in with, e.g. clicked its login button.
+     */
+    public void recordLogin(String provider) {
+        cancel();
+        if (mPrewarmed != null) {
+            if (mPrewarmed.equals(provider)) {
+                mHitCount++;
+            } else {
+                mMissCount++;
+            }
+            mPrewarmed = null;
+        }
+        mPredictor.recordPick(provider);
+        mPreferences.edit().putString(KEY_PICKS, mPredictor.encode()).apply();
+    }
+
+    /**
+     * Warms up the provider the user most likely logs in with, if any, or the given fallback if there are no earlier
+     * logins to go by. Call this once the main thread is idle after the first frame.
+     *
+     * @param fallback the provider to warm up for a user without a history, or null for none
+     */
+    public void prewarm(AuthProviderRegistry providers, String fallback) {
+        Set<String> registered = AuthProviderRegistry.getRegistered(mContext);
+        String provider = mPredictor.predict(registered);
+        if (provider == null && !mPredictor.hasHistory() && registered.contains(fallback)) {
+            provider = fallback;
+        }
+        if (provider == null || provider.equals(mPrewarmed)) {
+            return;
+        }
+        if (mSpentMs >= MAIN_THREAD_BUDGET_MS) {
+            mOverBudgetCount++;
+            Log.d(TAG, "Not warming up " + provider + ", the prewarm budget is used up");
+            return;
+        }
+        mPendingSteps.clear();
+        mPendingSteps.addAll(providers.get(provider).getPrewarmSteps());
+        mPrewarmed = provider;
+        mPrewarmCount++;
+        mPrewarmStartedAt = SystemClock.elapsedRealtime();
+        runPendingSteps();
+    }
+
+    /**
+     * Drops the prewarm steps that have not run yet, e.g. because the login screen is gone.
+     */
+    public void cancel() {
+        mPendingSteps.clear();
+    }
+
+    /* Runs the pending steps until they are done or a budget is spent */
+    private void runPendingSteps() {
+        long passStartedAt = SystemClock.elapsedRealtime();
+        while (!mPendingSteps.isEmpty()) {
+            if (mSpentMs >= MAIN_THREAD_BUDGET_MS) {
+                Log.d(TAG, "Skipping " + mPendingSteps.size() + " prewarm steps of " + mPrewarmed
+                        + ", the prewarm budget is used up");
+                mSkippedStepCount += mPendingSteps.size();
+                mPendingSteps.clear();
+                return;
+            }
+            if (SystemClock.elapsedRealtime() - passStartedAt >= IDLE_PASS_BUDGET_MS) {
+                mDeferredCount++;
+                if (!mDeferred) {
+                    mDeferred = true;
+                    ProviderInitializer.runWhenIdle(mRunPendingSteps);
+                }
+                return;
+            }
+            long start = SystemClock.elapsedRealtime();
+            mPendingSteps.remove(0).run();
+            mSpentMs += SystemClock.elapsedRealtime() - start;
+            if (mPendingSteps.isEmpty()) {
+                ProviderInitializer.recordDuration(mPrewarmed + "_prewarmed", mPrewarmStartedAt);
+            }
+        }
+    }
+
+    /**
+     * The prewarms and how often they warmed up the provider the user then picked, for dumpsys.
+     */
+    public String getStats() {
+        return "prewarms=" + mPrewarmCount + " hits=" + mHitCount + " misses=" + mMissCount + " over budget="
+                + mOverBudgetCount + " deferred=" + mDeferredCount + " skipped steps=" + mSkippedStepCount
+                + " main thread=" + mSpentMs + "/" + MAIN_THREAD_BUDGET_MS + "ms";
+    }
+}
@@ -0,0 +1,125 @@
+package com.firebase.samples.logindemo;
+
+import android.app.Activity;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Defers the setup of the provider SDKs until a provider is actually needed, instead of initializing all of them
+ * when the process starts. It is started from {@link LoginDemoApplication} and records how long each step of the
+ * startup took, so that the time to the first frame can be compared before and after a change.
+ * <p/>
+ * All methods must be called from the main thread.
+ */
+public class ProviderInitializer {
+
+    private static final String TAG = ProviderInitializer.class.getSimpleName();
+
+    /* Time at which the application was created, all timings are relative to it */
+    private static long sStartTime;
+
+    private static boolean sFirstFrameReported;
+
+    /* Tasks waiting for the first frame, see runAfterFirstFrame */
+    private static final List<Runnable> sAfterFirstFrame = new ArrayList<Runnable>();
+
+    /* Named startup timings in milliseconds, in the order they were recorded */
+    private static final Map<String, Long> sTimings = new LinkedHashMap<String, Long>();
+
+    private ProviderInitializer() {
+    }
+
+    /**
+     * Called from {@link LoginDemoApplication#onCreate()} before anything else.
+     */
+    public static void start() {
+        sStartTime = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Runs the given task once the main thread has nothing else to do, e.g. after the first frame was drawn.
+     */
+    public static void runWhenIdle(final Runnable task) {
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle() {
+                task.run();
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Runs the given task once the first frame of the process has been drawn and the main thread is idle, so that it
+     * does not delay the first frame. Tasks that are scheduled before the first frame was reported wait for it.
+     */
+    public static void runAfterFirstFrame(Runnable task) {
+        if (sFirstFrameReported) {
+            runWhenIdle(task);
+        } else {
+            sAfterFirstFrame.add(task);
+        }
+    }
+
+    /**
+     * Records how long a step took that started at the given {@link SystemClock#elapsedRealtime()}.
+     */
+    public static void recordDuration(String name, long start) {
+        sTimings.put(name, SystemClock.elapsedRealtime() - start);
+    }
+
+    /**
+     * Records the time since the application was created.
+     */
+    public static void recordSinceStart(String name) {
+        sTimings.put(name, SystemClock.elapsedRealtime() - sStartTime);
+    }
+
+    /**
+     * Records the time to the first frame of the given activity and logs all timings recorded so far, along with the
+     * providers the app was built with. Only the first frame of the process is reported.
+     */
+    public static void reportFirstFrame(final Activity activity) {
+        if (sFirstFrameReported) {
+            return;
+        }
+        final View decorView = activity.getWindow().getDecorView();
+        decorView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                ViewTreeObserver observer = decorView.getViewTreeObserver();
+                if (observer.isAlive()) {
+                    observer.removeOnPreDrawListener(this);
+                }
+                if (!sFirstFrameReported) {
+                    sFirstFrameReported = true;
+                    recordSinceStart("first_frame");
+                    Log.i(TAG, "Startup timings with " + AuthProviderRegistry.getRegistered(activity) + ": "
+                            + getTimings());
+                    /* this is called before the frame is drawn, the idle handlers only run once it has been */
+                    for (Runnable task : sAfterFirstFrame) {
+                        runWhenIdle(task);
+                    }
+                    sAfterFirstFrame.clear();
+                }
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Returns a copy of the startup timings recorded so far, in milliseconds.
+     */
+    public static Map<String, Long> getTimings() {
+        return new LinkedHashMap<String, Long>(sTimings);
+    }
+}
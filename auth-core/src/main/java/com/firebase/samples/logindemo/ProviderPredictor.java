@@ -0,0 +1,121 @@
+package com.firebase.samples.logindemo;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Predicts the provider the user will log in with next, from the providers they picked before, so that only that one
+ * is warmed up ahead of the login, see {@link PrewarmScheduler}. Recent picks count more, see {@link #DECAY}, and a
+ * provider is only predicted if it has {@link #MIN_CONFIDENCE} of all scores. Not thread safe.
+ */
+public class ProviderPredictor {
+
+    /* The weight an earlier pick keeps with every later pick */
+    public static final double DECAY = 0.7;
+
+    /* The share of all scores the predicted provider must have */
+    public static final double MIN_CONFIDENCE = 0.5;
+
+    /* Scores below this are forgotten, so providers that are not used anymore do not pile up */
+    private static final double MIN_SCORE = 0.01;
+
+    private final Map<String, Double> mScores = new LinkedHashMap<String, Double>();
+
+    private double mTotal;
+
+    /**
+     * Records that the user picked the given provider to log in with.
+     */
+    public void recordPick(String provider) {
+        mTotal = 0;
+        Iterator<Map.Entry<String, Double>> scores = mScores.entrySet().iterator();
+        while (scores.hasNext()) {
+            Map.Entry<String, Double> score = scores.next();
+            double value = score.getValue() * DECAY + (score.getKey().equals(provider) ? 1 : 0);
+            if (value < MIN_SCORE) {
+                scores.remove();
+            } else {
+                score.setValue(value);
+                mTotal += value;
+            }
+        }
+        if (!mScores.containsKey(provider)) {
+            mScores.put(provider, 1.0);
+            mTotal += 1;
+        }
+    }
+
+    /**
+     * Returns the provider among the candidates the user most likely logs in with next, or null if none is likely
+     * enough.
+     */
+    public String predict(Collection<String> candidates) {
+        String best = null;
+        double bestScore = 0;
+        for (String candidate : candidates) {
+            Double score = mScores.get(candidate);
+            if (score != null && score > bestScore) {
+                best = candidate;
+                bestScore = score;
+            }
+        }
+        return best != null && bestScore >= MIN_CONFIDENCE * mTotal ? best : null;
+    }
+
+    /**
+     * Whether any pick has been recorded.
+     */
+    public boolean hasHistory() {
+        return !mScores.isEmpty();
+    }
+
+    /**
+     * The share of all scores the provider has, from 0 to 1.
+     */
+    public double getConfidence(String provider) {
+        Double score = mScores.get(provider);
+        return score != null ? score / mTotal : 0;
+    }
+
+    /**
+     * The scores as <code>provider=score</code> pairs separated by commas.
+     */
+    public String encode() {
+        StringBuilder encoded = new StringBuilder();
+        for (Map.Entry<String, Double> score : mScores.entrySet()) {
+            if (encoded.length() > 0) {
+                encoded.append(',');
+            }
+            encoded.append(score.getKey()).append('=').append(score.getValue());
+        }
+        return encoded.toString();
+    }
+
+    /**
+     * Restores the scores from {@link #encode()}, skipping anything malformed.
+     */
+    public static ProviderPredictor decode(String encoded) {
+        ProviderPredictor predictor = new ProviderPredictor();
+        if (encoded == null || encoded.isEmpty()) {
+            return predictor;
+        }
+        for (String pair : encoded.split(",")) {
+            int separator = pair.indexOf('=');
+            if (separator <= 0) {
+                continue;
+            }
+            try {
+                double value = Double.parseDouble(pair.substring(separator + 1));
+                if (value > 0) {
+                    predictor.mScores.put(pair.substring(0, separator), value);
+                    predictor.mTotal += value;
+                }
+            } catch (NumberFormatException e) {
+                /* skip it */
+            }
+        }
+        return predictor;
+    }
+}
@@ -0,0 +1,161 @@
+package com.firebase.samples.logindemo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides when credentials that expire (the Firebase session, provider tokens) are refreshed ahead of their expiry.
+ * A wakeup for the earliest refresh also takes every refresh that becomes due within the batch window, so that the
+ * radio is woken once for all of them. The owner waits until {@link #getNextWakeup()}, see {@link SessionRefresher}.
+ * Not thread safe.
+ */
+public class RefreshScheduler {
+
+    /* Credentials are refreshed this long before they expire */
+    public static final long DEFAULT_REFRESH_AHEAD_MS = 10 * 60 * 1000;
+
+    /* Refreshes that become due this soon after a wakeup are run in that wakeup */
+    public static final long DEFAULT_BATCH_WINDOW_MS = 5 * 60 * 1000;
+
+    /**
+     * Refreshes one credential. Runs after the refresh was removed from the scheduler, so the task may schedule the
+     * refreshed credential again.
+     */
+    public interface Task {
+        void refresh();
+    }
+
+    private final Clock mClock;
+
+    private final long mRefreshAheadMillis;
+
+    private final long mBatchWindowMillis;
+
+    private final Map<String, Entry> mEntries = new HashMap<String, Entry>();
+
+    private long mWakeupCount;
+
+    private long mRefreshCount;
+
+    public RefreshScheduler(Clock clock) {
+        this(clock, DEFAULT_REFRESH_AHEAD_MS, DEFAULT_BATCH_WINDOW_MS);
+    }
+
+    public RefreshScheduler(Clock clock, long refreshAheadMillis, long batchWindowMillis) {
+        mClock = clock;
+        mRefreshAheadMillis = refreshAheadMillis;
+        mBatchWindowMillis = batchWindowMillis;
+    }
+
+    /**
+     * Schedules the refresh of a credential that expires at the given time, in terms of the clock. Replaces the
+     * refresh that was scheduled for the key before, if any.
+     */
+    public void schedule(String key, long expiresAt, Task task) {
+        mEntries.put(key, new Entry(expiresAt - mRefreshAheadMillis, task));
+    }
+
+    /**
+     * Drops the refresh of the key, e.g. because the user logged out.
+     */
+    public void cancel(String key) {
+        mEntries.remove(key);
+    }
+
+    public boolean isScheduled(String key) {
+        return mEntries.containsKey(key);
+    }
+
+    /**
+     * Returns when {@link #runDue()} has to be called next, in terms of the clock, or {@link Long#MAX_VALUE} if
+     * nothing is scheduled. The time may be in the past if a refresh is overdue.
+     */
+    public long getNextWakeup() {
+        long next = Long.MAX_VALUE;
+        for (Entry entry : mEntries.values()) {
+            next = Math.min(next, entry.dueAt);
+        }
+        return next;
+    }
+
+    /**
+     * Runs, in the order they are due, all refreshes that are due now or within the batch window. Returns the number
+     * of refreshes that were run.
+     */
+    public int runDue() {
+        List<Task> due = takeDue();
+        for (Task task : due) {
+            task.refresh();
+        }
+        return due.size();
+    }
+
+    /**
+     * Removes all refreshes that are due now or within the batch window and returns their tasks in the order they are
+     * due, for the owner to run, e.g. after it released a lock. The tasks may schedule again.
+     */
+    public List<Task> takeDue() {
+        long horizon = mClock.now() + mBatchWindowMillis;
+        List<Entry> due = new ArrayList<Entry>();
+        for (Iterator<Entry> it = mEntries.values().iterator(); it.hasNext(); ) {
+            Entry entry = it.next();
+            if (entry.dueAt <= horizon) {
+                due.add(entry);
+                it.remove();
+            }
+        }
+        if (due.isEmpty()) {
+            return new ArrayList<Task>(0);
+        }
+        mWakeupCount++;
+        mRefreshCount += due.size();
+        if (due.size() > 1) {
+            sortByDueTime(due);
+        }
+        List<Task> tasks = new ArrayList<Task>(due.size());
+        for (Entry entry : due) {
+            tasks.add(entry.task);
+        }
+        return tasks;
+    }
+
+    /**
+     * The number of wakeups that ran at least one refresh.
+     */
+    public long getWakeupCount() {
+        return mWakeupCount;
+    }
+
+    /**
+     * The number of refreshes that were run, in {@link #getWakeupCount()} wakeups.
+     */
+    public long getRefreshCount() {
+        return mRefreshCount;
+    }
+
+    /* Insertion sort, there are only ever a handful of credentials */
+    private static void sortByDueTime(List<Entry> entries) {
+        for (int i = 1; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            int j = i - 1;
+            while (j >= 0 && entries.get(j).dueAt > entry.dueAt) {
+                entries.set(j + 1, entries.get(j));
+                j--;
+            }
+            entries.set(j + 1, entry);
+        }
+    }
+
+    private static class Entry {
+        private final long dueAt;
+        private final Task task;
+
+        private Entry(long dueAt, Task task) {
+            this.dueAt = dueAt;
+            this.task = task;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.firebase.samples.logindemo;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Runs a blocking login request, such as a provider token fetch, through a {@link CircuitBreaker} and retries it
+ * according to a {@link RetryPolicy} as long as it fails with transient errors. The calling thread sleeps in between
+ * attempts, so this must only be used off the main thread, e.g. from the {@link AuthExecutor}. An interrupt, i.e. a
+ * cancelled task, ends the retries.
+ */
+public class Retrier {
+
+    /**
+     * Decides which errors are worth retrying, e.g. network errors but not a rejected password.
+     */
+    public interface ErrorClassifier {
+        boolean isTransient(Exception e);
+    }
+
+    private final RetryPolicy mPolicy;
+
+    private final CircuitBreaker mBreaker;
+
+    private final ErrorClassifier mClassifier;
+
+    /**
+     * Returns a retrier with the default policy and the breaker of the given provider.
+     */
+    public static Retrier forProvider(String provider, ErrorClassifier classifier) {
+        return new Retrier(RetryPolicy.DEFAULT, CircuitBreaker.forProvider(provider), classifier);
+    }
+
+    public Retrier(RetryPolicy policy, CircuitBreaker breaker, ErrorClassifier classifier) {
+        mPolicy = policy;
+        mBreaker = breaker;
+        mClassifier = classifier;
+    }
+
+    /**
+     * Calls the work until it succeeds, fails with an error that is not transient, or runs out of attempts, and
+     * returns its result or throws its last error. Throws a {@link CircuitBreaker.OpenException} without calling the
+     * work if the breaker is open.
+     */
+    public <T> T call(Callable<T> work) throws Exception {
+        int attempts = 0;
+        while (true) {
+            mBreaker.checkRequest();
+            T result;
+            try {
+                result = work.call();
+            } catch (Exception e) {
+                attempts++;
+                if (!mClassifier.isTransient(e)) {
+                    mBreaker.onSuccess();
+                    throw e;
+                }
+                mBreaker.onFailure();
+                if (!mPolicy.shouldRetry(attempts) || !sleep(mPolicy.getDelayMillis(attempts - 1))) {
+                    throw e;
+                }
+                continue;
+            }
+            mBreaker.onSuccess();
+            return result;
+        }
+    }
+
+    /* Returns false if the thread was interrupted, i.e. the task was cancelled */
+    private static boolean sleep(long millis) {
+        if (millis <= 0) {
+            return !Thread.currentThread().isInterrupted();
+        }
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
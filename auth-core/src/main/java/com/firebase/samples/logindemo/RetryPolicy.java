@@ -0,0 +1,61 @@
+package com.firebase.samples.logindemo;
+
+import java.util.Random;
+
+/**
+ * How often, and after how long, a failed login request is retried: exponential backoff with full jitter, i.e. retry n
+ * waits a random time between 0 and min(maxDelay, baseDelay * 2^n), so that clients that failed together do not all
+ * come back at the same time.
+ */
+public class RetryPolicy {
+
+    /**
+     * The policy for the provider token requests and Firebase logins: up to 3 attempts, waiting at most 0.5s and then
+     * 1s in between, so a failing login gives up after a couple of seconds.
+     */
+    public static final RetryPolicy DEFAULT = new RetryPolicy(3, 500, 1000, new Random());
+
+    private final int mMaxAttempts;
+
+    private final long mBaseDelayMillis;
+
+    private final long mMaxDelayMillis;
+
+    private final Random mRandom;
+
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis, Random random) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1: " + maxAttempts);
+        }
+        mMaxAttempts = maxAttempts;
+        mBaseDelayMillis = baseDelayMillis;
+        mMaxDelayMillis = maxDelayMillis;
+        mRandom = random;
+    }
+
+    /**
+     * The total number of attempts, including the first one.
+     */
+    public int getMaxAttempts() {
+        return mMaxAttempts;
+    }
+
+    /**
+     * Whether another attempt may be made after the given number of failed attempts.
+     */
+    public boolean shouldRetry(int failedAttempts) {
+        return failedAttempts < mMaxAttempts;
+    }
+
+    /**
+     * Returns how long to wait before the given retry, counting from 0 for the retry after the first attempt.
+     */
+    public long getDelayMillis(int retry) {
+        /* cap the shift, the delay is capped at mMaxDelayMillis long before it would overflow */
+        long ceiling = Math.min(mMaxDelayMillis, mBaseDelayMillis << Math.min(retry, 30));
+        if (ceiling <= 0) {
+            return 0;
+        }
+        return (long) (mRandom.nextDouble() * (ceiling + 1));
+    }
+}
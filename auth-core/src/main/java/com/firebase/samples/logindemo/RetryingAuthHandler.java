@@ -0,0 +1,131 @@
+package com.firebase.samples.logindemo;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.firebase.client.AuthData;
+import com.firebase.client.Firebase;
+import com.firebase.client.FirebaseError;
+
+/**
+ * Retries a Firebase login ({@link Firebase#authWithOAuthToken}, {@link Firebase#authWithPassword} and the like) that
+ * failed with a transient error, after a {@link RetryPolicy} backoff, and guards it with the {@link CircuitBreaker} of
+ * the provider. Only the final result is passed on to the wrapped handler.
+ * <p/>
+ * Retries are scheduled on the main thread on behalf of an owner, which has to call {@link #cancelAll(Object)} if it
+ * does not live as long as the process. An owner that is a {@link LoginDeadline} drops the login once it is done.
+ */
+public class RetryingAuthHandler implements Firebase.AuthResultHandler {
+
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Makes one attempt of the login, reporting to the given handler.
+     */
+    public interface Attempt {
+        void run(Firebase.AuthResultHandler handler);
+    }
+
+    private final Object mOwner;
+
+    private final String mProvider;
+
+    private final Attempt mAttempt;
+
+    private final Firebase.AuthResultHandler mHandler;
+
+    private final RetryPolicy mPolicy = RetryPolicy.DEFAULT;
+
+    private final CircuitBreaker mBreaker;
+
+    private int mAttempts;
+
+    /**
+     * Runs the login attempt, retrying it as necessary, and reports the outcome to the handler. If the breaker of the
+     * provider is open, the handler fails right away without an attempt being made.
+     */
+    public static void auth(Object owner, String provider, Attempt attempt, Firebase.AuthResultHandler handler) {
+        new RetryingAuthHandler(owner, provider, attempt, handler).runAttempt();
+    }
+
+    /**
+     * Drops the pending retries of the given owner. Their handlers are not called anymore.
+     */
+    public static void cancelAll(Object owner) {
+        sMainHandler.removeCallbacksAndMessages(owner);
+    }
+
+    /**
+     * Whether a Firebase error is worth retrying.
+     */
+    public static boolean isTransient(FirebaseError error) {
+        switch (error.getCode()) {
+            case FirebaseError.NETWORK_ERROR:
+            case FirebaseError.DISCONNECTED:
+            case FirebaseError.UNAVAILABLE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private RetryingAuthHandler(Object owner, String provider, Attempt attempt, Firebase.AuthResultHandler handler) {
+        mOwner = owner;
+        mProvider = provider;
+        mAttempt = attempt;
+        mHandler = handler;
+        mBreaker = CircuitBreaker.forProvider(provider);
+    }
+
+    private void runAttempt() {
+        if (isAborted()) {
+            return;
+        }
+        if (!mBreaker.allowRequest()) {
+            AuthEventLog.record(mProvider, AuthEventLog.Event.REJECTED, FirebaseError.UNAVAILABLE);
+            mHandler.onAuthenticationError(new FirebaseError(FirebaseError.UNAVAILABLE,
+                    new CircuitBreaker.OpenException(mProvider).getMessage()));
+            return;
+        }
+        mAttempts++;
+        mAttempt.run(this);
+    }
+
+    @Override
+    public void onAuthenticated(AuthData authData) {
+        mBreaker.onSuccess();
+        mHandler.onAuthenticated(authData);
+    }
+
+    /* Whether the deadline of the login aborted it, which failed the login already */
+    private boolean isAborted() {
+        return mOwner instanceof LoginDeadline && ((LoginDeadline) mOwner).isDone();
+    }
+
+    @Override
+    public void onAuthenticationError(FirebaseError firebaseError) {
+        if (!isTransient(firebaseError)) {
+            mBreaker.onSuccess();
+            mHandler.onAuthenticationError(firebaseError);
+            return;
+        }
+        mBreaker.onFailure();
+        if (!mPolicy.shouldRetry(mAttempts)) {
+            mHandler.onAuthenticationError(firebaseError);
+            return;
+        }
+        if (isAborted()) {
+            /* the attempt failed after its deadline aborted the login, which cancelled the retries already */
+            return;
+        }
+        long delay = mPolicy.getDelayMillis(mAttempts - 1);
+        AuthEventLog.record(mProvider, AuthMetrics.Phase.FIREBASE, AuthEventLog.Event.RETRY, firebaseError.getCode());
+        sMainHandler.postAtTime(new Runnable() {
+            @Override
+            public void run() {
+                runAttempt();
+            }
+        }, mOwner, SystemClock.uptimeMillis() + delay);
+    }
+}
@@ -0,0 +1,140 @@
+package com.firebase.samples.logindemo;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.List;
+
+/**
+ * Refreshes the Firebase session and the provider tokens in the background before they expire, see
+ * {@link RefreshScheduler}, with a single pending wakeup on the main thread. Refreshes that fall due offline wait for
+ * the network, and ones that fell due in deep sleep run when the screen turns on. Refreshes can be scheduled from any
+ * thread, their tasks run on the main thread, outside the lock.
+ */
+public class SessionRefresher {
+
+    private static final String TAG = SessionRefresher.class.getSimpleName();
+
+    private static SessionRefresher sInstance;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private final ConnectivityMonitor mConnectivityMonitor;
+
+    private final RefreshScheduler mScheduler = new RefreshScheduler(Clock.WALL);
+
+    /* When the pending wakeup is due, in terms of the wall clock, or Long.MAX_VALUE if none is pending */
+    private long mWakeupAt = Long.MAX_VALUE;
+
+    /* Whether due refreshes wait for the network */
+    private boolean mWaitingForNetwork;
+
+    private final Runnable mWakeup = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (SessionRefresher.this) {
+                mWakeupAt = Long.MAX_VALUE;
+            }
+            runDue();
+        }
+    };
+
+    /* Only ever registered at runtime, the screen-on broadcast is not delivered to receivers in the manifest */
+    private final BroadcastReceiver mScreenOnReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            mHandler.removeCallbacks(mWakeup);
+            mWakeup.run();
+        }
+    };
+
+    private final ConnectivityMonitor.Listener mConnectivityListener = new ConnectivityMonitor.Listener() {
+        @Override
+        public void onConnected() {
+            mConnectivityMonitor.removeListener(this);
+            synchronized (SessionRefresher.this) {
+                mWaitingForNetwork = false;
+            }
+            runDue();
+        }
+    };
+
+    public static synchronized SessionRefresher getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new SessionRefresher(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private SessionRefresher(Context context) {
+        mConnectivityMonitor = ConnectivityMonitor.getInstance(context);
+        context.registerReceiver(mScreenOnReceiver, new IntentFilter(Intent.ACTION_SCREEN_ON));
+    }
+
+    /**
+     * Schedules the refresh of a credential that expires at the given wall clock time, replacing the one scheduled for
+     * the key before.
+     */
+    public synchronized void schedule(String key, long expiresAt, RefreshScheduler.Task task) {
+        mScheduler.schedule(key, expiresAt, task);
+        Log.d(TAG, "Refresh of " + key + " scheduled, expires in " + (expiresAt - Clock.WALL.now()) / 1000 + "s");
+        updateWakeup();
+    }
+
+    public synchronized void cancel(String key) {
+        mScheduler.cancel(key);
+        updateWakeup();
+    }
+
+    /**
+     * The number of wakeups that refreshed something, and the number of refreshes run in them.
+     */
+    public synchronized String getStats() {
+        return mScheduler.getRefreshCount() + " refreshes in " + mScheduler.getWakeupCount() + " wakeups";
+    }
+
+    private void runDue() {
+        boolean connected = mConnectivityMonitor.isConnected();
+        List<RefreshScheduler.Task> due;
+        synchronized (this) {
+            if (!connected) {
+                if (!mWaitingForNetwork) {
+                    Log.d(TAG, "Offline, holding back refreshes until the network returns");
+                    mWaitingForNetwork = true;
+                    mConnectivityMonitor.addListener(mConnectivityListener);
+                }
+                return;
+            }
+            due = mScheduler.takeDue();
+            updateWakeup();
+        }
+        /* outside the lock, a task may take a while or schedule its credential again */
+        for (RefreshScheduler.Task task : due) {
+            task.refresh();
+        }
+        if (!due.isEmpty()) {
+            Log.d(TAG, "Ran " + due.size() + " refreshes in one wakeup, " + getStats());
+        }
+    }
+
+    /* Moves the single pending wakeup to the next due refresh */
+    private void updateWakeup() {
+        if (mWaitingForNetwork) {
+            return;
+        }
+        long next = mScheduler.getNextWakeup();
+        if (next == mWakeupAt) {
+            return;
+        }
+        mHandler.removeCallbacks(mWakeup);
+        mWakeupAt = next;
+        if (next != Long.MAX_VALUE) {
+            mHandler.postDelayed(mWakeup, Math.max(0, next - Clock.WALL.now()));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.firebase.samples.logindemo;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Coalesces identical requests that are made while one of them is still in flight: the first caller for a key makes
+ * the request, later callers wait for it, and all of them get its result. Login requests are keyed by provider and a
+ * fingerprint of the credential, see {@link #key(String, String)}. Thread safe.
+ *
+ * @param <W> the type of the waiters that are notified of the result
+ */
+public class SingleFlight<W> {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /* Waiters in the order they joined, by key */
+    private final Map<String, List<W>> mFlights = new HashMap<String, List<W>>();
+
+    private long mCoalescedCount;
+
+    /**
+     * Returns the key of a login request. The credential (a token, or an email and password) is only kept as a SHA-1
+     * fingerprint.
+     */
+    public static String key(String provider, String credential) {
+        return provider + ':' + fingerprint(credential);
+    }
+
+    /**
+     * Adds a waiter to the flight of the key. Returns true if there was no such flight yet, in which case the caller
+     * has to start the request and call {@link #complete(String)} once it finished.
+     */
+    public synchronized boolean join(String key, W waiter) {
+        List<W> waiters = mFlights.get(key);
+        if (waiters != null) {
+            waiters.add(waiter);
+            mCoalescedCount++;
+            return false;
+        }
+        waiters = new ArrayList<W>(2);
+        waiters.add(waiter);
+        mFlights.put(key, waiters);
+        return true;
+    }
+
+    /**
+     * Ends the flight of the key and returns its waiters in the order they joined, so they can be given the result.
+     */
+    public synchronized List<W> complete(String key) {
+        List<W> waiters = mFlights.remove(key);
+        if (waiters == null) {
+            throw new IllegalStateException("No request in flight for " + key);
+        }
+        return waiters;
+    }
+
+    public synchronized boolean isInFlight(String key) {
+        return mFlights.containsKey(key);
+    }
+
+    /**
+     * The number of flights that have not completed yet.
+     */
+    public synchronized int size() {
+        return mFlights.size();
+    }
+
+    /**
+     * The number of requests that joined a flight instead of making a request of their own.
+     */
+    public synchronized long getCoalescedCount() {
+        return mCoalescedCount;
+    }
+
+    private static String fingerprint(String credential) {
+        if (credential == null) {
+            return "";
+        }
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1").digest(credential.getBytes("UTF-8"));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not supported", e);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is not supported", e);
+        }
+        char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(digest[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX_DIGITS[digest[i] & 0xf];
+        }
+        return new String(hex);
+    }
+}
@@ -0,0 +1,221 @@
+package com.firebase.samples.logindemo;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans a state out to any number of subscribers, e.g. the auth state of the {@link AuthSession}. A new subscriber is
+ * handed the latest state right away, then every newer one on its own {@link Executor}; a subscriber that falls behind
+ * only gets the latest state, never an older one after a newer one. Thread safe.
+ *
+ * @param <T> the state, which may be null (e.g. no auth data while logged out)
+ */
+public class StateStream<T> {
+
+    /**
+     * Runs callbacks on the thread that publishes the state, or subscribes.
+     */
+    public static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    /**
+     * Receives the states of the stream.
+     */
+    public interface Subscriber<T> {
+        void onState(T state);
+    }
+
+    private final CopyOnWriteArrayList<Subscription<T>> mSubscriptions = new CopyOnWriteArrayList<Subscription<T>>();
+
+    /* Whether a state has been published, the latest one and its sequence number. Guarded by this. */
+    private boolean mHasState;
+    private T mState;
+    private long mSequence;
+
+    private final AtomicLong mPublishedCount = new AtomicLong();
+
+    private final AtomicLong mDeliveredCount = new AtomicLong();
+
+    private final AtomicLong mDroppedCount = new AtomicLong();
+
+    /**
+     * Publishes a state to all subscribers.
+     */
+    public void publish(T state) {
+        long sequence;
+        synchronized (this) {
+            mHasState = true;
+            mState = state;
+            sequence = ++mSequence;
+        }
+        mPublishedCount.incrementAndGet();
+        for (Subscription<T> subscription : mSubscriptions) {
+            subscription.offer(sequence, state);
+        }
+    }
+
+    /**
+     * Subscribes to the stream. The subscriber is handed the latest state, if one has been published, and every state
+     * published from now on, on the given executor.
+     */
+    public Subscription<T> subscribe(Executor executor, Subscriber<T> subscriber) {
+        Subscription<T> subscription = new Subscription<T>(this, executor, subscriber);
+        mSubscriptions.add(subscription);
+        boolean hasState;
+        T state;
+        long sequence;
+        synchronized (this) {
+            hasState = mHasState;
+            state = mState;
+            sequence = mSequence;
+        }
+        if (hasState) {
+            subscription.offer(sequence, state);
+        }
+        return subscription;
+    }
+
+    /**
+     * Whether a state has been published yet.
+     */
+    public synchronized boolean hasState() {
+        return mHasState;
+    }
+
+    /**
+     * The latest state, or null if none has been published.
+     */
+    public synchronized T getState() {
+        return mState;
+    }
+
+    public int getSubscriberCount() {
+        return mSubscriptions.size();
+    }
+
+    /**
+     * The number of states published.
+     */
+    public long getPublishedCount() {
+        return mPublishedCount.get();
+    }
+
+    /**
+     * The number of states handed to subscribers, counting every subscriber.
+     */
+    public long getDeliveredCount() {
+        return mDeliveredCount.get();
+    }
+
+    /**
+     * The number of states that were replaced by a newer one before their subscriber got them.
+     */
+    public long getDroppedCount() {
+        return mDroppedCount.get();
+    }
+
+    /**
+     * A subscriber of the stream, until it is {@link #cancel() cancelled}.
+     */
+    public static class Subscription<T> {
+
+        private final StateStream<T> mStream;
+
+        private final Executor mExecutor;
+
+        private final Subscriber<T> mSubscriber;
+
+        /* The state waiting for the executor, guarded by this */
+        private boolean mHasPending;
+        private T mPending;
+
+        /* The sequence number of the latest state offered, so that a state that lost a race is not delivered after a
+         * newer one. Guarded by this. */
+        private long mOfferedSequence;
+
+        /* Whether a delivery has been handed to the executor and has not finished, guarded by this */
+        private boolean mScheduled;
+
+        private volatile boolean mCancelled;
+
+        private final Runnable mDelivery = new Runnable() {
+            @Override
+            public void run() {
+                deliver();
+            }
+        };
+
+        private Subscription(StateStream<T> stream, Executor executor, Subscriber<T> subscriber) {
+            mStream = stream;
+            mExecutor = executor;
+            mSubscriber = subscriber;
+        }
+
+        /**
+         * Stops the deliveries to the subscriber, including one that is waiting for the executor.
+         */
+        public void cancel() {
+            mCancelled = true;
+            mStream.mSubscriptions.remove(this);
+        }
+
+        public boolean isCancelled() {
+            return mCancelled;
+        }
+
+        private void offer(long sequence, T state) {
+            synchronized (this) {
+                if (mCancelled || sequence <= mOfferedSequence) {
+                    return;
+                }
+                mOfferedSequence = sequence;
+                if (mHasPending) {
+                    mStream.mDroppedCount.incrementAndGet();
+                }
+                mHasPending = true;
+                mPending = state;
+                if (mScheduled) {
+                    return;
+                }
+                mScheduled = true;
+            }
+            mExecutor.execute(mDelivery);
+        }
+
+        /* Delivers the pending state, and any state that is offered meanwhile, on the executor */
+        private void deliver() {
+            boolean done = false;
+            try {
+                while (true) {
+                    T state;
+                    synchronized (this) {
+                        if (!mHasPending || mCancelled) {
+                            mScheduled = false;
+                            mHasPending = false;
+                            mPending = null;
+                            done = true;
+                            return;
+                        }
+                        state = mPending;
+                        mHasPending = false;
+                        mPending = null;
+                    }
+                    mStream.mDeliveredCount.incrementAndGet();
+                    mSubscriber.onState(state);
+                }
+            } finally {
+                if (!done) {
+                    /* the subscriber threw, the next state schedules a delivery again */
+                    synchronized (this) {
+                        mScheduled = false;
+                    }
+                }
+            }
+        }
+    }
+}
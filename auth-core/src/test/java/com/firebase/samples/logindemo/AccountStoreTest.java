@@ -0,0 +1,119 @@
+package com.firebase.samples.logindemo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks the eviction of an {@link AccountStore} and what a switch to one of its accounts needs.
+ */
+public class AccountStoreTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    private ManualClock mClock;
+
+    private AccountStore<String> mStore;
+
+    @Before
+    public void setUp() {
+        mClock = new ManualClock();
+        mStore = new AccountStore<String>(mClock, 3);
+    }
+
+    @Test
+    public void switchToAValidAccount() {
+        mStore.put(account("google", "alice", HOUR));
+        assertEquals(AccountStore.Status.VALID, mStore.check(AccountStore.key("google", "alice")));
+        assertEquals(1, mStore.getValidCount());
+    }
+
+    @Test
+    public void switchToAnExpiredAccount() {
+        mStore.put(account("google", "alice", HOUR));
+        mClock.advance(HOUR);
+        assertEquals(AccountStore.Status.EXPIRED, mStore.check(AccountStore.key("google", "alice")));
+        assertEquals(1, mStore.getExpiredCount());
+        /* the account stays, it logs in again with its renewal */
+        assertEquals("renew google/alice", mStore.get(AccountStore.key("google", "alice")).getRenewal());
+    }
+
+    @Test
+    public void tokensWithinTheMarginAreExpired() {
+        mStore.put(account("google", "alice", HOUR));
+        mClock.advance(HOUR - AccountStore.VALIDITY_MARGIN_MS - 1);
+        assertEquals(AccountStore.Status.VALID, mStore.check(AccountStore.key("google", "alice")));
+        mClock.advance(1);
+        assertEquals(AccountStore.Status.EXPIRED, mStore.check(AccountStore.key("google", "alice")));
+    }
+
+    @Test
+    public void accountsWithoutATokenAreExpired() {
+        mStore.put(new AccountStore.Account<String>("anonymous", "bob", "Bob", null, HOUR, null));
+        assertEquals(AccountStore.Status.EXPIRED, mStore.check(AccountStore.key("anonymous", "bob")));
+    }
+
+    @Test
+    public void switchToAnUnknownAccount() {
+        assertEquals(AccountStore.Status.UNKNOWN, mStore.check(AccountStore.key("google", "alice")));
+        assertNull(mStore.get(AccountStore.key("google", "alice")));
+        assertEquals(1, mStore.getUnknownCount());
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedAccount() {
+        mStore.put(account("google", "alice", HOUR));
+        mStore.put(account("facebook", "bob", HOUR));
+        mStore.put(account("twitter", "carol", HOUR));
+        /* switching back to alice makes bob the least recently used account */
+        mStore.check(AccountStore.key("google", "alice"));
+        mStore.put(account("password", "dave", HOUR));
+        assertEquals(3, mStore.size());
+        assertEquals(1, mStore.getEvictedCount());
+        assertEquals(AccountStore.Status.UNKNOWN, mStore.check(AccountStore.key("facebook", "bob")));
+        assertEquals(Arrays.asList("password/dave", "google/alice", "twitter/carol"), keys(mStore.getAccounts()));
+    }
+
+    @Test
+    public void puttingAgainReplacesTheAccount() {
+        mStore.put(account("google", "alice", HOUR));
+        mStore.put(account("facebook", "bob", HOUR));
+        AccountStore.Account<String> renewed = account("google", "alice", 2 * HOUR);
+        mStore.put(renewed);
+        assertEquals(2, mStore.size());
+        assertSame(renewed, mStore.get(AccountStore.key("google", "alice")));
+        assertEquals(Arrays.asList("google/alice", "facebook/bob"), keys(mStore.getAccounts()));
+        assertEquals(0, mStore.getEvictedCount());
+    }
+
+    @Test
+    public void removeAndClear() {
+        mStore.put(account("google", "alice", HOUR));
+        mStore.put(account("facebook", "bob", HOUR));
+        mStore.remove(AccountStore.key("google", "alice"));
+        assertEquals(Arrays.asList("facebook/bob"), keys(mStore.getAccounts()));
+        mStore.clear();
+        assertEquals(0, mStore.size());
+        assertEquals(0, mStore.getEvictedCount());
+    }
+
+    private AccountStore.Account<String> account(String provider, String uid, long expiresIn) {
+        return new AccountStore.Account<String>(provider, uid, uid, "token-" + uid, mClock.now() + expiresIn,
+                "renew " + AccountStore.key(provider, uid));
+    }
+
+    private static List<String> keys(List<AccountStore.Account<String>> accounts) {
+        List<String> keys = new ArrayList<String>();
+        for (AccountStore.Account<String> account : accounts) {
+            keys.add(account.getKey());
+        }
+        return keys;
+    }
+}
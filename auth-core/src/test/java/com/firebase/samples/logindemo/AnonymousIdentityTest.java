@@ -0,0 +1,174 @@
+package com.firebase.samples.logindemo;
+
+import com.firebase.client.AuthData;
+import com.firebase.client.Firebase;
+import com.firebase.client.FirebaseError;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Drives the anonymous logins of an {@link AnonymousIdentity} against a backend that hands out day long sessions, and
+ * checks when a login resumes the anonymous user and when it creates a new one.
+ */
+public class AnonymousIdentityTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    private static final long SESSION = 24 * HOUR;
+
+    private ManualClock mClock;
+
+    private FakeBackend mBackend;
+
+    private AnonymousIdentity mIdentity;
+
+    private Result mResult;
+
+    @Before
+    public void setUp() {
+        mClock = new ManualClock();
+        /* the expiries of Firebase are in seconds since the epoch */
+        mClock.advance(1000 * 1000 * 1000 * 1000L);
+        mBackend = new FakeBackend();
+        mIdentity = new AnonymousIdentity(new InMemoryPreferences(), mClock);
+        mResult = new Result();
+    }
+
+    @Test
+    public void createsTheFirstAnonymousUser() {
+        mIdentity.login(mBackend, mResult);
+        assertEquals(Arrays.asList("authAnonymously"), mBackend.calls);
+        assertEquals("anonymous-1", mResult.authData.getUid());
+        assertEquals("anonymous-1", mIdentity.getUid());
+        assertEquals(1, mIdentity.getCreatedCount());
+    }
+
+    @Test
+    public void resumesTheAnonymousUser() {
+        mIdentity.login(mBackend, new Result());
+        mClock.advance(HOUR);
+        mIdentity.login(mBackend, mResult);
+        assertEquals(Arrays.asList("authAnonymously", "authWithCustomToken token-1"), mBackend.calls);
+        assertEquals("anonymous-1", mResult.authData.getUid());
+        assertEquals(1, mIdentity.getCreatedCount());
+        assertEquals(1, mIdentity.getResumedCount());
+    }
+
+    @Test
+    public void resumesPastTheExpiryOfTheCreatedSession() {
+        mIdentity.login(mBackend, new Result());
+        mClock.advance(SESSION - 2 * HOUR);
+        mIdentity.login(mBackend, new Result());
+        /* the resume renewed the session, so the user resumes after the session of the create ended */
+        mClock.advance(4 * HOUR);
+        mIdentity.login(mBackend, mResult);
+        assertEquals(Arrays.asList("authAnonymously", "authWithCustomToken token-1", "authWithCustomToken token-2"),
+                mBackend.calls);
+        assertEquals("anonymous-1", mResult.authData.getUid());
+        assertEquals(1, mIdentity.getCreatedCount());
+        assertEquals(2, mIdentity.getResumedCount());
+    }
+
+    @Test
+    public void createsANewUserOnceTheSessionExpired() {
+        mIdentity.login(mBackend, new Result());
+        mClock.advance(SESSION);
+        mIdentity.login(mBackend, mResult);
+        assertEquals(Arrays.asList("authAnonymously", "authAnonymously"), mBackend.calls);
+        assertEquals("anonymous-2", mResult.authData.getUid());
+        assertEquals(2, mIdentity.getCreatedCount());
+    }
+
+    @Test
+    public void createsANewUserIfTheTokenIsRejected() {
+        mIdentity.login(mBackend, new Result());
+        mBackend.error = new FirebaseError(FirebaseError.INVALID_TOKEN, "Invalid token");
+        mIdentity.login(mBackend, mResult);
+        assertEquals(Arrays.asList("authAnonymously", "authWithCustomToken token-1", "authAnonymously"),
+                mBackend.calls);
+        assertEquals("anonymous-2", mResult.authData.getUid());
+        assertEquals("anonymous-2", mIdentity.getUid());
+    }
+
+    @Test
+    public void otherErrorsKeepTheUser() {
+        mIdentity.login(mBackend, new Result());
+        FirebaseError error = new FirebaseError(FirebaseError.NETWORK_ERROR, "Offline");
+        mBackend.error = error;
+        mIdentity.login(mBackend, mResult);
+        assertSame(error, mResult.error);
+        assertNull(mResult.authData);
+        assertEquals("anonymous-1", mIdentity.getUid());
+        assertEquals("token-1", mIdentity.getResumableToken());
+    }
+
+    @Test
+    public void clearForgetsTheUser() {
+        mIdentity.login(mBackend, new Result());
+        mIdentity.clear();
+        assertNull(mIdentity.getUid());
+        assertNull(mIdentity.getResumableToken());
+    }
+
+    /* Hands out a new token with a day long session for every login, or fails custom token logins with the error */
+    private class FakeBackend implements AnonymousIdentity.Backend {
+
+        final List<String> calls = new ArrayList<String>();
+
+        FirebaseError error;
+
+        private int mUsers;
+
+        private int mTokens;
+
+        @Override
+        public void authWithCustomToken(String token, Firebase.AuthResultHandler handler) {
+            calls.add("authWithCustomToken " + token);
+            if (error != null) {
+                handler.onAuthenticationError(error);
+                return;
+            }
+            handler.onAuthenticated(authData("anonymous-" + mUsers));
+        }
+
+        @Override
+        public void authAnonymously(Firebase.AuthResultHandler handler) {
+            calls.add("authAnonymously");
+            mUsers++;
+            handler.onAuthenticated(authData("anonymous-" + mUsers));
+        }
+
+        private AuthData authData(String uid) {
+            mTokens++;
+            return new AuthData("token-" + mTokens, (mClock.now() + SESSION) / 1000, uid, "anonymous",
+                    Collections.<String, Object>emptyMap(), Collections.<String, Object>emptyMap());
+        }
+    }
+
+    private static class Result implements Firebase.AuthResultHandler {
+
+        AuthData authData;
+
+        FirebaseError error;
+
+        @Override
+        public void onAuthenticated(AuthData authData) {
+            this.authData = authData;
+        }
+
+        @Override
+        public void onAuthenticationError(FirebaseError firebaseError) {
+            error = firebaseError;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.firebase.samples.logindemo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks which events the {@link AuthEventLog} keeps, and that a dump never prints an event that is half overwritten.
+ */
+public class AuthEventLogTest {
+
+    private static final String HEADER = "Auth events (ms before the latest):";
+
+    @Before
+    public void setUp() {
+        AuthEventLog.reset();
+    }
+
+    @Test
+    public void nothingRecorded() {
+        assertEquals(HEADER, AuthEventLog.getReport().trim());
+    }
+
+    @Test
+    public void dumpsTheEventsOldestFirst() {
+        AuthEventLog.record("google", AuthEventLog.Event.START, 0);
+        AuthEventLog.record("google", AuthMetrics.Phase.TOKEN, AuthEventLog.Event.ERROR, 503);
+        AuthEventLog.record("google", AuthEventLog.Event.SUCCESS, 0);
+        List<String> lines = events(AuthEventLog.getReport());
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0), lines.get(0).endsWith(" google login start"));
+        assertTrue(lines.get(1), lines.get(1).endsWith(" google token error code=503"));
+        assertEquals("-0.0 google login success", lines.get(2));
+    }
+
+    @Test
+    public void unknownProvidersAreOther() {
+        AuthEventLog.record("github", AuthEventLog.Event.REJECTED, 0);
+        assertEquals("-0.0 other login rejected", events(AuthEventLog.getReport()).get(0));
+    }
+
+    @Test
+    public void keepsTheLatestEvents() {
+        for (int code = 1; code <= AuthEventLog.CAPACITY + 10; code++) {
+            AuthEventLog.record("twitter", AuthEventLog.Event.RETRY, code);
+        }
+        List<String> lines = events(AuthEventLog.getReport());
+        assertEquals(AuthEventLog.CAPACITY, lines.size());
+        assertTrue(lines.get(0), lines.get(0).endsWith(" code=11"));
+        assertTrue(lines.get(lines.size() - 1).endsWith(" code=" + (AuthEventLog.CAPACITY + 10)));
+    }
+
+    @Test
+    public void resetForgetsTheEventsButKeepsCounting() {
+        long recorded = AuthEventLog.getRecordedCount();
+        AuthEventLog.record("facebook", AuthEventLog.Event.START, 0);
+        AuthEventLog.reset();
+        assertEquals(HEADER, AuthEventLog.getReport().trim());
+        assertEquals(recorded + 1, AuthEventLog.getRecordedCount());
+        AuthEventLog.record("facebook", AuthEventLog.Event.CANCELLED, 0);
+        assertEquals("-0.0 facebook login cancelled", events(AuthEventLog.getReport()).get(0));
+    }
+
+    @Test
+    public void concurrentDumpsOnlyPrintWholeEvents() throws InterruptedException {
+        /* every writer records one kind of event, so a line that mixes two writers was read half overwritten */
+        final String[] providers = {"facebook", "google", "twitter", "password"};
+        final AuthEventLog.Event[] events = {AuthEventLog.Event.START, AuthEventLog.Event.SUCCESS,
+                AuthEventLog.Event.ERROR, AuthEventLog.Event.TIMEOUT};
+        final AtomicBoolean stop = new AtomicBoolean();
+        List<Thread> writers = new ArrayList<Thread>();
+        for (int t = 0; t < providers.length; t++) {
+            final int writer = t;
+            writers.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    while (!stop.get()) {
+                        AuthEventLog.record(providers[writer], AuthMetrics.Phase.values()[writer % 3], events[writer],
+                                1000 + writer);
+                    }
+                }
+            }));
+        }
+        final AtomicReference<String> torn = new AtomicReference<String>();
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 200 && torn.get() == null; i++) {
+                    for (String line : events(AuthEventLog.getReport())) {
+                        if (!isWhole(line, providers, events)) {
+                            torn.set(line);
+                        }
+                    }
+                }
+            }
+        });
+        for (Thread writer : writers) {
+            writer.start();
+        }
+        reader.start();
+        reader.join();
+        stop.set(true);
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        assertNull(torn.get());
+    }
+
+    private static boolean isWhole(String line, String[] providers, AuthEventLog.Event[] events) {
+        String[] fields = line.split(" ");
+        for (int writer = 0; writer < providers.length; writer++) {
+            if (fields[1].equals(providers[writer])) {
+                return fields[2].equals(AuthMetrics.Phase.values()[writer % 3].name().toLowerCase())
+                        && fields[3].equals(events[writer].name().toLowerCase())
+                        && fields[4].equals("code=" + (1000 + writer));
+            }
+        }
+        return false;
+    }
+
+    private static List<String> events(String report) {
+        List<String> lines = new ArrayList<String>();
+        for (String line : report.split("\n")) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.equals(HEADER)) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+}
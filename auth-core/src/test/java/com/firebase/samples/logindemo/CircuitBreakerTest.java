@@ -0,0 +1,161 @@
+package com.firebase.samples.logindemo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Drives a {@link CircuitBreaker} through its states with a {@link ManualClock}, and a {@link Retrier} against a
+ * {@link FlakyBackend} that injects failures.
+ */
+public class CircuitBreakerTest {
+
+    private static final int THRESHOLD = 3;
+
+    private static final long OPEN_MILLIS = 1000;
+
+    private static final Retrier.ErrorClassifier IO_ERRORS = new Retrier.ErrorClassifier() {
+        @Override
+        public boolean isTransient(Exception e) {
+            return e instanceof IOException && !(e instanceof CircuitBreaker.OpenException);
+        }
+    };
+
+    private ManualClock mClock;
+
+    private CircuitBreaker mBreaker;
+
+    @Before
+    public void setUp() {
+        mClock = new ManualClock();
+        mBreaker = new CircuitBreaker("test", THRESHOLD, OPEN_MILLIS, mClock);
+    }
+
+    @Test
+    public void opensAfterConsecutiveFailures() {
+        failRequests(THRESHOLD - 1);
+        assertEquals(CircuitBreaker.State.CLOSED, mBreaker.getState());
+        failRequests(1);
+        assertEquals(CircuitBreaker.State.OPEN, mBreaker.getState());
+        assertFalse(mBreaker.allowRequest());
+        assertEquals(1, mBreaker.getRejectedCount());
+    }
+
+    @Test
+    public void successResetsTheFailures() {
+        failRequests(THRESHOLD - 1);
+        assertTrue(mBreaker.allowRequest());
+        mBreaker.onSuccess();
+        failRequests(THRESHOLD - 1);
+        assertEquals(CircuitBreaker.State.CLOSED, mBreaker.getState());
+    }
+
+    @Test
+    public void letsOneTrialThroughOnceTheOpenPeriodIsOver() {
+        failRequests(THRESHOLD);
+        mClock.advance(OPEN_MILLIS - 1);
+        assertFalse(mBreaker.allowRequest());
+        mClock.advance(1);
+        assertTrue(mBreaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, mBreaker.getState());
+        assertFalse(mBreaker.allowRequest());
+    }
+
+    @Test
+    public void closesWhenTheTrialSucceeds() {
+        failRequests(THRESHOLD);
+        mClock.advance(OPEN_MILLIS);
+        assertTrue(mBreaker.allowRequest());
+        mBreaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, mBreaker.getState());
+        assertTrue(mBreaker.allowRequest());
+    }
+
+    @Test
+    public void reopensWhenTheTrialFails() {
+        failRequests(THRESHOLD);
+        mClock.advance(OPEN_MILLIS);
+        assertTrue(mBreaker.allowRequest());
+        mBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, mBreaker.getState());
+        mClock.advance(OPEN_MILLIS - 1);
+        assertFalse(mBreaker.allowRequest());
+    }
+
+    @Test
+    public void givesUpOnATrialThatNeverReportsBack() {
+        failRequests(THRESHOLD);
+        mClock.advance(OPEN_MILLIS);
+        assertTrue(mBreaker.allowRequest());
+        /* the trial hangs, or its task is cancelled, and neither onSuccess nor onFailure is called */
+        mClock.advance(OPEN_MILLIS - 1);
+        assertFalse(mBreaker.allowRequest());
+        mClock.advance(1);
+        assertTrue(mBreaker.allowRequest());
+        assertFalse(mBreaker.allowRequest());
+        mBreaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, mBreaker.getState());
+    }
+
+    @Test
+    public void retrierStopsCallingABackendThatIsDown() throws Exception {
+        FlakyBackend backend = new FlakyBackend(1);
+        Retrier retrier = new Retrier(new RetryPolicy(THRESHOLD, 0, 0, new Random(42)), mBreaker, IO_ERRORS);
+        try {
+            retrier.call(fetch(backend));
+            fail("Expected the injected failure");
+        } catch (IOException e) {
+            assertFalse(e instanceof CircuitBreaker.OpenException);
+        }
+        assertEquals(THRESHOLD, backend.getCalls());
+        assertEquals(CircuitBreaker.State.OPEN, mBreaker.getState());
+        try {
+            retrier.call(fetch(backend));
+            fail("Expected the breaker to be open");
+        } catch (CircuitBreaker.OpenException e) {
+            /* expected */
+        }
+        assertEquals(THRESHOLD, backend.getCalls());
+    }
+
+    @Test
+    public void retrierRecoversFromInjectedFailures() throws Exception {
+        FlakyBackend backend = new FlakyBackend(0.3);
+        Retrier retrier = new Retrier(new RetryPolicy(5, 0, 0, new Random(42)), mBreaker, IO_ERRORS);
+        int fetched = 0;
+        for (int i = 0; i < 100; i++) {
+            try {
+                assertEquals(FlakyBackend.TOKEN, retrier.call(fetch(backend)));
+                fetched++;
+            } catch (CircuitBreaker.OpenException e) {
+                mClock.advance(OPEN_MILLIS);
+            }
+        }
+        assertTrue("Only " + fetched + " of 100 fetches succeeded", fetched >= 90);
+        assertTrue(backend.getFailures() > 0);
+    }
+
+    private void failRequests(int failures) {
+        for (int i = 0; i < failures; i++) {
+            assertTrue(mBreaker.allowRequest());
+            mBreaker.onFailure();
+        }
+    }
+
+    private static Callable<String> fetch(final FlakyBackend backend) {
+        return new Callable<String>() {
+            @Override
+            public String call() throws IOException {
+                return backend.getToken();
+            }
+        };
+    }
+}
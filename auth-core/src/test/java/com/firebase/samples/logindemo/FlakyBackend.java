@@ -0,0 +1,42 @@
+package com.firebase.samples.logindemo;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Stands in for a provider backend that drops requests: every call fails with an {@link IOException} at the given
+ * rate, and otherwise hands out a fixed token. The failures are drawn from a seeded random, so runs are repeatable.
+ */
+public class FlakyBackend {
+
+    public static final String TOKEN = "ya29.fake-google-oauth-token";
+
+    private final double mFailureRate;
+
+    private final Random mRandom = new Random(42);
+
+    private long mCalls;
+
+    private long mFailures;
+
+    public FlakyBackend(double failureRate) {
+        mFailureRate = failureRate;
+    }
+
+    public String getToken() throws IOException {
+        mCalls++;
+        if (mRandom.nextDouble() < mFailureRate) {
+            mFailures++;
+            throw new IOException("Injected failure");
+        }
+        return TOKEN;
+    }
+
+    public long getCalls() {
+        return mCalls;
+    }
+
+    public long getFailures() {
+        return mFailures;
+    }
+}
@@ -0,0 +1,127 @@
+package com.firebase.samples.logindemo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the bucket layout of the {@link LatencyHistogram} and the percentiles it interpolates.
+ */
+public class LatencyHistogramTest {
+
+    private static final long MILLI = 1000 * 1000;
+
+    @Test
+    public void bucketsAreContiguous() {
+        for (int index = 1; index < LatencyHistogram.bucketIndex(Long.MAX_VALUE); index++) {
+            long lower = LatencyHistogram.bucketLowerBound(index);
+            assertEquals(LatencyHistogram.bucketUpperBound(index - 1) + 1, lower);
+            assertEquals(index, LatencyHistogram.bucketIndex(lower));
+            assertEquals(index, LatencyHistogram.bucketIndex(LatencyHistogram.bucketUpperBound(index)));
+        }
+    }
+
+    @Test
+    public void bucketsAreAtMostThreePercentWide() {
+        for (int index = 32; index < LatencyHistogram.bucketIndex(Long.MAX_VALUE); index++) {
+            long lower = LatencyHistogram.bucketLowerBound(index);
+            long width = LatencyHistogram.bucketUpperBound(index) - lower + 1;
+            assertTrue("Bucket " + index + " is " + width + "us wide", width * 32 <= lower);
+        }
+    }
+
+    @Test
+    public void nothingRecorded() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentileMicros(50));
+    }
+
+    @Test
+    public void percentilesOfEvenlySpreadLatencies() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1; millis <= 100; millis++) {
+            histogram.record(millis * MILLI);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(100 * 1000, histogram.getMaxMicros());
+        assertWithin(50 * 1000, histogram.getPercentileMicros(50), 0.03);
+        assertWithin(90 * 1000, histogram.getPercentileMicros(90), 0.03);
+        assertWithin(99 * 1000, histogram.getPercentileMicros(99), 0.03);
+        assertEquals(100 * 1000, histogram.getPercentileMicros(100));
+    }
+
+    @Test
+    public void percentilesInOneBucketAreInterpolated() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        /* 10.000ms to 10.198ms, all in the bucket of 9.984ms to 10.239ms */
+        for (int i = 0; i < 100; i++) {
+            histogram.record(10 * MILLI + i * 2000);
+        }
+        assertEquals(LatencyHistogram.bucketIndex(10000), LatencyHistogram.bucketIndex(10198));
+        assertTrue(histogram.getPercentileMicros(50) < histogram.getPercentileMicros(99));
+    }
+
+    @Test
+    public void percentilesDoNotExceedTheMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000 * MILLI);
+        assertEquals(1000 * 1000, histogram.getPercentileMicros(99));
+    }
+
+    @Test
+    public void longLatenciesEndUpInTheLastBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(60 * 60 * 1000 * MILLI);
+        histogram.record(-1);
+        assertEquals(2, histogram.getCount());
+        assertEquals(60L * 60 * 1000 * 1000, histogram.getMaxMicros());
+        assertEquals(0, histogram.getPercentileMicros(50));
+        int last = LatencyHistogram.bucketIndex(Long.MAX_VALUE);
+        assertEquals(LatencyHistogram.bucketUpperBound(last), histogram.getPercentileMicros(100));
+    }
+
+    @Test
+    public void reset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(5 * MILLI);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaxMicros());
+        assertEquals(0, histogram.getPercentileMicros(99));
+    }
+
+    @Test
+    public void concurrentRecordsAreAllCounted() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            final int offset = t;
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        histogram.record((i + offset) * 1000L);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40000, histogram.getCount());
+        assertEquals(10002, histogram.getMaxMicros());
+    }
+
+    private static void assertWithin(long expected, long actual, double tolerance) {
+        assertTrue("Expected about " + expected + " but was " + actual,
+                Math.abs(actual - expected) <= expected * tolerance);
+    }
+}
@@ -0,0 +1,100 @@
+package com.firebase.samples.logindemo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks which callbacks the {@link MainThreadWatchdog} counts and flags, and which step it blames.
+ */
+public class MainThreadWatchdogTest {
+
+    private static final MainThreadWatchdog.Callback CALLBACK = MainThreadWatchdog.Callback.AUTHENTICATED;
+
+    private final List<MainThreadWatchdog.Step> mBlamed = new ArrayList<MainThreadWatchdog.Step>();
+
+    private final MainThreadWatchdog.Listener mListener = new MainThreadWatchdog.Listener() {
+        @Override
+        public void onOverBudget(MainThreadWatchdog.Callback callback, MainThreadWatchdog.Step step, String report) {
+            mBlamed.add(step);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        MainThreadWatchdog.reset();
+    }
+
+    @After
+    public void tearDown() {
+        MainThreadWatchdog.disable();
+        MainThreadWatchdog.reset();
+    }
+
+    @Test
+    public void offByDefault() {
+        assertFalse(MainThreadWatchdog.begin(CALLBACK));
+        MainThreadWatchdog.end(false);
+        assertEquals(0, MainThreadWatchdog.getCallCount(CALLBACK));
+    }
+
+    @Test
+    public void countsCallbacksWithinTheBudget() {
+        MainThreadWatchdog.enable(10 * 1000, mListener);
+        MainThreadWatchdog.end(MainThreadWatchdog.begin(CALLBACK));
+        assertEquals(1, MainThreadWatchdog.getCallCount(CALLBACK));
+        assertEquals(0, MainThreadWatchdog.getOverBudgetCount(CALLBACK));
+        assertTrue(mBlamed.isEmpty());
+    }
+
+    @Test
+    public void blamesTheSlowestStep() throws InterruptedException {
+        MainThreadWatchdog.enable(1, mListener);
+        boolean began = MainThreadWatchdog.begin(CALLBACK);
+        MainThreadWatchdog.step(MainThreadWatchdog.Step.PROVIDER_DATA);
+        Thread.sleep(20);
+        MainThreadWatchdog.step(MainThreadWatchdog.Step.UI);
+        MainThreadWatchdog.end(began);
+        assertEquals(1, MainThreadWatchdog.getOverBudgetCount(CALLBACK));
+        assertEquals(1, MainThreadWatchdog.getBlamedCount(CALLBACK, MainThreadWatchdog.Step.PROVIDER_DATA));
+        assertEquals(1, mBlamed.size());
+        assertEquals(MainThreadWatchdog.Step.PROVIDER_DATA, mBlamed.get(0));
+    }
+
+    @Test
+    public void nestedCallbacksArePartOfTheOuterOne() {
+        MainThreadWatchdog.enable(10 * 1000, mListener);
+        boolean outer = MainThreadWatchdog.begin(CALLBACK);
+        boolean inner = MainThreadWatchdog.begin(MainThreadWatchdog.Callback.AUTH_STATE);
+        assertTrue(outer);
+        assertFalse(inner);
+        MainThreadWatchdog.end(inner);
+        MainThreadWatchdog.end(outer);
+        assertEquals(1, MainThreadWatchdog.getCallCount(CALLBACK));
+        assertEquals(0, MainThreadWatchdog.getCallCount(MainThreadWatchdog.Callback.AUTH_STATE));
+    }
+
+    @Test
+    public void ignoresStepsFromOtherThreads() throws InterruptedException {
+        MainThreadWatchdog.enable(1, mListener);
+        boolean began = MainThreadWatchdog.begin(CALLBACK);
+        Thread background = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                MainThreadWatchdog.step(MainThreadWatchdog.Step.SESSION_CACHE);
+            }
+        });
+        background.start();
+        background.join();
+        Thread.sleep(20);
+        MainThreadWatchdog.end(began);
+        assertEquals(1, MainThreadWatchdog.getBlamedCount(CALLBACK, MainThreadWatchdog.Step.OTHER));
+    }
+}
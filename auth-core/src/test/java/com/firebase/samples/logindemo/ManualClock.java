@@ -0,0 +1,18 @@
+package com.firebase.samples.logindemo;
+
+/**
+ * A {@link Clock} that only moves when it is told to.
+ */
+public class ManualClock implements Clock {
+
+    private long mNow;
+
+    @Override
+    public long now() {
+        return mNow;
+    }
+
+    public void advance(long millis) {
+        mNow += millis;
+    }
+}
@@ -0,0 +1,91 @@
+package com.firebase.samples.logindemo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Queues logins in a {@link PendingAuthQueue} as if the device were offline, and checks what is replayed.
+ */
+public class PendingAuthQueueTest {
+
+    private PendingAuthQueue mQueue;
+
+    @Before
+    public void setUp() {
+        mQueue = new PendingAuthQueue();
+    }
+
+    @Test
+    public void replaysInTheOrderTheLoginsWereMade() {
+        assertTrue(mQueue.enqueue("twitter", null));
+        assertTrue(mQueue.enqueue("google", AuthOptions.forToken("google-token")));
+        assertTrue(mQueue.enqueue("anonymous", null));
+        List<PendingAuthQueue.Request> requests = mQueue.drain();
+        assertEquals(3, requests.size());
+        assertEquals("twitter", requests.get(0).getProvider());
+        assertNull(requests.get(0).getOptions());
+        assertEquals("google", requests.get(1).getProvider());
+        assertEquals(AuthOptions.forToken("google-token"), requests.get(1).getOptions());
+        assertEquals("anonymous", requests.get(2).getProvider());
+    }
+
+    @Test
+    public void repeatedLoginsAreQueuedOnce() {
+        assertTrue(mQueue.enqueue("twitter", null));
+        assertFalse(mQueue.enqueue("twitter", null));
+        assertFalse(mQueue.enqueue("twitter", null));
+        assertEquals(1, mQueue.size());
+        assertEquals(2, mQueue.getCollapsedCount());
+    }
+
+    @Test
+    public void aRepeatedLoginKeepsItsPlace() {
+        mQueue.enqueue("twitter", null);
+        mQueue.enqueue("google", null);
+        mQueue.enqueue("twitter", null);
+        List<PendingAuthQueue.Request> requests = mQueue.drain();
+        assertEquals("twitter", requests.get(0).getProvider());
+        assertEquals("google", requests.get(1).getProvider());
+    }
+
+    @Test
+    public void loginsWithDifferentTokensAreBothQueued() {
+        assertTrue(mQueue.enqueue("google", AuthOptions.forToken("first")));
+        assertTrue(mQueue.enqueue("google", AuthOptions.forToken("second")));
+        assertTrue(mQueue.enqueue("google", null));
+        assertEquals(3, mQueue.size());
+        assertEquals(0, mQueue.getCollapsedCount());
+    }
+
+    @Test
+    public void drainEmptiesTheQueue() {
+        mQueue.enqueue("twitter", null);
+        mQueue.drain();
+        assertTrue(mQueue.isEmpty());
+        assertTrue(mQueue.drain().isEmpty());
+        /* a login that was replayed can be queued again */
+        assertTrue(mQueue.enqueue("twitter", null));
+    }
+
+    @Test
+    public void queuedOptionsCannotBeChanged() {
+        Map<String, String> options = AuthOptions.forToken("google-token");
+        mQueue.enqueue("google", options);
+        options.clear();
+        Map<String, String> queued = mQueue.drain().get(0).getOptions();
+        try {
+            queued.clear();
+        } catch (UnsupportedOperationException e) {
+            /* expected */
+        }
+        assertFalse(queued.isEmpty());
+    }
+}
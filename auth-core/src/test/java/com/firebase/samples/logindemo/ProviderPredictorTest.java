@@ -0,0 +1,94 @@
+package com.firebase.samples.logindemo;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks which provider a {@link ProviderPredictor} predicts from the picks, and that its scores survive a restart.
+ */
+public class ProviderPredictorTest {
+
+    private static final Collection<String> PROVIDERS = Arrays.asList("google", "facebook", "twitter", "password");
+
+    @Test
+    public void nothingWithoutHistory() {
+        ProviderPredictor predictor = new ProviderPredictor();
+        assertFalse(predictor.hasHistory());
+        assertNull(predictor.predict(PROVIDERS));
+    }
+
+    @Test
+    public void predictsTheProviderPickedBefore() {
+        ProviderPredictor predictor = new ProviderPredictor();
+        predictor.recordPick("google");
+        assertEquals("google", predictor.predict(PROVIDERS));
+        assertEquals(1.0, predictor.getConfidence("google"), 1e-9);
+    }
+
+    @Test
+    public void followsAUserWhoSwitchesProviders() {
+        ProviderPredictor predictor = new ProviderPredictor();
+        for (int i = 0; i < 10; i++) {
+            predictor.recordPick("google");
+        }
+        predictor.recordPick("twitter");
+        predictor.recordPick("twitter");
+        predictor.recordPick("twitter");
+        assertEquals("twitter", predictor.predict(PROVIDERS));
+    }
+
+    @Test
+    public void nothingIfThePicksAreSpread() {
+        ProviderPredictor predictor = new ProviderPredictor();
+        predictor.recordPick("google");
+        predictor.recordPick("facebook");
+        predictor.recordPick("twitter");
+        assertTrue(predictor.getConfidence("twitter") < ProviderPredictor.MIN_CONFIDENCE);
+        assertNull(predictor.predict(PROVIDERS));
+    }
+
+    @Test
+    public void onlyPredictsCandidates() {
+        ProviderPredictor predictor = new ProviderPredictor();
+        predictor.recordPick("anonymous");
+        assertNull(predictor.predict(PROVIDERS));
+    }
+
+    @Test
+    public void oldPicksAreForgotten() {
+        ProviderPredictor predictor = new ProviderPredictor();
+        predictor.recordPick("facebook");
+        for (int i = 0; i < 20; i++) {
+            predictor.recordPick("google");
+        }
+        assertEquals(1.0, predictor.getConfidence("google"), 1e-9);
+        assertFalse(predictor.encode().contains("facebook"));
+    }
+
+    @Test
+    public void encodeAndDecode() {
+        ProviderPredictor predictor = new ProviderPredictor();
+        predictor.recordPick("google");
+        predictor.recordPick("twitter");
+        predictor.recordPick("twitter");
+        ProviderPredictor restored = ProviderPredictor.decode(predictor.encode());
+        assertEquals(predictor.encode(), restored.encode());
+        assertEquals(predictor.getConfidence("twitter"), restored.getConfidence("twitter"), 1e-9);
+        assertEquals("twitter", restored.predict(PROVIDERS));
+    }
+
+    @Test
+    public void decodeSkipsMalformedScores() {
+        ProviderPredictor predictor = ProviderPredictor.decode("google=2.0,=1.0,twitter,facebook=x,password=-1");
+        assertEquals("google=2.0", predictor.encode());
+        assertFalse(ProviderPredictor.decode(null).hasHistory());
+        assertFalse(ProviderPredictor.decode("").hasHistory());
+    }
+}
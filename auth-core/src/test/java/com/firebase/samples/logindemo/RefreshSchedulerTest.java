@@ -0,0 +1,142 @@
+package com.firebase.samples.logindemo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives a {@link RefreshScheduler} with a {@link ManualClock}, and checks which refreshes run in which wakeup.
+ */
+public class RefreshSchedulerTest {
+
+    private static final long MINUTE = 60 * 1000;
+
+    private static final long AHEAD = 10 * MINUTE;
+
+    private static final long WINDOW = 5 * MINUTE;
+
+    private ManualClock mClock;
+
+    private RefreshScheduler mScheduler;
+
+    /* The keys of the refreshes in the order they ran */
+    private List<String> mRefreshed;
+
+    @Before
+    public void setUp() {
+        mClock = new ManualClock();
+        mScheduler = new RefreshScheduler(mClock, AHEAD, WINDOW);
+        mRefreshed = new ArrayList<String>();
+    }
+
+    @Test
+    public void nothingScheduled() {
+        assertEquals(Long.MAX_VALUE, mScheduler.getNextWakeup());
+        assertEquals(0, mScheduler.runDue());
+        assertEquals(0, mScheduler.getWakeupCount());
+    }
+
+    @Test
+    public void wakesUpAheadOfTheExpiry() {
+        mScheduler.schedule("firebase", 60 * MINUTE, record("firebase"));
+        assertEquals(50 * MINUTE, mScheduler.getNextWakeup());
+        mClock.advance(50 * MINUTE - WINDOW - 1);
+        assertEquals(0, mScheduler.runDue());
+        mClock.advance(1);
+        assertEquals(1, mScheduler.runDue());
+        assertEquals(Arrays.asList("firebase"), mRefreshed);
+        assertFalse(mScheduler.isScheduled("firebase"));
+        assertEquals(Long.MAX_VALUE, mScheduler.getNextWakeup());
+    }
+
+    @Test
+    public void batchesRefreshesWithinTheWindow() {
+        mScheduler.schedule("firebase", 64 * MINUTE, record("firebase"));
+        mScheduler.schedule("google_token", 60 * MINUTE, record("google_token"));
+        mScheduler.schedule("facebook_token", 70 * MINUTE, record("facebook_token"));
+        mClock.advance(mScheduler.getNextWakeup());
+        assertEquals(2, mScheduler.runDue());
+        assertEquals(Arrays.asList("google_token", "firebase"), mRefreshed);
+        assertEquals(60 * MINUTE, mScheduler.getNextWakeup());
+        assertEquals(1, mScheduler.getWakeupCount());
+        assertEquals(2, mScheduler.getRefreshCount());
+    }
+
+    @Test
+    public void runsEveryOverdueRefreshInOneWakeup() {
+        mScheduler.schedule("firebase", 4 * 60 * MINUTE, record("firebase"));
+        mScheduler.schedule("google_token", 60 * MINUTE, record("google_token"));
+        /* the device slept through both wakeups */
+        mClock.advance(8 * 60 * MINUTE);
+        assertTrue(mScheduler.getNextWakeup() < mClock.now());
+        assertEquals(2, mScheduler.runDue());
+        assertEquals(Arrays.asList("google_token", "firebase"), mRefreshed);
+        assertEquals(1, mScheduler.getWakeupCount());
+    }
+
+    @Test
+    public void schedulingAgainReplacesTheRefresh() {
+        mScheduler.schedule("google_token", 60 * MINUTE, record("google_token"));
+        mScheduler.schedule("google_token", 120 * MINUTE, record("google_token"));
+        assertEquals(110 * MINUTE, mScheduler.getNextWakeup());
+        mClock.advance(60 * MINUTE);
+        assertEquals(0, mScheduler.runDue());
+    }
+
+    @Test
+    public void cancelledRefreshesDoNotRun() {
+        mScheduler.schedule("google_token", 60 * MINUTE, record("google_token"));
+        mScheduler.cancel("google_token");
+        assertFalse(mScheduler.isScheduled("google_token"));
+        mClock.advance(60 * MINUTE);
+        assertEquals(0, mScheduler.runDue());
+        assertTrue(mRefreshed.isEmpty());
+    }
+
+    @Test
+    public void taskMayScheduleTheRefreshedCredential() {
+        mScheduler.schedule("google_token", 60 * MINUTE, new RefreshScheduler.Task() {
+            @Override
+            public void refresh() {
+                mScheduler.schedule("google_token", mClock.now() + 60 * MINUTE, this);
+            }
+        });
+        mClock.advance(mScheduler.getNextWakeup());
+        assertEquals(1, mScheduler.runDue());
+        assertTrue(mScheduler.isScheduled("google_token"));
+        assertEquals(100 * MINUTE, mScheduler.getNextWakeup());
+    }
+
+    @Test
+    public void takeDueLeavesTheTasksToTheCaller() {
+        mScheduler.schedule("firebase", 64 * MINUTE, record("firebase"));
+        mScheduler.schedule("google_token", 60 * MINUTE, record("google_token"));
+        mClock.advance(mScheduler.getNextWakeup());
+        List<RefreshScheduler.Task> due = mScheduler.takeDue();
+        assertEquals(2, due.size());
+        assertTrue(mRefreshed.isEmpty());
+        assertFalse(mScheduler.isScheduled("firebase"));
+        assertFalse(mScheduler.isScheduled("google_token"));
+        for (RefreshScheduler.Task task : due) {
+            task.refresh();
+        }
+        assertEquals(Arrays.asList("google_token", "firebase"), mRefreshed);
+        assertEquals(1, mScheduler.getWakeupCount());
+    }
+
+    private RefreshScheduler.Task record(final String key) {
+        return new RefreshScheduler.Task() {
+            @Override
+            public void refresh() {
+                mRefreshed.add(key);
+            }
+        };
+    }
+}
@@ -0,0 +1,109 @@
+package com.firebase.samples.logindemo;
+
+import com.firebase.client.AuthData;
+import com.firebase.client.Firebase;
+import com.firebase.client.FirebaseError;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks what a {@link RetryingAuthHandler} passes on after a failed attempt, in particular once the deadline of the
+ * login aborted it. The retries themselves are posted to the main thread, which does not run in these tests.
+ */
+public class RetryingAuthHandlerTest {
+
+    private static final FirebaseError NETWORK_ERROR = new FirebaseError(FirebaseError.NETWORK_ERROR, "Offline");
+
+    private static int sProviders;
+
+    /* A provider of its own for every test, as the circuit breakers are per provider and process */
+    private String mProvider;
+
+    private LoginDeadline mDeadline;
+
+    /* The handlers of the attempts made */
+    private final List<Firebase.AuthResultHandler> mAttempts = new ArrayList<Firebase.AuthResultHandler>();
+
+    private final List<FirebaseError> mErrors = new ArrayList<FirebaseError>();
+
+    private final RetryingAuthHandler.Attempt mAttempt = new RetryingAuthHandler.Attempt() {
+        @Override
+        public void run(Firebase.AuthResultHandler handler) {
+            mAttempts.add(handler);
+        }
+    };
+
+    private final Firebase.AuthResultHandler mHandler = new Firebase.AuthResultHandler() {
+        @Override
+        public void onAuthenticated(AuthData authData) {
+        }
+
+        @Override
+        public void onAuthenticationError(FirebaseError firebaseError) {
+            mErrors.add(firebaseError);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        mProvider = "provider-" + ++sProviders;
+        mDeadline = new LoginDeadline(mProvider, new LoginDeadline.Listener() {
+            @Override
+            public void onAborted(LoginDeadline deadline) {
+            }
+        });
+    }
+
+    @Test
+    public void transientErrorsAreRetried() {
+        RetryingAuthHandler.auth(mDeadline, mProvider, mAttempt, mHandler);
+        long recorded = AuthEventLog.getRecordedCount();
+        mAttempts.get(0).onAuthenticationError(NETWORK_ERROR);
+        assertTrue(mErrors.isEmpty());
+        assertEquals(recorded + 1, AuthEventLog.getRecordedCount());
+    }
+
+    @Test
+    public void otherErrorsArePassedOn() {
+        RetryingAuthHandler.auth(mDeadline, mProvider, mAttempt, mHandler);
+        FirebaseError error = new FirebaseError(FirebaseError.INVALID_TOKEN, "Invalid token");
+        mAttempts.get(0).onAuthenticationError(error);
+        assertEquals(1, mErrors.size());
+        assertEquals(error, mErrors.get(0));
+    }
+
+    @Test
+    public void errorsAfterTheDeadlineAbortedTheLoginAreDropped() {
+        RetryingAuthHandler.auth(mDeadline, mProvider, mAttempt, mHandler);
+        assertEquals(1, mAttempts.size());
+        /* the user cancels while the attempt is under way, and then it fails */
+        mDeadline.cancel();
+        long recorded = AuthEventLog.getRecordedCount();
+        mAttempts.get(0).onAuthenticationError(NETWORK_ERROR);
+        assertTrue(mErrors.isEmpty());
+        assertEquals(recorded, AuthEventLog.getRecordedCount());
+    }
+
+    @Test
+    public void noAttemptOnceTheDeadlineIsDone() {
+        mDeadline.cancel();
+        RetryingAuthHandler.auth(mDeadline, mProvider, mAttempt, mHandler);
+        assertTrue(mAttempts.isEmpty());
+        assertTrue(mErrors.isEmpty());
+    }
+
+    @Test
+    public void ownersOtherThanADeadlineAreNotAborted() {
+        RetryingAuthHandler.auth(this, mProvider, mAttempt, mHandler);
+        long recorded = AuthEventLog.getRecordedCount();
+        mAttempts.get(0).onAuthenticationError(NETWORK_ERROR);
+        assertEquals(recorded + 1, AuthEventLog.getRecordedCount());
+    }
+}
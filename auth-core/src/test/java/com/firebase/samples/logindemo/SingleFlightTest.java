@@ -0,0 +1,111 @@
+package com.firebase.samples.logindemo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that a {@link SingleFlight} lets one request through per key and hands its result to every waiter.
+ */
+public class SingleFlightTest {
+
+    private SingleFlight<String> mFlights;
+
+    @Before
+    public void setUp() {
+        mFlights = new SingleFlight<String>();
+    }
+
+    @Test
+    public void laterCallersJoinTheFlight() {
+        String key = SingleFlight.key("facebook", "token");
+        assertTrue(mFlights.join(key, "button"));
+        assertFalse(mFlights.join(key, "token change"));
+        assertFalse(mFlights.join(key, "replay"));
+        assertTrue(mFlights.isInFlight(key));
+        assertEquals(2, mFlights.getCoalescedCount());
+        assertEquals(Arrays.asList("button", "token change", "replay"), mFlights.complete(key));
+        assertFalse(mFlights.isInFlight(key));
+    }
+
+    @Test
+    public void differentCredentialsFlySeparately() {
+        assertTrue(mFlights.join(SingleFlight.key("facebook", "first"), "a"));
+        assertTrue(mFlights.join(SingleFlight.key("facebook", "second"), "b"));
+        assertTrue(mFlights.join(SingleFlight.key("google", "first"), "c"));
+        assertEquals(3, mFlights.size());
+        assertEquals(0, mFlights.getCoalescedCount());
+    }
+
+    @Test
+    public void aCompletedFlightStartsOver() {
+        String key = SingleFlight.key("anonymous", null);
+        assertTrue(mFlights.join(key, "first"));
+        mFlights.complete(key);
+        assertTrue(mFlights.join(key, "second"));
+        assertEquals(Arrays.asList("second"), mFlights.complete(key));
+    }
+
+    @Test
+    public void completingWithoutAFlightFails() {
+        try {
+            mFlights.complete(SingleFlight.key("twitter", "token"));
+            fail("Expected no flight");
+        } catch (IllegalStateException e) {
+            /* expected */
+        }
+    }
+
+    @Test
+    public void keysKeepOnlyAFingerprintOfTheCredential() {
+        String key = SingleFlight.key("password", "jane@example.com\nhunter2");
+        assertFalse(key.contains("hunter2"));
+        assertEquals(key, SingleFlight.key("password", "jane@example.com\nhunter2"));
+        assertNotEquals(key, SingleFlight.key("password", "jane@example.com\nhunter3"));
+    }
+
+    @Test
+    public void concurrentCallersMakeOneRequest() throws InterruptedException {
+        final String key = SingleFlight.key("google", "token");
+        final AtomicInteger requests = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 8; i++) {
+            final String waiter = "caller " + i;
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    if (mFlights.join(key, waiter)) {
+                        requests.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1, requests.get());
+        assertEquals(8, mFlights.complete(key).size());
+        assertEquals(7, mFlights.getCoalescedCount());
+    }
+}
@@ -0,0 +1,221 @@
+package com.firebase.samples.logindemo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks what the subscribers of a {@link StateStream} are handed, and in which order.
+ */
+public class StateStreamTest {
+
+    private StateStream<String> mStream;
+
+    @Before
+    public void setUp() {
+        mStream = new StateStream<String>();
+    }
+
+    @Test
+    public void newSubscribersGetTheLatestState() {
+        mStream.publish("logged out");
+        mStream.publish("alice");
+        Recorder<String> recorder = new Recorder<String>();
+        mStream.subscribe(StateStream.DIRECT, recorder);
+        mStream.publish("bob");
+        assertEquals(Arrays.asList("alice", "bob"), recorder.states);
+    }
+
+    @Test
+    public void nullIsAStateToo() {
+        mStream.publish(null);
+        Recorder<String> recorder = new Recorder<String>();
+        mStream.subscribe(StateStream.DIRECT, recorder);
+        assertTrue(mStream.hasState());
+        assertEquals(Collections.singletonList((String) null), recorder.states);
+    }
+
+    @Test
+    public void nothingIsReplayedBeforeTheFirstState() {
+        Recorder<String> recorder = new Recorder<String>();
+        mStream.subscribe(StateStream.DIRECT, recorder);
+        assertFalse(mStream.hasState());
+        assertTrue(recorder.states.isEmpty());
+    }
+
+    @Test
+    public void slowSubscribersOnlyGetTheLatestState() {
+        QueueExecutor executor = new QueueExecutor();
+        Recorder<String> recorder = new Recorder<String>();
+        mStream.subscribe(executor, recorder);
+        mStream.publish("logged out");
+        mStream.publish("alice");
+        mStream.publish("bob");
+        /* one delivery waits for the executor, it hands out the latest state */
+        assertEquals(1, executor.size());
+        executor.runAll();
+        assertEquals(Arrays.asList("bob"), recorder.states);
+        assertEquals(2, mStream.getDroppedCount());
+        assertEquals(1, mStream.getDeliveredCount());
+    }
+
+    @Test
+    public void everySubscriberHasItsOwnExecutor() {
+        QueueExecutor executor = new QueueExecutor();
+        Recorder<String> slow = new Recorder<String>();
+        Recorder<String> direct = new Recorder<String>();
+        mStream.subscribe(executor, slow);
+        mStream.subscribe(StateStream.DIRECT, direct);
+        mStream.publish("alice");
+        mStream.publish("bob");
+        assertEquals(Arrays.asList("alice", "bob"), direct.states);
+        assertTrue(slow.states.isEmpty());
+        executor.runAll();
+        assertEquals(Arrays.asList("bob"), slow.states);
+    }
+
+    @Test
+    public void cancelDropsTheWaitingState() {
+        QueueExecutor executor = new QueueExecutor();
+        Recorder<String> recorder = new Recorder<String>();
+        StateStream.Subscription<String> subscription = mStream.subscribe(executor, recorder);
+        mStream.publish("alice");
+        subscription.cancel();
+        mStream.publish("bob");
+        executor.runAll();
+        assertTrue(recorder.states.isEmpty());
+        assertEquals(0, mStream.getSubscriberCount());
+    }
+
+    @Test
+    public void aThrowingSubscriberGetsTheNextState() {
+        final List<String> states = new ArrayList<String>();
+        mStream.subscribe(StateStream.DIRECT, new StateStream.Subscriber<String>() {
+            @Override
+            public void onState(String state) {
+                states.add(state);
+                if ("alice".equals(state)) {
+                    throw new IllegalStateException();
+                }
+            }
+        });
+        try {
+            mStream.publish("alice");
+        } catch (IllegalStateException expected) {
+            /* thrown on the publishing thread by the direct executor */
+        }
+        mStream.publish("bob");
+        assertEquals(Arrays.asList("alice", "bob"), states);
+    }
+
+    @Test
+    public void statesArriveInTheOrderTheyWerePublished() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        final List<Integer> states = Collections.synchronizedList(new ArrayList<Integer>());
+        StateStream<Integer> stream = new StateStream<Integer>();
+        stream.subscribe(executor, new Recorder<Integer>(states));
+        for (int i = 0; i < 100000; i++) {
+            stream.publish(i);
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        for (int i = 1; i < states.size(); i++) {
+            assertTrue(states.get(i - 1) < states.get(i));
+        }
+        assertEquals(Integer.valueOf(99999), states.get(states.size() - 1));
+    }
+
+    @Test
+    public void concurrentPublishersEndWithTheLatestState() throws InterruptedException {
+        final StateStream<Integer> stream = new StateStream<Integer>();
+        final List<Integer> states = Collections.synchronizedList(new ArrayList<Integer>());
+        stream.subscribe(StateStream.DIRECT, new Recorder<Integer>(states));
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            final int offset = t * 1000000;
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < 10000; i++) {
+                        stream.publish(offset + i);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        /* a state that lost a race to a newer one is never delivered after it */
+        assertEquals(stream.getState(), states.get(states.size() - 1));
+        int[] latest = {-1, -1, -1, -1};
+        for (int state : states) {
+            assertTrue(state % 1000000 > latest[state / 1000000]);
+            latest[state / 1000000] = state % 1000000;
+        }
+        assertEquals(40000, stream.getPublishedCount());
+        assertEquals(states.size(), stream.getDeliveredCount());
+    }
+
+    private static class Recorder<T> implements StateStream.Subscriber<T> {
+
+        final List<T> states;
+
+        Recorder() {
+            this(new ArrayList<T>());
+        }
+
+        Recorder(List<T> states) {
+            this.states = states;
+        }
+
+        @Override
+        public void onState(T state) {
+            states.add(state);
+        }
+    }
+
+    /* Holds the deliveries until the test runs them */
+    private static class QueueExecutor implements Executor {
+
+        private final LinkedList<Runnable> mQueue = new LinkedList<Runnable>();
+
+        @Override
+        public void execute(Runnable command) {
+            mQueue.add(command);
+        }
+
+        int size() {
+            return mQueue.size();
+        }
+
+        void runAll() {
+            while (!mQueue.isEmpty()) {
+                mQueue.removeFirst().run();
+            }
+        }
+    }
+}
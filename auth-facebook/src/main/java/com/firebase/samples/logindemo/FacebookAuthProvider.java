@@ -0,0 +1,162 @@
+package com.firebase.samples.logindemo;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.facebook.AccessToken;
+import com.facebook.AccessTokenTracker;
+import com.facebook.CallbackManager;
+import com.facebook.FacebookSdk;
+import com.facebook.login.LoginManager;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Facebook login, using the {@link LoginManager} of the Facebook SDK. Token changes are tracked with an
+ * {@link AccessTokenTracker}: a new token is used to authenticate with Firebase, and logging out of Facebook also logs
+ * out of Firebase. The token is refreshed before it expires, see {@link SessionRefresher}; the refreshed token is
+ * again picked up by the tracker, and renews the Firebase session quietly, without the progress and deadline of a
+ * login.
+ */
+public class FacebookAuthProvider extends AuthProvider {
+
+    private static final String TAG = FacebookAuthProvider.class.getSimpleName();
+
+    /* The key of the token refresh, see SessionRefresher */
+    private static final String REFRESH_KEY = "facebook_token";
+
+    private static boolean sFacebookSdkInitialized;
+
+    /* Whether the token is being refreshed, so that the next token of the same user renews the session quietly */
+    private static boolean sRefreshPending;
+
+    /* Holds on to nothing, so it can outlive the provider */
+    private static final RefreshScheduler.Task REFRESH_TOKEN = new RefreshScheduler.Task() {
+        @Override
+        public void refresh() {
+            Log.d(TAG, "Refreshing the Facebook access token");
+            sRefreshPending = true;
+            AccessToken.refreshCurrentAccessTokenAsync();
+        }
+    };
+
+    /* The callback manager for Facebook */
+    private CallbackManager mFacebookCallbackManager;
+
+    /* Used to track user logging in/out off Facebook */
+    private AccessTokenTracker mFacebookAccessTokenTracker;
+
+    @Override
+    public String getName() {
+        return "facebook";
+    }
+
+    @Override
+    public void login() {
+        sRefreshPending = false;
+        setupFacebook();
+        LoginManager.getInstance().logInWithReadPermissions(mHost.getActivity(),
+                Collections.singletonList("public_profile"));
+    }
+
+    @Override
+    public void logout() {
+        /* Logout from Facebook */
+        ensureFacebookSdk(mHost.getActivity());
+        LoginManager.getInstance().logOut();
+    }
+
+    @Override
+    public boolean onActivityResult(int requestCode, int resultCode, Intent data) {
+        return mFacebookCallbackManager != null
+                && mFacebookCallbackManager.onActivityResult(requestCode, resultCode, data);
+    }
+
+    /**
+     * Track the Facebook token so that logging out of Facebook also logs out of Firebase.
+     */
+    @Override
+    public void onSessionShown() {
+        setupFacebook();
+    }
+
+    /**
+     * Initialize the Facebook SDK ahead of the login.
+     */
+    @Override
+    public List<Runnable> getPrewarmSteps() {
+        return Collections.<Runnable>singletonList(new Runnable() {
+            @Override
+            public void run() {
+                ensureFacebookSdk(mHost.getActivity());
+            }
+        });
+    }
+
+    @Override
+    public void onDestroy() {
+        // if user logged in with Facebook, stop tracking their token
+        if (mFacebookAccessTokenTracker != null) {
+            mFacebookAccessTokenTracker.stopTracking();
+        }
+    }
+
+    /**
+     * Initializes the Facebook SDK if it has not been initialized yet. This must happen before any Facebook class is
+     * used, and is deferred until Facebook login is actually used, see {@link ProviderInitializer}.
+     */
+    private static void ensureFacebookSdk(Context context) {
+        if (!sFacebookSdkInitialized) {
+            long start = SystemClock.elapsedRealtime();
+            FacebookSdk.sdkInitialize(context.getApplicationContext());
+            sFacebookSdkInitialized = true;
+            ProviderInitializer.recordDuration("facebook_init", start);
+        }
+    }
+
+    /* Initialize the Facebook SDK and set up the tracker to monitor access token changes */
+    private void setupFacebook() {
+        if (mFacebookCallbackManager != null) {
+            return;
+        }
+        ensureFacebookSdk(mHost.getActivity());
+        mFacebookCallbackManager = CallbackManager.Factory.create();
+        mFacebookAccessTokenTracker = new AccessTokenTracker() {
+            @Override
+            protected void onCurrentAccessTokenChanged(AccessToken oldAccessToken, AccessToken currentAccessToken) {
+                Log.i(TAG, "Facebook.AccessTokenTracker.OnCurrentAccessTokenChanged");
+                onFacebookAccessTokenChange(oldAccessToken, currentAccessToken);
+            }
+        };
+        scheduleRefresh(AccessToken.getCurrentAccessToken());
+    }
+
+    private void onFacebookAccessTokenChange(AccessToken oldToken, AccessToken token) {
+        boolean refreshed = sRefreshPending && oldToken != null && token != null
+                && oldToken.getUserId().equals(token.getUserId());
+        sRefreshPending = false;
+        scheduleRefresh(token);
+        if (refreshed) {
+            if (getName().equals(mHost.getSessionProvider())) {
+                mHost.getAuthSession().renewWithOAuthToken(getName(), AuthOptions.forToken(token.getToken()));
+            }
+        } else if (token != null) {
+            mHost.authWithFirebase(getName(), AuthOptions.forToken(token.getToken()));
+        } else if (getName().equals(mHost.getSessionProvider())) {
+            // Logged out of Facebook and currently authenticated with Firebase using Facebook, so do a logout
+            mHost.onProviderLoggedOut(getName());
+        }
+    }
+
+    private void scheduleRefresh(AccessToken token) {
+        SessionRefresher refresher = SessionRefresher.getInstance(mHost.getActivity());
+        if (token != null && !token.isExpired()) {
+            refresher.schedule(REFRESH_KEY, token.getExpires().getTime(), REFRESH_TOKEN);
+        } else {
+            refresher.cancel(REFRESH_KEY);
+        }
+    }
+}
@@ -0,0 +1,411 @@
+package com.firebase.samples.logindemo;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.content.IntentSender;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.firebase.client.AuthData;
+import com.firebase.client.Firebase;
+import com.firebase.client.FirebaseError;
+import com.google.android.gms.auth.UserRecoverableAuthException;
+import com.google.android.gms.common.ConnectionResult;
+import com.google.android.gms.common.Scopes;
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.plus.Plus;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Google+ login. Google provides its own API via the {@link GoogleApiClient}, which is used to get an OAuth token
+ * that Firebase is authenticated with.
+ */
+public class GoogleAuthProvider extends AuthProvider implements
+        GoogleApiClient.ConnectionCallbacks,
+        GoogleApiClient.OnConnectionFailedListener {
+
+    private static final String TAG = GoogleAuthProvider.class.getSimpleName();
+
+    /* Request code used to invoke sign in user interactions for Google+ */
+    public static final int RC_GOOGLE_LOGIN = 1;
+
+    /* The scope of the OAuth tokens that are used to authenticate with Firebase */
+    private static final String GOOGLE_SCOPE = String.format("oauth2:%s", Scopes.PLUS_LOGIN);
+
+    /* Network and server errors of the token request are retried, see Retrier */
+    private static final Retrier.ErrorClassifier TRANSIENT_ERRORS = new Retrier.ErrorClassifier() {
+        @Override
+        public boolean isTransient(Exception e) {
+            return e instanceof IOException && !(e instanceof CircuitBreaker.OpenException);
+        }
+    };
+
+    /* Client used to interact with Google APIs. */
+    private GoogleApiClient mGoogleApiClient;
+
+    /* A flag indicating that a PendingIntent is in progress and prevents us from starting further intents. */
+    private boolean mGoogleIntentInProgress;
+
+    /* Track whether the sign-in button has been clicked so that we know to resolve all issues preventing sign-in
+     * without waiting. */
+    private boolean mGoogleLoginClicked;
+
+    /* Store the connection result from onConnectionFailed callbacks so that we can resolve them when the user clicks
+     * sign-in. */
+    private ConnectionResult mGoogleConnectionResult;
+
+    /* When connecting the Google API client started, for AuthMetrics, or 0 if it is not connecting */
+    private long mGoogleConnectStart;
+
+    /* The deadline of the login under way, see LoginDeadline */
+    private LoginDeadline mDeadline;
+
+    /* Gives up on a connection that takes too long, or that the user cancelled */
+    private final Runnable mAbortConnect = new Runnable() {
+        @Override
+        public void run() {
+            mGoogleLoginClicked = false;
+            mGoogleConnectStart = 0;
+            getGoogleApiClient().disconnect();
+        }
+    };
+
+    /* Whether a token is being fetched, a second login (e.g. onConnected racing a click) waits for it instead */
+    private boolean mTokenFetchInFlight;
+
+    @Override
+    public String getName() {
+        return "google";
+    }
+
+    @Override
+    public void login() {
+        mGoogleLoginClicked = true;
+        if (!getGoogleApiClient().isConnecting()) {
+            if (mGoogleConnectionResult != null) {
+                resolveSignInError();
+            } else if (getGoogleApiClient().isConnected()) {
+                getGoogleOAuthTokenAndLogin();
+            } else {
+                /* connect API now */
+                Log.d(TAG, "Trying to connect to Google API");
+                connectGoogleApiClient();
+            }
+        } else {
+            /* a prewarm is connecting already, the login waits for it */
+            startConnectPhase();
+        }
+    }
+
+    /**
+     * Connect the Google API client ahead of the login. A connection that needs the user, e.g. to pick an account,
+     * fails and is resolved once the login button is clicked.
+     */
+    @Override
+    public List<Runnable> getPrewarmSteps() {
+        return Collections.<Runnable>singletonList(new Runnable() {
+            @Override
+            public void run() {
+                if (!getGoogleApiClient().isConnected() && !getGoogleApiClient().isConnecting()) {
+                    getGoogleApiClient().connect();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void logout() {
+        /* Logout from Google+ */
+        GoogleTokenCache.getInstance(mHost.getActivity()).clear();
+        if (mGoogleApiClient != null && mGoogleApiClient.isConnected()) {
+            Plus.AccountApi.clearDefaultAccount(mGoogleApiClient);
+            mGoogleApiClient.disconnect();
+        }
+    }
+
+    @Override
+    public boolean onActivityResult(int requestCode, int resultCode, Intent data) {
+        if (requestCode != RC_GOOGLE_LOGIN) {
+            return false;
+        }
+        /* This was a request by the Google API */
+        if (resultCode != Activity.RESULT_OK) {
+            mGoogleLoginClicked = false;
+        }
+        mGoogleIntentInProgress = false;
+        if (!getGoogleApiClient().isConnecting()) {
+            connectGoogleApiClient();
+        }
+        return true;
+    }
+
+    /* The Google API client is only built the first time it is needed */
+    private GoogleApiClient getGoogleApiClient() {
+        if (mGoogleApiClient == null) {
+            long start = SystemClock.elapsedRealtime();
+            /* Setup the Google API object to allow Google+ logins */
+            /* Built with the application context, as the provider outlives the activity across rotations */
+            mGoogleApiClient = new GoogleApiClient.Builder(mHost.getActivity().getApplicationContext())
+                    .addConnectionCallbacks(this)
+                    .addOnConnectionFailedListener(this)
+                    .addApi(Plus.API)
+                    .addScope(Plus.SCOPE_PLUS_LOGIN)
+                    .build();
+            ProviderInitializer.recordDuration("google_client_built", start);
+        }
+        return mGoogleApiClient;
+    }
+
+    private void connectGoogleApiClient() {
+        startConnectPhase();
+        getGoogleApiClient().connect();
+    }
+
+    private void startConnectPhase() {
+        if (mGoogleConnectStart == 0) {
+            mGoogleConnectStart = AuthMetrics.start();
+            AuthEventLog.record(getName(), AuthMetrics.Phase.CONNECT, AuthEventLog.Event.START, 0);
+        }
+        mDeadline = mHost.getAuthSession().getDeadline(getName());
+        mDeadline.startPhase(AuthMetrics.Phase.CONNECT, mAbortConnect);
+    }
+
+    /* The login waits for the user or is over, so the time until the next phase does not count */
+    private void endPhase() {
+        if (mDeadline != null) {
+            mDeadline.endPhase();
+        }
+    }
+
+    /* A helper method to resolve the current ConnectionResult error. */
+    private void resolveSignInError() {
+        if (mGoogleConnectionResult.hasResolution()) {
+            try {
+                mGoogleIntentInProgress = true;
+                mGoogleConnectionResult.startResolutionForResult(mHost.getActivity(), RC_GOOGLE_LOGIN);
+            } catch (IntentSender.SendIntentException e) {
+                // The intent was canceled before it was sent.  Return to the default
+                // state and attempt to connect to get an updated ConnectionResult.
+                mGoogleIntentInProgress = false;
+                connectGoogleApiClient();
+            }
+        }
+    }
+
+    private void getGoogleOAuthTokenAndLogin() {
+        mHost.showProgress();
+        final GoogleTokenCache tokenCache = GoogleTokenCache.getInstance(mHost.getActivity());
+        final String accountName = Plus.AccountApi.getAccountName(getGoogleApiClient());
+        final long tokenStart = AuthMetrics.start();
+        /* Reuse a token that was fetched earlier if it is still valid */
+        String cachedToken = tokenCache.peekToken(accountName, GOOGLE_SCOPE);
+        if (cachedToken != null) {
+            AuthMetrics.record(getName(), AuthMetrics.Phase.TOKEN, tokenStart);
+            AuthEventLog.record(getName(), AuthMetrics.Phase.TOKEN, AuthEventLog.Event.SUCCESS, 0);
+            mGoogleLoginClicked = false;
+            authWithGoogleToken(accountName, cachedToken);
+            return;
+        }
+        if (mTokenFetchInFlight) {
+            Log.d(TAG, "Google token fetch already in flight");
+            return;
+        }
+        mTokenFetchInFlight = true;
+        AuthEventLog.record(getName(), AuthMetrics.Phase.TOKEN, AuthEventLog.Event.START, 0);
+        /* Get OAuth token in Background. The provider owns the task, so it survives the activity being recreated. */
+        final AuthExecutor.AuthTask<String> task = AuthExecutor.getInstance().submit(this, new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return Retrier.forProvider(getName(), TRANSIENT_ERRORS).call(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return tokenCache.getToken(accountName, GOOGLE_SCOPE);
+                    }
+                });
+            }
+        }, new AuthExecutor.Callback<String>() {
+            @Override
+            public void onResult(String token) {
+                endPhase();
+                mTokenFetchInFlight = false;
+                AuthMetrics.record(getName(), AuthMetrics.Phase.TOKEN, tokenStart);
+                AuthEventLog.record(getName(), AuthMetrics.Phase.TOKEN, AuthEventLog.Event.SUCCESS, 0);
+                mGoogleLoginClicked = false;
+                /* Successfully got OAuth token, now login with Google */
+                authWithGoogleToken(accountName, token);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                endPhase();
+                mTokenFetchInFlight = false;
+                mGoogleLoginClicked = false;
+                AuthEventLog.record(getName(), AuthMetrics.Phase.TOKEN, AuthEventLog.Event.ERROR, 0);
+                String errorMessage;
+                if (e instanceof IOException) {
+                    /* Network or server error */
+                    Log.e(TAG, "Error authenticating with Google: " + e);
+                    errorMessage = "Network error: " + e.getMessage();
+                } else if (e instanceof UserRecoverableAuthException) {
+                    Log.w(TAG, "Recoverable Google OAuth error: " + e.toString());
+                    /* We probably need to ask for permissions, so start the intent if there is none pending */
+                    if (!mGoogleIntentInProgress) {
+                        mGoogleIntentInProgress = true;
+                        Intent recover = ((UserRecoverableAuthException) e).getIntent();
+                        mHost.getActivity().startActivityForResult(recover, RC_GOOGLE_LOGIN);
+                    }
+                    return;
+                } else {
+                    /* The call is not ever expected to succeed assuming you have already verified that
+                     * Google Play services is installed. */
+                    Log.e(TAG, "Error authenticating with Google: " + e.getMessage(), e);
+                    errorMessage = "Error authenticating with Google: " + e.getMessage();
+                }
+                mHost.hideProgress();
+                mHost.showError(errorMessage);
+            }
+        });
+        mDeadline = mHost.getAuthSession().getDeadline(getName());
+        mDeadline.startPhase(AuthMetrics.Phase.TOKEN, new Runnable() {
+            @Override
+            public void run() {
+                /* GoogleAuthUtil.getToken cannot be interrupted, but its result is dropped */
+                task.cancel(true);
+                mTokenFetchInFlight = false;
+                mGoogleLoginClicked = false;
+            }
+        });
+    }
+
+    private void authWithGoogleToken(final String accountName, final String token) {
+        final AuthSession session = mHost.getAuthSession();
+        final GoogleTokenCache tokenCache = GoogleTokenCache.getInstance(mHost.getActivity());
+        session.auth(getName(), token, newAttempt(session.getFirebaseRef(), tokenCache, accountName, token),
+                new Firebase.AuthResultHandler() {
+                    @Override
+                    public void onAuthenticated(AuthData authData) {
+                        session.setRenewal("google", new Renewal(tokenCache, accountName));
+                    }
+
+                    @Override
+                    public void onAuthenticationError(FirebaseError firebaseError) {
+                    }
+                });
+    }
+
+    private static RetryingAuthHandler.Attempt newAttempt(final Firebase firebaseRef,
+                                                          final GoogleTokenCache tokenCache,
+                                                          final String accountName, final String token) {
+        return new RetryingAuthHandler.Attempt() {
+            @Override
+            public void run(final Firebase.AuthResultHandler handler) {
+                firebaseRef.authWithOAuthToken("google", token, new Firebase.AuthResultHandler() {
+                    @Override
+                    public void onAuthenticated(AuthData authData) {
+                        handler.onAuthenticated(authData);
+                    }
+
+                    @Override
+                    public void onAuthenticationError(FirebaseError firebaseError) {
+                        /* Firebase did not accept the token, so make sure it is not handed out again */
+                        switch (firebaseError.getCode()) {
+                            case FirebaseError.INVALID_CREDENTIALS:
+                            case FirebaseError.INVALID_TOKEN:
+                            case FirebaseError.EXPIRED_TOKEN:
+                            case FirebaseError.PROVIDER_ERROR:
+                                tokenCache.invalidate(accountName, GOOGLE_SCOPE);
+                                break;
+                        }
+                        handler.onAuthenticationError(firebaseError);
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Renews the Firebase session with a fresh token of the account, as the token of the login has expired by then.
+     * It does not hold on to the provider, which may be gone by the time the session is renewed.
+     */
+    private static class Renewal implements AuthSession.Renewal {
+
+        private final GoogleTokenCache tokenCache;
+
+        private final String accountName;
+
+        private Renewal(GoogleTokenCache tokenCache, String accountName) {
+            this.tokenCache = tokenCache;
+            this.accountName = accountName;
+        }
+
+        @Override
+        public void renew(final AuthSession session, final boolean quiet) {
+            AuthExecutor.getInstance().submit(this, new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return tokenCache.getToken(accountName, GOOGLE_SCOPE);
+                }
+            }, new AuthExecutor.Callback<String>() {
+                @Override
+                public void onResult(String token) {
+                    session.renewAuth("google", token,
+                            newAttempt(session.getFirebaseRef(), tokenCache, accountName, token), quiet);
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    session.onRenewalFailed("google", quiet, "Could not get a Google token: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    @Override
+    public void onDestroy() {
+        AuthExecutor.getInstance().cancelAll(this);
+    }
+
+    @Override
+    public void onConnected(final Bundle bundle) {
+        if (mGoogleConnectStart != 0) {
+            AuthMetrics.record(getName(), AuthMetrics.Phase.CONNECT, mGoogleConnectStart);
+            AuthEventLog.record(getName(), AuthMetrics.Phase.CONNECT, AuthEventLog.Event.SUCCESS, 0);
+            mGoogleConnectStart = 0;
+            endPhase();
+        }
+        /* Connected with Google API, use this to authenticate with Firebase, unless this was a prewarm */
+        if (mGoogleLoginClicked) {
+            getGoogleOAuthTokenAndLogin();
+        }
+    }
+
+    @Override
+    public void onConnectionFailed(ConnectionResult result) {
+        AuthEventLog.record(getName(), AuthMetrics.Phase.CONNECT, AuthEventLog.Event.ERROR, result.getErrorCode());
+        /* resolving the error needs the user, e.g. to pick an account, which does not count against the deadline */
+        mGoogleConnectStart = 0;
+        endPhase();
+        if (!mGoogleIntentInProgress) {
+            /* Store the ConnectionResult so that we can use it later when the user clicks on the Google+ login button */
+            mGoogleConnectionResult = result;
+
+            if (mGoogleLoginClicked) {
+                /* The user has already clicked login so we attempt to resolve all errors until the user is signed in,
+                 * or they cancel. */
+                resolveSignInError();
+            } else {
+                Log.e(TAG, result.toString());
+            }
+        }
+    }
+
+    @Override
+    public void onConnectionSuspended(int i) {
+        // ignore
+    }
+}
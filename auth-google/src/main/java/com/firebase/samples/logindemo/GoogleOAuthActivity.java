@@ -3,12 +3,9 @@ package com.firebase.samples.logindemo;
 import android.app.Activity;
 import android.content.Intent;
 import android.content.IntentSender;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.util.Log;
 
-import com.google.android.gms.auth.GoogleAuthException;
-import com.google.android.gms.auth.GoogleAuthUtil;
 import com.google.android.gms.auth.UserRecoverableAuthException;
 import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.Scopes;
@@ -16,6 +13,7 @@ import com.google.android.gms.common.api.GoogleApiClient;
 import com.google.android.gms.plus.Plus;
 
 import java.io.IOException;
+import java.util.concurrent.Callable;
 
 /**
  * This is a sample GoogleOAuthActivity that has been extracted from {@link com.firebase.samples.logindemo.MainActivity} to
@@ -71,7 +69,7 @@ public class GoogleOAuthActivity extends Activity implements
         if (mGoogleConnectionResult.hasResolution()) {
             try {
                 mGoogleIntentInProgress = true;
-                mGoogleConnectionResult.startResolutionForResult(this, MainActivity.RC_GOOGLE_LOGIN);
+                mGoogleConnectionResult.startResolutionForResult(this, GoogleAuthProvider.RC_GOOGLE_LOGIN);
             } catch (IntentSender.SendIntentException e) {
                 // The intent was canceled before it was sent.  Return to the default
                 // state and attempt to connect to get an updated ConnectionResult.
@@ -82,53 +80,54 @@ public class GoogleOAuthActivity extends Activity implements
     }
 
     private void getGoogleOAuthTokenAndLogin() {
-        /* Get OAuth token in Background */
-        AsyncTask<Void, Void, String> task = new AsyncTask<Void, Void, String>() {
-            String errorMessage = null;
-
+        final GoogleTokenCache tokenCache = GoogleTokenCache.getInstance(this);
+        final String accountName = Plus.AccountApi.getAccountName(mGoogleApiClient);
+        /* Get OAuth token in Background, reusing a token that was fetched earlier if it is still valid */
+        AuthExecutor.getInstance().submit(this, new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                String scope = String.format("oauth2:%s", Scopes.PLUS_LOGIN);
+                return tokenCache.getToken(accountName, scope);
+            }
+        }, new AuthExecutor.Callback<String>() {
             @Override
-            protected String doInBackground(Void... params) {
-                String token = null;
+            public void onResult(String token) {
+                mGoogleLoginClicked = false;
+                Intent resultIntent = new Intent();
+                resultIntent.putExtra("oauth_token", token);
+                setResult(GoogleAuthProvider.RC_GOOGLE_LOGIN, resultIntent);
+                finish();
+            }
 
-                try {
-                    String scope = String.format("oauth2:%s", Scopes.PLUS_LOGIN);
-                    token = GoogleAuthUtil.getToken(GoogleOAuthActivity.this, Plus.AccountApi.getAccountName(mGoogleApiClient), scope);
-                } catch (IOException transientEx) {
+            @Override
+            public void onError(Exception e) {
+                mGoogleLoginClicked = false;
+                String errorMessage;
+                if (e instanceof IOException) {
                     /* Network or server error */
-                    Log.e(TAG, "Error authenticating with Google: " + transientEx);
-                    errorMessage = "Network error: " + transientEx.getMessage();
-                } catch (UserRecoverableAuthException e) {
+                    Log.e(TAG, "Error authenticating with Google: " + e);
+                    errorMessage = "Network error: " + e.getMessage();
+                } else if (e instanceof UserRecoverableAuthException) {
                     Log.w(TAG, "Recoverable Google OAuth error: " + e.toString());
                     /* We probably need to ask for permissions, so start the intent if there is none pending */
                     if (!mGoogleIntentInProgress) {
                         mGoogleIntentInProgress = true;
-                        Intent recover = e.getIntent();
-                        startActivityForResult(recover, MainActivity.RC_GOOGLE_LOGIN);
+                        Intent recover = ((UserRecoverableAuthException) e).getIntent();
+                        startActivityForResult(recover, GoogleAuthProvider.RC_GOOGLE_LOGIN);
                     }
-                } catch (GoogleAuthException authEx) {
+                    return;
+                } else {
                     /* The call is not ever expected to succeed assuming you have already verified that
                      * Google Play services is installed. */
-                    Log.e(TAG, "Error authenticating with Google: " + authEx.getMessage(), authEx);
-                    errorMessage = "Error authenticating with Google: " + authEx.getMessage();
+                    Log.e(TAG, "Error authenticating with Google: " + e.getMessage(), e);
+                    errorMessage = "Error authenticating with Google: " + e.getMessage();
                 }
-
-                return token;
-            }
-
-            @Override
-            protected void onPostExecute(String token) {
-                mGoogleLoginClicked = false;
                 Intent resultIntent = new Intent();
-                if (token != null) {
-                    resultIntent.putExtra("oauth_token", token);
-                } else if (errorMessage != null) {
-                    resultIntent.putExtra("error", errorMessage);
-                }
-                setResult(MainActivity.RC_GOOGLE_LOGIN, resultIntent);
+                resultIntent.putExtra("error", errorMessage);
+                setResult(GoogleAuthProvider.RC_GOOGLE_LOGIN, resultIntent);
                 finish();
             }
-        };
-        task.execute();
+        });
     }
 
     @Override
@@ -158,6 +157,12 @@ public class GoogleOAuthActivity extends Activity implements
         // ignore
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        AuthExecutor.getInstance().cancelAll(this);
+    }
+
     @Override
     public void onActivityResult(int requestCode, int resultCode, Intent data) {
         if (resultCode != RESULT_OK) {
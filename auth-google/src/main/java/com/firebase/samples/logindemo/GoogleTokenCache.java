@@ -0,0 +1,217 @@
+package com.firebase.samples.logindemo;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.android.gms.auth.GoogleAuthException;
+import com.google.android.gms.auth.GoogleAuthUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Caches the OAuth tokens of {@link GoogleAuthUtil#getToken(Context, String, String)} by account name and scope, so
+ * that logging in with Google again does not cost another round trip to Play services. Tokens are assumed to be valid
+ * for an hour, and are refreshed in the background shortly before, see {@link SessionRefresher}.
+ */
+public class GoogleTokenCache {
+
+    private static final String TAG = GoogleTokenCache.class.getSimpleName();
+
+    /* How long a Google access token is valid for */
+    private static final long TOKEN_LIFETIME_MS = 60 * 60 * 1000;
+
+    /* Cached tokens are not handed out anymore once they are this close to expiring */
+    private static final long EXPIRY_MARGIN_MS = 5 * 60 * 1000;
+
+    /* Cached tokens are refreshed in the background once they are this close to expiring, like the SessionRefresher */
+    private static final long REFRESH_AHEAD_MS = RefreshScheduler.DEFAULT_REFRESH_AHEAD_MS;
+
+    /* Prefix of the keys of the token refreshes, see SessionRefresher */
+    private static final String REFRESH_KEY_PREFIX = "google_token ";
+
+    private static GoogleTokenCache sInstance;
+
+    private final Context mContext;
+
+    private final SessionRefresher mRefresher;
+
+    /* The clock of the SessionRefresher, so that the expiries of the entries and their refreshes agree */
+    private final Clock mClock = Clock.WALL;
+
+    private final Map<String, Entry> mEntries = new HashMap<String, Entry>();
+
+    public static synchronized GoogleTokenCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new GoogleTokenCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private GoogleTokenCache(Context context) {
+        mContext = context;
+        mRefresher = SessionRefresher.getInstance(context);
+    }
+
+    /**
+     * Returns a cached token that is still valid, or null if a new one has to be fetched with
+     * {@link #getToken(String, String)}. Starts a background refresh if the token is about to expire.
+     */
+    public String peekToken(String accountName, String scope) {
+        Entry entry;
+        synchronized (mEntries) {
+            entry = mEntries.get(key(accountName, scope));
+        }
+        if (entry == null) {
+            return null;
+        }
+        long remaining = entry.expiresAt - mClock.now();
+        if (remaining <= EXPIRY_MARGIN_MS) {
+            return null;
+        }
+        if (remaining <= REFRESH_AHEAD_MS) {
+            refreshInBackground(accountName, scope, entry);
+        }
+        return entry.token;
+    }
+
+    /**
+     * Returns a valid token, fetching it from Play services if there is no usable one in the cache. This blocks and
+     * must not be called from the main thread.
+     */
+    public String getToken(String accountName, String scope) throws IOException, GoogleAuthException {
+        String token = peekToken(accountName, scope);
+        if (token == null) {
+            token = fetch(accountName, scope);
+        }
+        return token;
+    }
+
+    /**
+     * Drops a token that was rejected and clears it from Play services, so the next request gets a new one.
+     */
+    public void invalidate(String accountName, String scope) {
+        final Entry entry;
+        synchronized (mEntries) {
+            entry = mEntries.remove(key(accountName, scope));
+        }
+        mRefresher.cancel(refreshKey(accountName, scope));
+        if (entry != null) {
+            clearToken(entry);
+        }
+    }
+
+    /**
+     * Forgets all cached tokens and clears them from Play services, e.g. when the user logs out of Google.
+     */
+    public void clear() {
+        List<String> keys;
+        List<Entry> entries;
+        synchronized (mEntries) {
+            keys = new ArrayList<String>(mEntries.keySet());
+            entries = new ArrayList<Entry>(mEntries.values());
+            mEntries.clear();
+        }
+        for (String key : keys) {
+            mRefresher.cancel(REFRESH_KEY_PREFIX + key);
+        }
+        for (Entry entry : entries) {
+            clearToken(entry);
+        }
+    }
+
+    /* Play services hands out the token it already has until it is cleared */
+    private void clearToken(final Entry entry) {
+        AuthExecutor.getInstance().submit(this, new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                GoogleAuthUtil.clearToken(mContext, entry.token);
+                return null;
+            }
+        }, new LoggingCallback<Void>("clear"));
+    }
+
+    private String fetch(final String accountName, final String scope) throws IOException, GoogleAuthException {
+        long expiresAt = mClock.now() + TOKEN_LIFETIME_MS;
+        String token = GoogleAuthUtil.getToken(mContext, accountName, scope);
+        final Entry entry = new Entry(token, expiresAt);
+        synchronized (mEntries) {
+            mEntries.put(key(accountName, scope), entry);
+        }
+        mRefresher.schedule(refreshKey(accountName, scope), expiresAt, new RefreshScheduler.Task() {
+            @Override
+            public void refresh() {
+                refreshInBackground(accountName, scope, entry);
+            }
+        });
+        return token;
+    }
+
+    private void refreshInBackground(final String accountName, final String scope, final Entry entry) {
+        synchronized (mEntries) {
+            /* the entry may have been invalidated or replaced since */
+            if (entry.refreshing || mEntries.get(key(accountName, scope)) != entry) {
+                return;
+            }
+            entry.refreshing = true;
+        }
+        AuthExecutor.getInstance().submit(this, new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                GoogleAuthUtil.clearToken(mContext, entry.token);
+                return fetch(accountName, scope);
+            }
+        }, new LoggingCallback<String>("refresh") {
+            @Override
+            public void onError(Exception e) {
+                super.onError(e);
+                synchronized (mEntries) {
+                    entry.refreshing = false;
+                }
+            }
+        });
+    }
+
+    private static String key(String accountName, String scope) {
+        return accountName + " " + scope;
+    }
+
+    private static String refreshKey(String accountName, String scope) {
+        return REFRESH_KEY_PREFIX + key(accountName, scope);
+    }
+
+    private static class Entry {
+        private final String token;
+        /* In terms of the clock of the cache */
+        private final long expiresAt;
+        private boolean refreshing;
+
+        private Entry(String token, long expiresAt) {
+            this.token = token;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static class LoggingCallback<T> implements AuthExecutor.Callback<T> {
+
+        private final String operation;
+
+        private LoggingCallback(String operation) {
+            this.operation = operation;
+        }
+
+        @Override
+        public void onResult(T result) {
+            Log.d(TAG, "Google token " + operation + " finished");
+        }
+
+        @Override
+        public void onError(Exception e) {
+            Log.w(TAG, "Google token " + operation + " failed: " + e);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.firebase.samples.logindemo;
+
+/**
+ * Email/Password login, provided by {@link com.firebase.client.Firebase} itself.
+ */
+public class PasswordAuthProvider extends AuthProvider {
+
+    @Override
+    public String getName() {
+        return "password";
+    }
+
+    @Override
+    public void login() {
+        mHost.showProgress();
+        mHost.getAuthSession().authWithPassword("test@firebaseuser.com", "test1234");
+    }
+}
@@ -0,0 +1,157 @@
+package com.firebase.samples.logindemo;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.ProtocolException;
+
+/**
+ * The OAuth 1.0a handshake of the Twitter login: fetches a request token, builds the url where the user authorizes
+ * the application, and exchanges the authorized request token for an access token, see
+ * https://dev.twitter.com/oauth/reference/post/oauth/request_token. Responses other than 200 are thrown as
+ * {@link HttpException}, malformed ones as {@link ProtocolException}. Thread safe.
+ */
+public class OAuthClient {
+
+    public static final String TWITTER_URL = "https://api.twitter.com";
+
+    private final String mBaseUrl;
+
+    private final OAuthSigner mSigner;
+
+    private final AuthHttpClient mHttp;
+
+    /**
+     * @param baseUrl the url the /oauth endpoints are relative to, {@link #TWITTER_URL} or a local stand-in
+     */
+    public OAuthClient(String baseUrl, OAuthSigner signer, AuthHttpClient http) {
+        mBaseUrl = baseUrl;
+        mSigner = signer;
+        mHttp = http;
+    }
+
+    /**
+     * Opens a connection to the OAuth endpoints in the background, unless there is an idle one already.
+     */
+    public void preconnect() {
+        mHttp.preconnect(mBaseUrl);
+    }
+
+    /**
+     * Fetches a request token for the given callback url. This blocks.
+     */
+    public Token getRequestToken(String callbackUrl) throws IOException {
+        return getRequestToken(callbackUrl, null);
+    }
+
+    /**
+     * Fetches a request token for the given callback url as part of a call, or with the default timeouts if it is
+     * null. This blocks.
+     */
+    public Token getRequestToken(String callbackUrl, AuthHttpClient.Call call) throws IOException {
+        Token token = post(call, "/oauth/request_token", null, "oauth_callback", callbackUrl);
+        if (!"true".equals(token.getParameter("oauth_callback_confirmed"))) {
+            throw new ProtocolException("The callback url was not confirmed");
+        }
+        return token;
+    }
+
+    /**
+     * Returns the url of the page where the user authorizes the request token. The page redirects to the callback url
+     * with the oauth_verifier once the user did.
+     */
+    public String getAuthorizationUrl(Token requestToken) {
+        return mBaseUrl + "/oauth/authorize?oauth_token=" + OAuthSigner.percentEncode(requestToken.getToken());
+    }
+
+    /**
+     * Exchanges the authorized request token for an access token. This blocks.
+     */
+    public Token getAccessToken(Token requestToken, String verifier) throws IOException {
+        return getAccessToken(requestToken, verifier, null);
+    }
+
+    /**
+     * Exchanges the authorized request token for an access token as part of a call, or with the default timeouts if
+     * it is null. This blocks.
+     */
+    public Token getAccessToken(Token requestToken, String verifier, AuthHttpClient.Call call) throws IOException {
+        return post(call, "/oauth/access_token", requestToken, "oauth_verifier", verifier);
+    }
+
+    private Token post(AuthHttpClient.Call call, String path, Token token, String... oauthParams) throws IOException {
+        String url = mBaseUrl + path;
+        String authorization = token != null
+                ? mSigner.getAuthorizationHeader("POST", url, token.getToken(), token.getSecret(), oauthParams)
+                : mSigner.getAuthorizationHeader("POST", url, null, null, oauthParams);
+        /* all parameters are in the Authorization header, the body is empty */
+        AuthHttpClient.Response response = mHttp.execute(call, "POST", url, "", "Authorization", authorization,
+                "Content-Type", "application/x-www-form-urlencoded");
+        int status = response.getStatusCode();
+        String body = response.getBody();
+        if (status != HttpURLConnection.HTTP_OK) {
+            throw new HttpException(status, "POST " + path + " failed with " + status + ": " + body);
+        }
+        Token result = new Token(body);
+        if (result.getToken() == null || result.getSecret() == null) {
+            throw new ProtocolException("POST " + path + " returned no token: " + body);
+        }
+        return result;
+    }
+
+    /**
+     * A request or access token, with the other parameters of the form encoded response it came with.
+     */
+    public static class Token {
+
+        private final String response;
+        private final String token;
+        private final String secret;
+
+        public Token(String response) {
+            this.response = "?" + response;
+            this.token = getParameter("oauth_token");
+            this.secret = getParameter("oauth_token_secret");
+        }
+
+        public String getToken() {
+            return token;
+        }
+
+        public String getSecret() {
+            return secret;
+        }
+
+        /**
+         * The user id of an access token, or null for a request token.
+         */
+        public String getUserId() {
+            return getParameter("user_id");
+        }
+
+        /**
+         * Returns the decoded value of a parameter of the response, or null if it does not have it.
+         */
+        public String getParameter(String name) {
+            return OAuthCallback.getQueryParameter(response, name);
+        }
+    }
+
+    /**
+     * The server answered with an error status, e.g. 401 if the signature was rejected.
+     */
+    public static class HttpException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int mStatusCode;
+
+        public HttpException(int statusCode, String message) {
+            super(message);
+            mStatusCode = statusCode;
+        }
+
+        public int getStatusCode() {
+            return mStatusCode;
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.firebase.samples.logindemo;
+
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Locale;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Signs OAuth 1.0a requests with HMAC-SHA1, see RFC 5849 section 3 and https://dev.twitter.com/oauth/overview. Every
+ * thread reuses its own buffers and {@link Mac}, so instances are thread safe.
+ */
+public class OAuthSigner {
+
+    public static final String SIGNATURE_METHOD = "HMAC-SHA1";
+
+    public static final String VERSION = "1.0";
+
+    private static final String HMAC_SHA1 = "HmacSHA1";
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private static final char[] BASE64 =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    private static final SecureRandom sRandom = new SecureRandom();
+
+    /* The buffers of the signing thread, see Scratch */
+    private static final ThreadLocal<Scratch> sScratch = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+
+    private final String mConsumerKey;
+
+    /* The percent-encoded consumer secret and the '&' of the signing key, the token secret follows */
+    private final String mKeyPrefix;
+
+    private final Clock mClock;
+
+    public OAuthSigner(String consumerKey, String consumerSecret) {
+        this(consumerKey, consumerSecret, Clock.WALL);
+    }
+
+    /**
+     * @param clock the wall clock the oauth_timestamp is taken from
+     */
+    public OAuthSigner(String consumerKey, String consumerSecret, Clock clock) {
+        mConsumerKey = consumerKey;
+        mKeyPrefix = percentEncode(consumerSecret) + '&';
+        mClock = clock;
+    }
+
+    /**
+     * Returns the Authorization header of a request, with a new nonce and the current time.
+     *
+     * @param url         the url of the request, without query
+     * @param token       the token the request is made with, or null if it has none (e.g. for a request token)
+     * @param tokenSecret the secret of the token, or null
+     * @param params      name, value pairs of the query and form parameters of the request and of additional oauth_
+     *                    parameters such as oauth_callback. Only the oauth_ parameters are put into the header.
+     */
+    public String getAuthorizationHeader(String method, String url, String token, String tokenSecret,
+                                         String... params) {
+        return getAuthorizationHeader(method, url, token, tokenSecret, newNonce(), mClock.now() / 1000, params);
+    }
+
+    /**
+     * Returns the Authorization header of a request with the given nonce and timestamp (in seconds), see
+     * {@link #getAuthorizationHeader(String, String, String, String, String...)}.
+     */
+    public String getAuthorizationHeader(String method, String url, String token, String tokenSecret, String nonce,
+                                         long timestamp, String... params) {
+        int oauthParams = token != null ? 12 : 10;
+        String[] encoded = new String[params.length + oauthParams];
+        encodeAll(params, encoded);
+        int i = params.length;
+        encoded[i++] = "oauth_consumer_key";
+        encoded[i++] = percentEncode(mConsumerKey);
+        encoded[i++] = "oauth_nonce";
+        encoded[i++] = percentEncode(nonce);
+        encoded[i++] = "oauth_signature_method";
+        encoded[i++] = SIGNATURE_METHOD;
+        encoded[i++] = "oauth_timestamp";
+        encoded[i++] = Long.toString(timestamp);
+        encoded[i++] = "oauth_version";
+        encoded[i++] = VERSION;
+        if (token != null) {
+            encoded[i++] = "oauth_token";
+            encoded[i] = percentEncode(token);
+        }
+        sortPairs(encoded);
+
+        Scratch scratch = sScratch.get();
+        String signature = sign(scratch, method, url, tokenSecret, encoded);
+        StringBuilder header = scratch.builder;
+        header.setLength(0);
+        header.append("OAuth ");
+        for (int pair = 0; pair < encoded.length; pair += 2) {
+            if (encoded[pair].startsWith("oauth_")) {
+                header.append(encoded[pair]).append("=\"").append(encoded[pair + 1]).append("\", ");
+            }
+        }
+        header.append("oauth_signature=\"");
+        appendEncoded(signature, header);
+        return header.append('"').toString();
+    }
+
+    /**
+     * Returns the base64 encoded signature of a request.
+     *
+     * @param params name, value pairs of all parameters of the request, including the oauth_ parameters except for
+     *               oauth_signature
+     */
+    public String getSignature(String method, String url, String tokenSecret, String... params) {
+        String[] encoded = new String[params.length];
+        encodeAll(params, encoded);
+        sortPairs(encoded);
+        return sign(sScratch.get(), method, url, tokenSecret, encoded);
+    }
+
+    /**
+     * Returns the signature base string of a request, see {@link #getSignature(String, String, String, String...)}.
+     */
+    public static String getSignatureBaseString(String method, String url, String... params) {
+        String[] encoded = new String[params.length];
+        encodeAll(params, encoded);
+        sortPairs(encoded);
+        StringBuilder baseString = new StringBuilder();
+        appendBaseString(method, url, encoded, baseString);
+        return baseString.toString();
+    }
+
+    /**
+     * Returns the value percent-encoded as RFC 3986 section 2.1 requires it for OAuth, i.e. everything but the
+     * unreserved characters is encoded as UTF-8. Returns the value itself if it needs no encoding.
+     */
+    public static String percentEncode(String value) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if (!isUnreserved(value.charAt(i))) {
+                StringBuilder encoded = new StringBuilder(length + 16);
+                appendEncoded(value, encoded);
+                return encoded.toString();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Appends the value percent-encoded, see {@link #percentEncode(String)}.
+     */
+    public static void appendEncoded(String value, StringBuilder out) {
+        int length = value.length();
+        int i = 0;
+        while (i < length) {
+            int c = value.codePointAt(i);
+            i += Character.charCount(c);
+            if (c < 0x80) {
+                if (isUnreserved((char) c)) {
+                    out.append((char) c);
+                } else {
+                    appendByte(c, out);
+                }
+            } else if (c < 0x800) {
+                appendByte(0xC0 | (c >> 6), out);
+                appendByte(0x80 | (c & 0x3F), out);
+            } else if (c < 0x10000) {
+                appendByte(0xE0 | (c >> 12), out);
+                appendByte(0x80 | ((c >> 6) & 0x3F), out);
+                appendByte(0x80 | (c & 0x3F), out);
+            } else {
+                appendByte(0xF0 | (c >> 18), out);
+                appendByte(0x80 | ((c >> 12) & 0x3F), out);
+                appendByte(0x80 | ((c >> 6) & 0x3F), out);
+                appendByte(0x80 | (c & 0x3F), out);
+            }
+        }
+    }
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+
+    private static void appendByte(int b, StringBuilder out) {
+        out.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+    }
+
+    private static String newNonce() {
+        byte[] bytes = new byte[16];
+        sRandom.nextBytes(bytes);
+        char[] nonce = new char[32];
+        for (int i = 0; i < bytes.length; i++) {
+            nonce[2 * i] = HEX[(bytes[i] >> 4) & 0xF];
+            nonce[2 * i + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(nonce);
+    }
+
+    private static void encodeAll(String[] params, String[] encoded) {
+        if (params.length % 2 != 0) {
+            throw new IllegalArgumentException("Parameters must be name, value pairs");
+        }
+        for (int i = 0; i < params.length; i++) {
+            encoded[i] = percentEncode(params[i] != null ? params[i] : "");
+        }
+    }
+
+    /* Sorts the encoded name, value pairs by name and then by value, see RFC 5849 section 3.4.1.3.2. There are only a
+     * handful of parameters, so this is an insertion sort that does not allocate. */
+    private static void sortPairs(String[] pairs) {
+        for (int i = 2; i < pairs.length; i += 2) {
+            String name = pairs[i];
+            String value = pairs[i + 1];
+            int j = i - 2;
+            while (j >= 0 && compare(pairs[j], pairs[j + 1], name, value) > 0) {
+                pairs[j + 2] = pairs[j];
+                pairs[j + 3] = pairs[j + 1];
+                j -= 2;
+            }
+            pairs[j + 2] = name;
+            pairs[j + 3] = value;
+        }
+    }
+
+    private static int compare(String name1, String value1, String name2, String value2) {
+        int names = name1.compareTo(name2);
+        return names != 0 ? names : value1.compareTo(value2);
+    }
+
+    /* Appends METHOD&url&parameters, with the url and the parameter string percent-encoded */
+    private static void appendBaseString(String method, String url, String[] encoded, StringBuilder out) {
+        out.append(method.toUpperCase(Locale.US)).append('&');
+        appendEncoded(url, out);
+        out.append('&');
+        for (int pair = 0; pair < encoded.length; pair += 2) {
+            if (pair > 0) {
+                out.append("%26");
+            }
+            appendEncodedAgain(encoded[pair], out);
+            out.append("%3D");
+            appendEncodedAgain(encoded[pair + 1], out);
+        }
+    }
+
+    /* Percent-encodes a percent-encoded value, which only consists of unreserved characters and escapes */
+    private static void appendEncodedAgain(String encoded, StringBuilder out) {
+        int length = encoded.length();
+        for (int i = 0; i < length; i++) {
+            char c = encoded.charAt(i);
+            if (c == '%') {
+                out.append("%25");
+            } else {
+                out.append(c);
+            }
+        }
+    }
+
+    private String sign(Scratch scratch, String method, String url, String tokenSecret, String[] encoded) {
+        StringBuilder baseString = scratch.builder;
+        baseString.setLength(0);
+        appendBaseString(method, url, encoded, baseString);
+        /* the base string is ASCII after the percent-encoding */
+        int length = baseString.length();
+        if (scratch.bytes.length < length) {
+            scratch.bytes = new byte[Math.max(length, 2 * scratch.bytes.length)];
+        }
+        for (int i = 0; i < length; i++) {
+            scratch.bytes[i] = (byte) baseString.charAt(i);
+        }
+        try {
+            Mac mac = scratch.getMac(mKeyPrefix, tokenSecret);
+            mac.update(scratch.bytes, 0, length);
+            mac.doFinal(scratch.digest, 0);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA1 is not supported", e);
+        }
+        return base64(scratch.digest);
+    }
+
+    private static String base64(byte[] bytes) {
+        char[] out = new char[(bytes.length + 2) / 3 * 4];
+        int o = 0;
+        for (int i = 0; i < bytes.length; i += 3) {
+            int remaining = bytes.length - i;
+            int triple = (bytes[i] & 0xFF) << 16;
+            if (remaining > 1) {
+                triple |= (bytes[i + 1] & 0xFF) << 8;
+            }
+            if (remaining > 2) {
+                triple |= bytes[i + 2] & 0xFF;
+            }
+            out[o++] = BASE64[(triple >> 18) & 0x3F];
+            out[o++] = BASE64[(triple >> 12) & 0x3F];
+            out[o++] = remaining > 1 ? BASE64[(triple >> 6) & 0x3F] : '=';
+            out[o++] = remaining > 2 ? BASE64[triple & 0x3F] : '=';
+        }
+        return new String(out);
+    }
+
+    /**
+     * The buffers a thread signs with. The {@link Mac} keeps its key between requests, so it is only initialized
+     * again when the request is signed with another key.
+     */
+    private static class Scratch {
+
+        private final StringBuilder builder = new StringBuilder(512);
+
+        private final byte[] digest = new byte[20];
+
+        private byte[] bytes = new byte[512];
+
+        private Mac mac;
+
+        private String keyPrefix;
+
+        private String tokenSecret;
+
+        private Mac getMac(String keyPrefix, String tokenSecret) throws GeneralSecurityException {
+            if (tokenSecret == null) {
+                tokenSecret = "";
+            }
+            if (mac == null) {
+                mac = Mac.getInstance(HMAC_SHA1);
+            } else if (keyPrefix.equals(this.keyPrefix) && tokenSecret.equals(this.tokenSecret)) {
+                return mac;
+            }
+            /* the key is ASCII after the percent-encoding */
+            String key = keyPrefix + percentEncode(tokenSecret);
+            byte[] keyBytes = new byte[key.length()];
+            for (int i = 0; i < keyBytes.length; i++) {
+                keyBytes[i] = (byte) key.charAt(i);
+            }
+            mac.init(new SecretKeySpec(keyBytes, HMAC_SHA1));
+            this.keyPrefix = keyPrefix;
+            this.tokenSecret = tokenSecret;
+            return mac;
+        }
+    }
+}
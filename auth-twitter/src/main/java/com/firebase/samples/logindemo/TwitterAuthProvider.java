@@ -0,0 +1,69 @@
+package com.firebase.samples.logindemo;
+
+import android.content.Intent;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Twitter login. Twitter requires us to use a Web View to authenticate, see {@link TwitterOAuthActivity}.
+ */
+public class TwitterAuthProvider extends AuthProvider {
+
+    /* Request code used for the Twitter login in the TwitterOAuthActivity */
+    public static final int RC_TWITTER_LOGIN = 2;
+
+    @Override
+    public String getName() {
+        return "twitter";
+    }
+
+    @Override
+    public void login() {
+        mHost.getActivity().startActivityForResult(new Intent(mHost.getActivity(), TwitterOAuthActivity.class),
+                RC_TWITTER_LOGIN);
+    }
+
+    @Override
+    public boolean onActivityResult(int requestCode, int resultCode, Intent data) {
+        if (requestCode != RC_TWITTER_LOGIN) {
+            return false;
+        }
+        if (data == null) {
+            /* The user backed out of the Twitter login */
+            return true;
+        }
+        Map<String, String> options;
+        if (data.getStringExtra(AuthOptions.ERROR) != null) {
+            options = new HashMap<String, String>();
+            options.put(AuthOptions.ERROR, data.getStringExtra(AuthOptions.ERROR));
+        } else {
+            options = AuthOptions.forTwitter(data.getStringExtra(AuthOptions.OAUTH_TOKEN),
+                    data.getStringExtra(AuthOptions.OAUTH_TOKEN_SECRET),
+                    data.getStringExtra(AuthOptions.USER_ID));
+        }
+        mHost.authWithFirebase(getName(), options);
+        return true;
+    }
+
+    /**
+     * Speculatively fetch a request token and warm up the web view for the Twitter login. The fetch is started first,
+     * as it only hands the request to a background thread, while creating the web view takes the main thread a while.
+     */
+    @Override
+    public List<Runnable> getPrewarmSteps() {
+        return Arrays.<Runnable>asList(new Runnable() {
+            @Override
+            public void run() {
+                TwitterClient.getInstance(mHost.getActivity()).prefetchRequestToken();
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+                WebViewPool.prewarm(mHost.getActivity());
+            }
+        });
+    }
+}
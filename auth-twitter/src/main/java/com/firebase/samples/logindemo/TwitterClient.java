@@ -0,0 +1,203 @@
+package com.firebase.samples.logindemo;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.firebase.samples.logindemo.twitter.R;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A process wide Twitter client for the OAuth handshake of the {@link TwitterOAuthActivity}, see {@link OAuthClient}.
+ * {@link #prefetchRequestToken()} fetches a request token while the login screen is visible, which is used at most
+ * once and only for {@link #REQUEST_TOKEN_MAX_AGE_MS}. The requests of a login are retried, see {@link Retrier}, within
+ * the time its phase has.
+ */
+public class TwitterClient {
+
+    private static final String TAG = TwitterClient.class.getSimpleName();
+
+    public static final String CALLBACK_URL = "oauth://cb";
+
+    /* Prefetched request tokens older than this are not used anymore */
+    private static final long REQUEST_TOKEN_MAX_AGE_MS = 5 * 60 * 1000;
+
+    /* How long to wait for a prefetch that is still in flight before fetching another token */
+    private static final long PREFETCH_WAIT_MS = 10 * 1000;
+
+    /* Network and server errors are retried, see Retrier, but not requests whose call was aborted or ran out */
+    private static final Retrier.ErrorClassifier TRANSIENT_ERRORS = new Retrier.ErrorClassifier() {
+        @Override
+        public boolean isTransient(Exception e) {
+            if (e instanceof OAuthClient.HttpException) {
+                return ((OAuthClient.HttpException) e).getStatusCode() >= 500;
+            }
+            return e instanceof IOException && !(e instanceof ProtocolException)
+                    && !(e instanceof AuthHttpClient.AbortedException);
+        }
+    };
+
+    private static TwitterClient sInstance;
+
+    private final OAuthClient mClient;
+
+    private final Retrier mRetrier = Retrier.forProvider("twitter", TRANSIENT_ERRORS);
+
+    private Future<OAuthClient.Token> mPrefetch;
+
+    /* When the prefetch was started, in terms of SystemClock.elapsedRealtime() */
+    private long mPrefetchStartedAt;
+
+    public static synchronized TwitterClient getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new TwitterClient(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private TwitterClient(Context context) {
+        mClient = new OAuthClient(OAuthClient.TWITTER_URL, new OAuthSigner(
+                context.getResources().getString(R.string.twitter_consumer_key),
+                context.getResources().getString(R.string.twitter_consumer_secret)), AuthHttpClient.getInstance());
+    }
+
+    /**
+     * Starts fetching a request token in the background, unless a fresh one is already available or on its way.
+     */
+    public synchronized void prefetchRequestToken() {
+        if (mPrefetch != null && !isPrefetchStale()) {
+            /* the access token request still needs a connection */
+            mClient.preconnect();
+            return;
+        }
+        mPrefetchStartedAt = SystemClock.elapsedRealtime();
+        mPrefetch = AuthExecutor.getInstance().submit(this, new Callable<OAuthClient.Token>() {
+            @Override
+            public OAuthClient.Token call() throws Exception {
+                return fetchRequestToken(null);
+            }
+        }, new AuthExecutor.Callback<OAuthClient.Token>() {
+            @Override
+            public void onResult(OAuthClient.Token result) {
+                Log.d(TAG, "Prefetched Twitter request token");
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.w(TAG, "Prefetching Twitter request token failed: " + e);
+            }
+        });
+    }
+
+    /**
+     * Returns a prefetched request token if one has already arrived and is still fresh, or null otherwise. Does not
+     * block, so it can be called from the main thread.
+     */
+    public OAuthClient.Token takePrefetchedRequestToken() {
+        Future<OAuthClient.Token> prefetch;
+        synchronized (this) {
+            if (mPrefetch == null || !mPrefetch.isDone()) {
+                return null;
+            }
+            prefetch = takePrefetch();
+        }
+        if (prefetch == null) {
+            return null;
+        }
+        try {
+            return prefetch.get();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns a request token, using the prefetched one if it is fresh. This blocks and must not be called from the
+     * main thread.
+     *
+     * @param call bounds the wait for the prefetch and the requests, and aborts them
+     */
+    public OAuthClient.Token getRequestToken(AuthHttpClient.Call call) throws Exception {
+        Future<OAuthClient.Token> prefetch;
+        synchronized (this) {
+            prefetch = takePrefetch();
+        }
+        if (prefetch != null) {
+            try {
+                return prefetch.get(Math.min(PREFETCH_WAIT_MS, call.getRemainingMs()), TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                Log.w(TAG, "Prefetched Twitter request token failed, fetching a new one");
+            } catch (TimeoutException e) {
+                Log.w(TAG, "Prefetching Twitter request token timed out, fetching a new one");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return fetchRequestToken(call);
+    }
+
+    /**
+     * Exchanges an authorized request token for an access token. This blocks and must not be called from the main
+     * thread.
+     *
+     * @param call bounds the requests, and aborts them
+     */
+    public OAuthClient.Token getAccessToken(final OAuthClient.Token requestToken, final String oauthVerifier,
+                                            final AuthHttpClient.Call call) throws Exception {
+        return mRetrier.call(new Callable<OAuthClient.Token>() {
+            @Override
+            public OAuthClient.Token call() throws IOException {
+                return mClient.getAccessToken(requestToken, oauthVerifier, call);
+            }
+        });
+    }
+
+    /**
+     * Opens a connection for the next request in the background, e.g. while the user authorizes the request token.
+     */
+    public void preconnect() {
+        mClient.preconnect();
+    }
+
+    /**
+     * Returns the url of the page where the user authorizes the request token.
+     */
+    public String getAuthorizationUrl(OAuthClient.Token requestToken) {
+        return mClient.getAuthorizationUrl(requestToken);
+    }
+
+    /* The prefetch runs without a call, it is not part of a login yet */
+    private OAuthClient.Token fetchRequestToken(final AuthHttpClient.Call call) throws Exception {
+        return mRetrier.call(new Callable<OAuthClient.Token>() {
+            @Override
+            public OAuthClient.Token call() throws IOException {
+                return mClient.getRequestToken(CALLBACK_URL, call);
+            }
+        });
+    }
+
+    /* Removes the current prefetch and returns it, unless it is stale. Must hold the lock of this. */
+    private Future<OAuthClient.Token> takePrefetch() {
+        Future<OAuthClient.Token> prefetch = mPrefetch;
+        boolean stale = isPrefetchStale();
+        mPrefetch = null;
+        if (prefetch == null || stale) {
+            if (prefetch != null) {
+                prefetch.cancel(true);
+            }
+            return null;
+        }
+        return prefetch;
+    }
+
+    private boolean isPrefetchStale() {
+        return SystemClock.elapsedRealtime() - mPrefetchStartedAt > REQUEST_TOKEN_MAX_AGE_MS;
+    }
+}
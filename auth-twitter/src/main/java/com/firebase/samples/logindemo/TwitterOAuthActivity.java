@@ -0,0 +1,198 @@
+package com.firebase.samples.logindemo;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.graphics.Bitmap;
+import android.os.Bundle;
+import android.util.Log;
+import android.webkit.WebView;
+import android.webkit.WebViewClient;
+
+import java.util.concurrent.Callable;
+
+/**
+ * The TwitterOAuthActivity provides a simple web view for users authenticating with Twitter. To do this authentication,
+ * we do the following steps:
+ * <p/>
+ * 1. Using the {@link OAuthClient}, get the request token, request token secret, and oauth verifier (the
+ * {@link TwitterClient} may already have prefetched the request token while the login screen was shown)
+ * 2. Open a web view for the user to give the application access
+ * 3. Using the {@link OAuthClient}, get the authentication token, secret, and user id with a accepted request token
+ * 4. Return to the {@link com.firebase.samples.logindemo.MainActivity} with the new access token
+ */
+public class TwitterOAuthActivity extends Activity {
+
+    private static final String TAG = TwitterOAuthActivity.class.getSimpleName();
+
+    private WebView mTwitterView;
+
+    private TwitterClient mTwitterClient;
+
+    /* Whether the oauth callback has been intercepted already, it must only be handled once */
+    private boolean mCallbackHandled;
+
+    /* The deadline of the login, the requests to Twitter are its connect and token phases */
+    private LoginDeadline mDeadline;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        // the twitter client is shared, it may already have prefetched a request token
+        mTwitterClient = TwitterClient.getInstance(this);
+        mDeadline = AuthSession.getInstance(this).getDeadline("twitter");
+
+        // borrow the pre-warmed twitter webview
+        mTwitterView = WebViewPool.acquire(this);
+
+        // initialize view
+        setContentView(mTwitterView);
+
+        // start the web view
+        loginToTwitter();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        AuthExecutor.getInstance().cancelAll(this);
+        WebViewPool.release(mTwitterView);
+        if (isFinishing() && mDeadline.isInPhase()) {
+            // the user backed out while waiting for twitter
+            mDeadline.cancel();
+        }
+    }
+
+    private void loginToTwitter() {
+        final long connectStart = AuthMetrics.start();
+        // if a prefetched request token is ready, prompt the user to authorize the application right away
+        OAuthClient.Token prefetchedToken = mTwitterClient.takePrefetchedRequestToken();
+        if (prefetchedToken != null) {
+            AuthMetrics.record("twitter", AuthMetrics.Phase.CONNECT, connectStart);
+            AuthEventLog.record("twitter", AuthMetrics.Phase.CONNECT, AuthEventLog.Event.SUCCESS, 0);
+            authorize(prefetchedToken);
+            return;
+        }
+        // otherwise fetch the oauth request token first
+        AuthEventLog.record("twitter", AuthMetrics.Phase.CONNECT, AuthEventLog.Event.START, 0);
+        // the request gets the time the phase has, and is disconnected when the phase is aborted
+        final AuthHttpClient.Call call = new AuthHttpClient.Call(mDeadline.getPhaseBudgetMs(AuthMetrics.Phase.CONNECT));
+        final AuthExecutor.AuthTask<OAuthClient.Token> task = AuthExecutor.getInstance().submit(this,
+                new Callable<OAuthClient.Token>() {
+            @Override
+            public OAuthClient.Token call() throws Exception {
+                return mTwitterClient.getRequestToken(call);
+            }
+        }, new AuthExecutor.Callback<OAuthClient.Token>() {
+            @Override
+            public void onResult(OAuthClient.Token token) {
+                mDeadline.endPhase();
+                AuthMetrics.record("twitter", AuthMetrics.Phase.CONNECT, connectStart);
+                AuthEventLog.record("twitter", AuthMetrics.Phase.CONNECT, AuthEventLog.Event.SUCCESS, 0);
+                authorize(token);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                mDeadline.endPhase();
+                AuthEventLog.record("twitter", AuthMetrics.Phase.CONNECT, AuthEventLog.Event.ERROR, getStatusCode(e));
+                Log.e(TAG, e.toString());
+                finishWithError("Error authenticating with Twitter: " + e.getMessage());
+            }
+        });
+        mDeadline.startPhase(AuthMetrics.Phase.CONNECT, new Runnable() {
+            @Override
+            public void run() {
+                call.abort();
+                task.cancel(true);
+                finish();
+            }
+        });
+    }
+
+    private void authorize(final OAuthClient.Token token) {
+        // intercept the callback before the web view tries to navigate to it
+        mTwitterView.setWebViewClient(new WebViewClient() {
+            @Override
+            public boolean shouldOverrideUrlLoading(WebView view, String url) {
+                return handleCallback(view, token, url);
+            }
+
+            @Override
+            public void onPageStarted(WebView view, String url, Bitmap favicon) {
+                // not every web view version asks shouldOverrideUrlLoading about redirects
+                handleCallback(view, token, url);
+            }
+        });
+        mTwitterView.loadUrl(mTwitterClient.getAuthorizationUrl(token));
+        // while the user authorizes the application, have a connection ready for the access token request
+        mTwitterClient.preconnect();
+    }
+
+    private boolean handleCallback(WebView view, OAuthClient.Token token, String url) {
+        if (!OAuthCallback.matches(url, TwitterClient.CALLBACK_URL)) {
+            return false;
+        }
+        view.stopLoading();
+        if (!mCallbackHandled) {
+            mCallbackHandled = true;
+            getTwitterOAuthTokenAndLogin(token, OAuthCallback.getQueryParameter(url, "oauth_verifier"));
+        }
+        return true;
+    }
+
+    private void getTwitterOAuthTokenAndLogin(final OAuthClient.Token requestToken, final String oauthVerifier) {
+        // once a user authorizes the application, get the auth token and return to the MainActivity
+        final long tokenStart = AuthMetrics.start();
+        AuthEventLog.record("twitter", AuthMetrics.Phase.TOKEN, AuthEventLog.Event.START, 0);
+        final AuthHttpClient.Call call = new AuthHttpClient.Call(mDeadline.getPhaseBudgetMs(AuthMetrics.Phase.TOKEN));
+        final AuthExecutor.AuthTask<OAuthClient.Token> task = AuthExecutor.getInstance().submit(this,
+                new Callable<OAuthClient.Token>() {
+            @Override
+            public OAuthClient.Token call() throws Exception {
+                return mTwitterClient.getAccessToken(requestToken, oauthVerifier, call);
+            }
+        }, new AuthExecutor.Callback<OAuthClient.Token>() {
+            @Override
+            public void onResult(OAuthClient.Token token) {
+                mDeadline.endPhase();
+                AuthMetrics.record("twitter", AuthMetrics.Phase.TOKEN, tokenStart);
+                AuthEventLog.record("twitter", AuthMetrics.Phase.TOKEN, AuthEventLog.Event.SUCCESS, 0);
+                Intent resultIntent = new Intent();
+                resultIntent.putExtra(AuthOptions.OAUTH_TOKEN, token.getToken());
+                resultIntent.putExtra(AuthOptions.OAUTH_TOKEN_SECRET, token.getSecret());
+                resultIntent.putExtra(AuthOptions.USER_ID, token.getUserId());
+                setResult(TwitterAuthProvider.RC_TWITTER_LOGIN, resultIntent);
+                finish();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                mDeadline.endPhase();
+                AuthEventLog.record("twitter", AuthMetrics.Phase.TOKEN, AuthEventLog.Event.ERROR, getStatusCode(e));
+                Log.e(TAG, e.toString());
+                finishWithError("Error authenticating with Twitter: " + e.getMessage());
+            }
+        });
+        mDeadline.startPhase(AuthMetrics.Phase.TOKEN, new Runnable() {
+            @Override
+            public void run() {
+                call.abort();
+                task.cancel(true);
+                finish();
+            }
+        });
+    }
+
+    /* The HTTP status a request failed with, 0 if it failed without a response */
+    private static int getStatusCode(Exception e) {
+        return e instanceof OAuthClient.HttpException ? ((OAuthClient.HttpException) e).getStatusCode() : 0;
+    }
+
+    private void finishWithError(String message) {
+        Intent resultIntent = new Intent();
+        resultIntent.putExtra(AuthOptions.ERROR, message);
+        setResult(TwitterAuthProvider.RC_TWITTER_LOGIN, resultIntent);
+        finish();
+    }
+}
@@ -0,0 +1,83 @@
+package com.firebase.samples.logindemo;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.MutableContextWrapper;
+import android.os.SystemClock;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.webkit.WebView;
+import android.webkit.WebViewClient;
+
+/**
+ * Keeps a single pre-warmed {@link WebView} for the {@link TwitterOAuthActivity}, so the Twitter login does not wait
+ * for WebView to start up. The WebView lives on a {@link MutableContextWrapper} and is re-parented to the activity that
+ * borrows it. All methods must be called from the main thread.
+ */
+public class WebViewPool {
+
+    private static final String BLANK_URL = "about:blank";
+
+    private static MutableContextWrapper sContext;
+
+    private static WebView sWebView;
+
+    private static boolean sBorrowed;
+
+    private WebViewPool() {
+    }
+
+    /**
+     * Creates the shared WebView if it does not exist yet.
+     */
+    public static void prewarm(Context context) {
+        if (sWebView == null) {
+            long start = SystemClock.elapsedRealtime();
+            sContext = new MutableContextWrapper(context.getApplicationContext());
+            sWebView = createWebView(sContext);
+            sWebView.loadUrl(BLANK_URL);
+            ProviderInitializer.recordDuration("webview_prewarmed", start);
+        }
+    }
+
+    /**
+     * Borrows the shared WebView for the given activity, creating it if necessary. It must be handed back with
+     * {@link #release(WebView)} once the activity is done with it.
+     */
+    public static WebView acquire(Activity activity) {
+        if (sBorrowed) {
+            return createWebView(activity);
+        }
+        prewarm(activity);
+        sContext.setBaseContext(activity);
+        sBorrowed = true;
+        return sWebView;
+    }
+
+    /**
+     * Hands back a WebView obtained from {@link #acquire(Activity)}. The shared WebView is reset and kept for the next
+     * login, any other one is destroyed.
+     */
+    public static void release(WebView webView) {
+        ViewParent parent = webView.getParent();
+        if (parent instanceof ViewGroup) {
+            ((ViewGroup) parent).removeView(webView);
+        }
+        webView.stopLoading();
+        if (webView != sWebView) {
+            webView.destroy();
+            return;
+        }
+        webView.setWebViewClient(new WebViewClient());
+        webView.loadUrl(BLANK_URL);
+        webView.clearHistory();
+        sContext.setBaseContext(sContext.getApplicationContext());
+        sBorrowed = false;
+    }
+
+    private static WebView createWebView(Context context) {
+        WebView webView = new WebView(context);
+        webView.getSettings().setJavaScriptEnabled(true);
+        return webView;
+    }
+}
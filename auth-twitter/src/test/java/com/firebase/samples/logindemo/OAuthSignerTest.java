@@ -0,0 +1,87 @@
+package com.firebase.samples.logindemo;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks the {@link OAuthSigner} against the test vectors of https://dev.twitter.com/oauth/overview/creating-signatures
+ * and RFC 5849 section 1.2.
+ */
+public class OAuthSignerTest {
+
+    private static final String CONSUMER_KEY = "xvz1evFS4wEEPTGEFPHBog";
+    private static final String CONSUMER_SECRET = "kAcSOqF21Fu85e7zjz7ZN2U4ZRhfV3WpwPAoE3Z7kBw";
+
+    private static final String URL = "https://api.twitter.com/1.1/statuses/update.json";
+    private static final String TOKEN = "370773112-GmHxMAgYyLbNEtIKZeRNFsMKPR9EyMZeS9weJAEb";
+    private static final String TOKEN_SECRET = "LswwdoUaIvS8ltyTt5jkRh4J50vUPVVHtR2YPi5kE";
+    private static final String NONCE = "kYjzVBB8Y0ZFabxSWbWovY3uYSQ2pTgmZeNu2VS4cg";
+    private static final long TIMESTAMP = 1318622958;
+
+    private static final String[] PARAMS = {
+            "status", "Hello Ladies + Gentlemen, a signed OAuth request!",
+            "include_entities", "true",
+            "oauth_consumer_key", CONSUMER_KEY,
+            "oauth_nonce", NONCE,
+            "oauth_signature_method", "HMAC-SHA1",
+            "oauth_timestamp", String.valueOf(TIMESTAMP),
+            "oauth_token", TOKEN,
+            "oauth_version", "1.0"};
+
+    @Test
+    public void percentEncode() {
+        assertEquals("Ladies%20%2B%20Gentlemen", OAuthSigner.percentEncode("Ladies + Gentlemen"));
+        assertEquals("An%20encoded%20string%21", OAuthSigner.percentEncode("An encoded string!"));
+        assertEquals("Dogs%2C%20Cats%20%26%20Mice", OAuthSigner.percentEncode("Dogs, Cats & Mice"));
+        assertEquals("%E2%98%83", OAuthSigner.percentEncode("\u2603"));
+        assertEquals("%F0%9F%98%80", OAuthSigner.percentEncode("\uD83D\uDE00"));
+    }
+
+    @Test
+    public void percentEncodeReturnsUnreservedValuesAsTheyAre() {
+        String value = "abc-XYZ_0.9~";
+        assertSame(value, OAuthSigner.percentEncode(value));
+    }
+
+    @Test
+    public void signatureBaseString() {
+        assertEquals("POST&https%3A%2F%2Fapi.twitter.com%2F1.1%2Fstatuses%2Fupdate.json&include_entities%3Dtrue%26"
+                        + "oauth_consumer_key%3Dxvz1evFS4wEEPTGEFPHBog%26"
+                        + "oauth_nonce%3DkYjzVBB8Y0ZFabxSWbWovY3uYSQ2pTgmZeNu2VS4cg%26"
+                        + "oauth_signature_method%3DHMAC-SHA1%26oauth_timestamp%3D1318622958%26"
+                        + "oauth_token%3D370773112-GmHxMAgYyLbNEtIKZeRNFsMKPR9EyMZeS9weJAEb%26oauth_version%3D1.0%26"
+                        + "status%3DHello%2520Ladies%2520%252B%2520Gentlemen%252C%2520a%2520signed%2520OAuth%2520"
+                        + "request%2521",
+                OAuthSigner.getSignatureBaseString("POST", URL, PARAMS));
+    }
+
+    @Test
+    public void signature() {
+        OAuthSigner signer = new OAuthSigner(CONSUMER_KEY, CONSUMER_SECRET);
+        assertEquals("hCtSmYh+iHYCEqBWrE7C7hYmtUk=", signer.getSignature("POST", URL, TOKEN_SECRET, PARAMS));
+    }
+
+    @Test
+    public void authorizationHeader() {
+        OAuthSigner signer = new OAuthSigner(CONSUMER_KEY, CONSUMER_SECRET);
+        assertEquals("OAuth oauth_consumer_key=\"xvz1evFS4wEEPTGEFPHBog\", "
+                        + "oauth_nonce=\"kYjzVBB8Y0ZFabxSWbWovY3uYSQ2pTgmZeNu2VS4cg\", "
+                        + "oauth_signature_method=\"HMAC-SHA1\", oauth_timestamp=\"1318622958\", "
+                        + "oauth_token=\"370773112-GmHxMAgYyLbNEtIKZeRNFsMKPR9EyMZeS9weJAEb\", oauth_version=\"1.0\", "
+                        + "oauth_signature=\"hCtSmYh%2BiHYCEqBWrE7C7hYmtUk%3D\"",
+                signer.getAuthorizationHeader("POST", URL, TOKEN, TOKEN_SECRET, NONCE, TIMESTAMP,
+                        "status", "Hello Ladies + Gentlemen, a signed OAuth request!", "include_entities", "true"));
+    }
+
+    /* RFC 5849 section 1.2, which omits the optional oauth_version */
+    @Test
+    public void signatureOfTheRfcExample() {
+        OAuthSigner signer = new OAuthSigner("dpf43f3p2l4k3l03", "kd94hf93k423kf44");
+        assertEquals("MdpQcU8iPSUjWoN/UDMsK2sui9I=", signer.getSignature("GET", "http://photos.example.net/photos",
+                "pfkkdhi9sl3r4s00", "file", "vacation.jpg", "size", "original",
+                "oauth_consumer_key", "dpf43f3p2l4k3l03", "oauth_token", "nnch734d00sl2jdk",
+                "oauth_signature_method", "HMAC-SHA1", "oauth_timestamp", "137131202", "oauth_nonce", "chapoH"));
+    }
+}
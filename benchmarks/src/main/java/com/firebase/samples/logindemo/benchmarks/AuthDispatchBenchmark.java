@@ -0,0 +1,56 @@
+package com.firebase.samples.logindemo.benchmarks;
+
+import com.firebase.samples.logindemo.AuthOptions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The dispatch of MainActivity#authWithFirebase, against a {@link FakeFirebase}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AuthDispatchBenchmark {
+
+    @Param({"facebook", "google", "twitter"})
+    public String provider;
+
+    private FakeFirebase mFirebase;
+
+    private Map<String, String> mOptions;
+
+    @Setup
+    public void setUp() {
+        mFirebase = new FakeFirebase();
+        mOptions = AuthOptions.forTwitter(FakeTwitter.TOKEN, FakeTwitter.TOKEN_SECRET, FakeTwitter.USER_ID);
+    }
+
+    @Benchmark
+    public void authWithFirebase(final Blackhole blackhole) {
+        FakeFirebase.AuthResultHandler handler = new FakeFirebase.AuthResultHandler() {
+            @Override
+            public void onAuthenticated(FakeFirebase.AuthData authData) {
+                blackhole.consume(authData);
+            }
+        };
+        String error = AuthOptions.getError(mOptions);
+        if (error != null) {
+            blackhole.consume(error);
+        } else if (AuthOptions.requiresOptions(provider)) {
+            mFirebase.authWithOAuthToken(provider, mOptions, handler);
+        } else {
+            mFirebase.authWithOAuthToken(provider, mOptions.get(AuthOptions.OAUTH_TOKEN), handler);
+        }
+    }
+}
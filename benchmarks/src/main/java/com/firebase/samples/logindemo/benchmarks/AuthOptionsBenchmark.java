@@ -0,0 +1,32 @@
+package com.firebase.samples.logindemo.benchmarks;
+
+import com.firebase.samples.logindemo.AuthOptions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the provider option maps, as done in MainActivity#onActivityResult.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AuthOptionsBenchmark {
+
+    @Benchmark
+    public Map<String, String> twitterOptions() {
+        return AuthOptions.forTwitter(FakeTwitter.TOKEN, FakeTwitter.TOKEN_SECRET, FakeTwitter.USER_ID);
+    }
+
+    @Benchmark
+    public Map<String, String> tokenOptions() {
+        return AuthOptions.forToken(FakeTwitter.TOKEN);
+    }
+}
@@ -0,0 +1,45 @@
+package com.firebase.samples.logindemo.benchmarks;
+
+import com.firebase.samples.logindemo.DisplayNames;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The provider name resolution of MainActivity#setAuthenticatedUser.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DisplayNamesBenchmark {
+
+    @Param({"facebook", "google", "twitter", "password", "anonymous"})
+    public String provider;
+
+    private FakeFirebase.AuthData mAuthData;
+
+    @Setup
+    public void setUp() {
+        final FakeFirebase.AuthData[] authData = new FakeFirebase.AuthData[1];
+        new FakeFirebase().authWithOAuthToken(provider, "token", new FakeFirebase.AuthResultHandler() {
+            @Override
+            public void onAuthenticated(FakeFirebase.AuthData result) {
+                authData[0] = result;
+            }
+        });
+        mAuthData = authData[0];
+    }
+
+    @Benchmark
+    public String resolve() {
+        return DisplayNames.resolve(mAuthData.provider, mAuthData.uid, mAuthData.providerData);
+    }
+}
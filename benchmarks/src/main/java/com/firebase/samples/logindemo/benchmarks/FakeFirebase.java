@@ -0,0 +1,48 @@
+package com.firebase.samples.logindemo.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stands in for {@link com.firebase.client.Firebase}: accepts every token right away and hands back canned auth data.
+ */
+public class FakeFirebase {
+
+    /**
+     * The parts of {@link com.firebase.client.AuthData} that the login path reads.
+     */
+    public static class AuthData {
+        public final String uid;
+        public final String provider;
+        public final Map<String, Object> providerData;
+
+        public AuthData(String uid, String provider, Map<String, Object> providerData) {
+            this.uid = uid;
+            this.provider = provider;
+            this.providerData = providerData;
+        }
+    }
+
+    public interface AuthResultHandler {
+        void onAuthenticated(AuthData authData);
+    }
+
+    private final Map<String, AuthData> mAuthData = new HashMap<String, AuthData>();
+
+    public FakeFirebase() {
+        for (String provider : new String[]{"facebook", "google", "twitter", "password", "anonymous"}) {
+            Map<String, Object> providerData = new HashMap<String, Object>();
+            providerData.put("displayName", "Jane Doe");
+            providerData.put("id", "1234567890");
+            mAuthData.put(provider, new AuthData(provider + ":1234567890", provider, providerData));
+        }
+    }
+
+    public void authWithOAuthToken(String provider, String token, AuthResultHandler handler) {
+        handler.onAuthenticated(mAuthData.get(provider));
+    }
+
+    public void authWithOAuthToken(String provider, Map<String, String> options, AuthResultHandler handler) {
+        handler.onAuthenticated(mAuthData.get(provider));
+    }
+}
@@ -0,0 +1,11 @@
+package com.firebase.samples.logindemo.benchmarks;
+
+/**
+ * Stands in for {@link com.google.android.gms.auth.GoogleAuthUtil}: hands out a fixed token without any IPC.
+ */
+public class FakeGoogleAuth {
+
+    public String getToken(String accountName, String scope) {
+        return "ya29.fake-google-oauth-token";
+    }
+}
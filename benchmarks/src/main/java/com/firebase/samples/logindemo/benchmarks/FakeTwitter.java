@@ -0,0 +1,26 @@
+package com.firebase.samples.logindemo.benchmarks;
+
+/**
+ * Stands in for the OAuthClient and the Twitter web flow: produces the callback URL the web view is redirected to, and
+ * exchanges the verifier for a fixed access token.
+ */
+public class FakeTwitter {
+
+    public static final String CALLBACK_URL = "oauth://cb";
+
+    public static final String TOKEN = "1234567890-fakeAccessToken";
+    public static final String TOKEN_SECRET = "fakeAccessTokenSecret";
+    public static final String USER_ID = "1234567890";
+
+    /**
+     * The URL Twitter redirects to once the user authorized the application.
+     */
+    public String getCallbackUrl() {
+        return CALLBACK_URL + "?oauth_token=NPcudxy0yU5T3tBzho7iCotZ3cnetKwcTIRlX0iwRl0"
+                + "&oauth_verifier=uw7NjWHT6OJ1MpJOXsHfNxoAhPKpgI8BlYDhxEjIBY%3D";
+    }
+
+    public String[] getAccessToken(String verifier) {
+        return new String[]{TOKEN, TOKEN_SECRET, USER_ID};
+    }
+}
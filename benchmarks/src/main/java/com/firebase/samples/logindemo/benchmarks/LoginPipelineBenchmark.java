@@ -0,0 +1,76 @@
+package com.firebase.samples.logindemo.benchmarks;
+
+import com.firebase.samples.logindemo.AuthOptions;
+import com.firebase.samples.logindemo.DisplayNames;
+import com.firebase.samples.logindemo.OAuthCallback;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The whole client side of a Google and a Twitter login, from the provider token to the name that is shown, with all
+ * backends replaced by fakes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LoginPipelineBenchmark {
+
+    private FakeFirebase mFirebase;
+
+    private FakeGoogleAuth mGoogleAuth;
+
+    private FakeTwitter mTwitter;
+
+    private String mName;
+
+    private final FakeFirebase.AuthResultHandler mHandler = new FakeFirebase.AuthResultHandler() {
+        @Override
+        public void onAuthenticated(FakeFirebase.AuthData authData) {
+            mName = DisplayNames.resolve(authData.provider, authData.uid, authData.providerData);
+        }
+    };
+
+    @Setup
+    public void setUp() {
+        mFirebase = new FakeFirebase();
+        mGoogleAuth = new FakeGoogleAuth();
+        mTwitter = new FakeTwitter();
+    }
+
+    @Benchmark
+    public String google() {
+        String token = mGoogleAuth.getToken("jane.doe@gmail.com", "oauth2:https://www.googleapis.com/auth/plus.login");
+        login("google", AuthOptions.forToken(token));
+        return mName;
+    }
+
+    @Benchmark
+    public String twitter() {
+        String url = mTwitter.getCallbackUrl();
+        if (!OAuthCallback.matches(url, FakeTwitter.CALLBACK_URL)) {
+            return null;
+        }
+        String[] accessToken = mTwitter.getAccessToken(OAuthCallback.getQueryParameter(url, "oauth_verifier"));
+        login("twitter", AuthOptions.forTwitter(accessToken[0], accessToken[1], accessToken[2]));
+        return mName;
+    }
+
+    private void login(String provider, Map<String, String> options) {
+        if (AuthOptions.getError(options) != null) {
+            mName = null;
+        } else if (AuthOptions.requiresOptions(provider)) {
+            mFirebase.authWithOAuthToken(provider, options, mHandler);
+        } else {
+            mFirebase.authWithOAuthToken(provider, options.get(AuthOptions.OAUTH_TOKEN), mHandler);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.firebase.samples.logindemo.benchmarks;
+
+import com.firebase.samples.logindemo.OAuthCallback;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The callback URL parsing of TwitterOAuthActivity.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OAuthCallbackBenchmark {
+
+    private String mCallbackUrl;
+
+    private String mPageUrl;
+
+    @Setup
+    public void setUp() {
+        mCallbackUrl = new FakeTwitter().getCallbackUrl();
+        mPageUrl = "https://api.twitter.com/oauth/authorize?oauth_token=NPcudxy0yU5T3tBzho7iCotZ3cnetKwcTIRlX0iwRl0";
+    }
+
+    @Benchmark
+    public boolean matchPage() {
+        return OAuthCallback.matches(mPageUrl, FakeTwitter.CALLBACK_URL);
+    }
+
+    @Benchmark
+    public String parseVerifier() {
+        if (OAuthCallback.matches(mCallbackUrl, FakeTwitter.CALLBACK_URL)) {
+            return OAuthCallback.getQueryParameter(mCallbackUrl, "oauth_verifier");
+        }
+        return null;
+    }
+}
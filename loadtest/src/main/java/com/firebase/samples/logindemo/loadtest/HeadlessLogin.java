@@ -0,0 +1,170 @@
+package com.firebase.samples.logindemo.loadtest;
+
+import com.firebase.samples.logindemo.AuthHttpClient;
+import com.firebase.samples.logindemo.AuthMetrics;
+import com.firebase.samples.logindemo.AuthOptions;
+import com.firebase.samples.logindemo.Clock;
+import com.firebase.samples.logindemo.DisplayNames;
+import com.firebase.samples.logindemo.OAuthCallback;
+import com.firebase.samples.logindemo.OAuthClient;
+import com.firebase.samples.logindemo.OAuthSigner;
+import com.firebase.samples.logindemo.Retrier;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+/**
+ * The auth logic of the app without Android: the Google and Twitter token steps and the Firebase login, against the
+ * {@link StandInServer}, with the same {@link Retrier}, {@link AuthHttpClient} and {@link AuthMetrics} as the app.
+ * Thread safe.
+ */
+public class HeadlessLogin {
+
+    public static final String[] PROVIDERS = {"google", "twitter", "password", "anonymous"};
+
+    private static final String GOOGLE_SCOPE = "oauth2:https://www.googleapis.com/auth/plus.login";
+
+    private static final Retrier.ErrorClassifier TRANSIENT_ERRORS = new Retrier.ErrorClassifier() {
+        @Override
+        public boolean isTransient(Exception e) {
+            return e instanceof IOException;
+        }
+    };
+
+    private final String mUrl;
+
+    /* Preconnects are not used here, they would run on the calling thread */
+    private final AuthHttpClient mHttp = new AuthHttpClient(AuthHttpClient.JDK_KEEP_ALIVE_MS, Clock.SYSTEM,
+            new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    command.run();
+                }
+            });
+
+    /* The OAuth client of the app, pointed at the Twitter endpoints of the stand-in */
+    private final OAuthClient mTwitter;
+
+    public HeadlessLogin(String url) {
+        mUrl = url;
+        mTwitter = new OAuthClient(url + "/twitter",
+                new OAuthSigner(StandInServer.CONSUMER_KEY, StandInServer.CONSUMER_SECRET), mHttp);
+    }
+
+    public AuthHttpClient getHttpClient() {
+        return mHttp;
+    }
+
+    /**
+     * Logs in with the given provider and returns the name that would be shown.
+     */
+    public String login(String provider) throws Exception {
+        if (provider.equals("google")) {
+            return authWithFirebase(provider, getGoogleToken());
+        } else if (provider.equals("twitter")) {
+            return authWithFirebase(provider, getTwitterToken());
+        } else if (provider.equals("password") || provider.equals("anonymous")) {
+            return authWithFirebase(provider, new HashMap<String, String>());
+        }
+        throw new IllegalArgumentException("Unknown provider: " + provider);
+    }
+
+    private Map<String, String> getGoogleToken() throws Exception {
+        long start = AuthMetrics.start();
+        String token = Retrier.forProvider("google", TRANSIENT_ERRORS).call(new Callable<String>() {
+            @Override
+            public String call() throws IOException {
+                return request("GET", "/google/token?account=jane.doe%40gmail.com&scope="
+                        + StandInServer.encode(GOOGLE_SCOPE), null).get("token");
+            }
+        });
+        AuthMetrics.record("google", AuthMetrics.Phase.TOKEN, start);
+        return AuthOptions.forToken(token);
+    }
+
+    private Map<String, String> getTwitterToken() throws Exception {
+        Retrier retrier = Retrier.forProvider("twitter", TRANSIENT_ERRORS);
+        long connectStart = AuthMetrics.start();
+        final OAuthClient.Token requestToken = retrier.call(new Callable<OAuthClient.Token>() {
+            @Override
+            public OAuthClient.Token call() throws IOException {
+                return mTwitter.getRequestToken(StandInServer.CALLBACK_URL);
+            }
+        });
+        AuthMetrics.record("twitter", AuthMetrics.Phase.CONNECT, connectStart);
+
+        /* the user authorizes the application in the web view, which is redirected to the callback url */
+        String callbackUrl = redirect(mTwitter.getAuthorizationUrl(requestToken));
+        if (!OAuthCallback.matches(callbackUrl, StandInServer.CALLBACK_URL)) {
+            throw new IOException("Unexpected redirect: " + callbackUrl);
+        }
+        final String verifier = OAuthCallback.getQueryParameter(callbackUrl, "oauth_verifier");
+
+        long tokenStart = AuthMetrics.start();
+        OAuthClient.Token accessToken = retrier.call(new Callable<OAuthClient.Token>() {
+            @Override
+            public OAuthClient.Token call() throws IOException {
+                return mTwitter.getAccessToken(requestToken, verifier);
+            }
+        });
+        AuthMetrics.record("twitter", AuthMetrics.Phase.TOKEN, tokenStart);
+        return AuthOptions.forTwitter(accessToken.getToken(), accessToken.getSecret(), accessToken.getUserId());
+    }
+
+    private String authWithFirebase(String provider, Map<String, String> options) throws IOException {
+        String error = AuthOptions.getError(options);
+        if (error != null) {
+            throw new IOException(error);
+        }
+        StringBuilder form = new StringBuilder("provider=").append(StandInServer.encode(provider));
+        if (AuthOptions.requiresOptions(provider)) {
+            for (Map.Entry<String, String> option : options.entrySet()) {
+                form.append('&').append(StandInServer.encode(option.getKey()))
+                        .append('=').append(StandInServer.encode(option.getValue()));
+            }
+        } else if (options.get(AuthOptions.OAUTH_TOKEN) != null) {
+            form.append("&oauth_token=").append(StandInServer.encode(options.get(AuthOptions.OAUTH_TOKEN)));
+        }
+        long start = AuthMetrics.start();
+        Map<String, String> authData = request("POST", "/firebase/auth", form.toString());
+        AuthMetrics.record(provider, AuthMetrics.Phase.FIREBASE, start);
+
+        Map<String, Object> providerData = new HashMap<String, Object>();
+        providerData.put("displayName", authData.get("displayName"));
+        String name = DisplayNames.resolve(authData.get("provider"), authData.get("uid"), providerData);
+        if (name == null) {
+            throw new IOException("Invalid provider: " + authData.get("provider"));
+        }
+        return name;
+    }
+
+    private Map<String, String> request(String method, String path, String form) throws IOException {
+        AuthHttpClient.Response response = form != null
+                ? mHttp.execute(method, mUrl + path, form, "Content-Type", "application/x-www-form-urlencoded")
+                : mHttp.execute(method, mUrl + path, null);
+        if (response.getStatusCode() != 200) {
+            throw new IOException(method + " " + path + " failed with " + response.getStatusCode() + ": "
+                    + response.getBody());
+        }
+        return StandInServer.parseForm(response.getBody());
+    }
+
+    /* The web view of the app follows the redirect, not the AuthHttpClient */
+    private String redirect(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.setInstanceFollowRedirects(false);
+            if (connection.getResponseCode() != 302) {
+                throw new IOException("GET " + url + " did not redirect: " + connection.getResponseCode());
+            }
+            return connection.getHeaderField("Location");
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
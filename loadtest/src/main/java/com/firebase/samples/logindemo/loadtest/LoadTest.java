@@ -0,0 +1,202 @@
+package com.firebase.samples.logindemo.loadtest;
+
+import com.firebase.samples.logindemo.AuthMetrics;
+import com.firebase.samples.logindemo.LatencyHistogram;
+
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives many concurrent {@link HeadlessLogin}s against a {@link StandInServer} and reports the throughput, latency
+ * percentiles, allocations and estimated connection reuse per provider.
+ * <p/>
+ * Usage: <code>LoadTest [--concurrency N] [--logins N] [--warmup N] [--providers google,twitter,...]
+ * [--latency firebase=30,google=50,twitter=80,default=20]</code>, or <code>--help</code> to print it.
+ */
+public class LoadTest {
+
+    private static final double[] PERCENTILES = {50, 90, 99};
+
+    private static final String USAGE = "Usage: LoadTest [--concurrency N] [--logins N] [--warmup N]"
+            + " [--providers google,twitter,...] [--latency firebase=30,google=50,twitter=80,default=20]";
+
+    private final HeadlessLogin mLogin;
+
+    private final String[] mProviders;
+
+    private final int mConcurrency;
+
+    private final Map<String, Stats> mStats = new HashMap<String, Stats>();
+
+    /* Allocation counters are a HotSpot extension, null if they are not available */
+    private final com.sun.management.ThreadMXBean mThreadMXBean;
+
+    private static class Stats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong allocatedBytes = new AtomicLong();
+    }
+
+    public LoadTest(HeadlessLogin login, String[] providers, int concurrency) {
+        mLogin = login;
+        mProviders = providers;
+        mConcurrency = concurrency;
+        for (String provider : providers) {
+            mStats.put(provider, new Stats());
+        }
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported()) {
+            mThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+            mThreadMXBean.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            mThreadMXBean = null;
+        }
+    }
+
+    /**
+     * Runs the given number of logins per provider and returns how long that took in nanoseconds.
+     */
+    public long run(int loginsPerProvider) throws InterruptedException {
+        final int total = loginsPerProvider * mProviders.length;
+        final AtomicInteger next = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(mConcurrency);
+        long start = System.nanoTime();
+        for (int i = 0; i < mConcurrency; i++) {
+            Thread worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        int login;
+                        while ((login = next.getAndIncrement()) < total) {
+                            login(mProviders[login % mProviders.length]);
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }, "loadtest-" + i);
+            worker.start();
+        }
+        done.await();
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Forgets everything recorded so far, e.g. after a warmup run.
+     */
+    public void reset() {
+        for (String provider : mProviders) {
+            mStats.put(provider, new Stats());
+        }
+        AuthMetrics.reset();
+        mLogin.getHttpClient().resetStats();
+    }
+
+    private void login(String provider) {
+        Stats stats = mStats.get(provider);
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = mThreadMXBean != null ? mThreadMXBean.getThreadAllocatedBytes(threadId) : 0;
+        long start = System.nanoTime();
+        try {
+            mLogin.login(provider);
+        } catch (Exception e) {
+            stats.errors.incrementAndGet();
+        }
+        stats.latency.record(System.nanoTime() - start);
+        if (mThreadMXBean != null) {
+            stats.allocatedBytes.addAndGet(mThreadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore);
+        }
+    }
+
+    public void report(long elapsedNanos, PrintWriter writer) {
+        double seconds = elapsedNanos / 1e9;
+        writer.printf("%d threads, %.2fs%n", mConcurrency, seconds);
+        writer.printf("%-10s %8s %7s %9s %9s %9s %9s %9s %12s %10s%n", "provider", "logins", "errors",
+                "logins/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "alloc B/op", "alloc MB/s");
+        for (String provider : mProviders) {
+            Stats stats = mStats.get(provider);
+            long count = stats.latency.getCount();
+            writer.printf("%-10s %8d %7d %9.1f", provider, count, stats.errors.get(), count / seconds);
+            for (double percentile : PERCENTILES) {
+                writer.printf(" %9.2f", stats.latency.getPercentileMicros(percentile) / 1000.0);
+            }
+            writer.printf(" %9.2f", stats.latency.getMaxMicros() / 1000.0);
+            if (mThreadMXBean != null && count > 0) {
+                writer.printf(" %12d %10.1f%n", stats.allocatedBytes.get() / count,
+                        stats.allocatedBytes.get() / seconds / (1024 * 1024));
+            } else {
+                writer.printf(" %12s %10s%n", "n/a", "n/a");
+            }
+        }
+        writer.println();
+        writer.println("Per phase:");
+        AuthMetrics.dump("", writer);
+        writer.println();
+        mLogin.getHttpClient().dump("", writer);
+        writer.flush();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = 16;
+        int logins = 1000;
+        int warmup = 200;
+        String[] providers = HeadlessLogin.PROVIDERS;
+        Map<String, Long> latency = new HashMap<String, Long>();
+        latency.put("default", 20L);
+        for (int i = 0; i < args.length; i += 2) {
+            if (args[i].equals("--help")) {
+                System.out.println(USAGE);
+                return;
+            }
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[i] + "\n" + USAGE);
+            }
+            String value = args[i + 1];
+            if (args[i].equals("--concurrency")) {
+                concurrency = Integer.parseInt(value);
+            } else if (args[i].equals("--logins")) {
+                logins = Integer.parseInt(value);
+            } else if (args[i].equals("--warmup")) {
+                warmup = Integer.parseInt(value);
+            } else if (args[i].equals("--providers")) {
+                providers = value.split(",");
+            } else if (args[i].equals("--latency")) {
+                for (String backend : value.split(",")) {
+                    String[] parts = backend.split("=");
+                    latency.put(parts[0], Long.parseLong(parts[1]));
+                }
+            } else {
+                throw new IllegalArgumentException("Unknown option: " + args[i] + "\n" + USAGE);
+            }
+        }
+        List<String> known = Arrays.asList(HeadlessLogin.PROVIDERS);
+        for (String provider : providers) {
+            if (!known.contains(provider)) {
+                throw new IllegalArgumentException("Unknown provider: " + provider + ", known are " + known);
+            }
+        }
+
+        StandInServer server = new StandInServer(latency);
+        server.start();
+        try {
+            LoadTest loadTest = new LoadTest(new HeadlessLogin(server.getUrl()), providers, concurrency);
+            if (warmup > 0) {
+                loadTest.run(warmup);
+                loadTest.reset();
+            }
+            long elapsed = loadTest.run(logins);
+            loadTest.report(elapsed, new PrintWriter(System.out));
+        } finally {
+            server.stop();
+        }
+    }
+}
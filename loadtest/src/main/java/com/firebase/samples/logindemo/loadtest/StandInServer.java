@@ -0,0 +1,276 @@
+package com.firebase.samples.logindemo.loadtest;
+
+import com.firebase.samples.logindemo.OAuthCallback;
+import com.firebase.samples.logindemo.OAuthSigner;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local HTTP server that stands in for the Google token endpoint, the Twitter OAuth endpoints and the Firebase token
+ * exchange, each answering after a configurable latency. The Twitter endpoints check the OAuth signature like the real
+ * ones, see {@link #CONSUMER_SECRET}.
+ * <ul>
+ * <li>GET /google/token?account=...&amp;scope=...</li>
+ * <li>POST /twitter/oauth/request_token, GET /twitter/oauth/authorize, which approves right away, and POST
+ * /twitter/oauth/access_token</li>
+ * <li>POST /firebase/auth with provider and the {@link com.firebase.samples.logindemo.AuthOptions}</li>
+ * </ul>
+ */
+public class StandInServer {
+
+    public static final String CALLBACK_URL = "oauth://cb";
+
+    public static final String CONSUMER_KEY = "standin-consumer-key";
+
+    public static final String CONSUMER_SECRET = "standin-consumer-secret";
+
+    private static final OAuthSigner SIGNER = new OAuthSigner(CONSUMER_KEY, CONSUMER_SECRET);
+
+    /* Latency of endpoints that have no configured latency */
+    private static final String DEFAULT_LATENCY = "default";
+
+    private final HttpServer mServer;
+
+    private final ExecutorService mExecutor = Executors.newCachedThreadPool();
+
+    private final Map<String, Long> mLatencyMillis;
+
+    private final AtomicLong mIds = new AtomicLong();
+
+    /**
+     * Creates a server on a free port of the loopback interface. The latencies are keyed by the first path segment
+     * ("google", "twitter" or "firebase"), with "default" for the rest.
+     */
+    public StandInServer(Map<String, Long> latencyMillis) throws IOException {
+        mLatencyMillis = new HashMap<String, Long>(latencyMillis);
+        /* without TCP_NODELAY, responses wait for delayed acks and every request gets ~40ms slower */
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        mServer = HttpServer.create(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0), 1024);
+        mServer.setExecutor(mExecutor);
+        mServer.createContext("/google/token", new Endpoint("google") {
+            @Override
+            protected String respond(Map<String, String> params) {
+                return "token=" + encode("ya29.standin-" + mIds.incrementAndGet());
+            }
+        });
+        mServer.createContext("/twitter/oauth/request_token", new OAuthEndpoint() {
+            @Override
+            protected String respond(Map<String, String> params) {
+                if (!CALLBACK_URL.equals(params.get("oauth_callback"))) {
+                    return null;
+                }
+                long id = mIds.incrementAndGet();
+                return "oauth_token=request-" + id + "&oauth_token_secret=request-secret-" + id
+                        + "&oauth_callback_confirmed=true";
+            }
+        });
+        mServer.createContext("/twitter/oauth/authorize", new Endpoint("twitter") {
+            @Override
+            protected void handle(HttpExchange exchange, Map<String, String> params) throws IOException {
+                exchange.getResponseHeaders().set("Location", CALLBACK_URL + "?oauth_token="
+                        + encode(params.get("oauth_token")) + "&oauth_verifier=verifier-" + mIds.incrementAndGet());
+                exchange.sendResponseHeaders(302, -1);
+                exchange.close();
+            }
+        });
+        mServer.createContext("/twitter/oauth/access_token", new OAuthEndpoint() {
+            @Override
+            protected String respond(Map<String, String> params) {
+                if (params.get("oauth_token") == null || params.get("oauth_verifier") == null) {
+                    return null;
+                }
+                long id = mIds.incrementAndGet();
+                return "oauth_token=" + id + "-access&oauth_token_secret=access-secret-" + id + "&user_id=" + id;
+            }
+        });
+        mServer.createContext("/firebase/auth", new Endpoint("firebase") {
+            @Override
+            protected String respond(Map<String, String> params) {
+                String provider = params.get("provider");
+                if (provider == null || params.get("oauth_token") == null && !provider.equals("anonymous")
+                        && !provider.equals("password")) {
+                    return null;
+                }
+                return "uid=" + encode(provider + ":" + mIds.incrementAndGet()) + "&provider=" + encode(provider)
+                        + "&displayName=Jane+Doe";
+            }
+        });
+    }
+
+    public void start() {
+        mServer.start();
+    }
+
+    public void stop() {
+        mServer.stop(0);
+        mExecutor.shutdownNow();
+    }
+
+    /**
+     * The base url of the server, e.g. <code>http://127.0.0.1:4711</code>.
+     */
+    public String getUrl() {
+        return "http://127.0.0.1:" + mServer.getAddress().getPort();
+    }
+
+    private long getLatencyMillis(String backend) {
+        Long latency = mLatencyMillis.get(backend);
+        if (latency == null) {
+            latency = mLatencyMillis.get(DEFAULT_LATENCY);
+        }
+        return latency != null ? latency : 0;
+    }
+
+    static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is not supported", e);
+        }
+    }
+
+    /**
+     * An endpoint that answers with a form encoded body after the latency of its backend, or with a 400 if
+     * {@link #respond(Map)} returns null.
+     */
+    private abstract class Endpoint implements HttpHandler {
+
+        private final String mBackend;
+
+        private Endpoint(String backend) {
+            mBackend = backend;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                String query = exchange.getRequestURI().getRawQuery();
+                String body = read(exchange.getRequestBody());
+                Map<String, String> params = parseForm(query);
+                params.putAll(parseForm(body));
+                params.putAll(parseAuthorization(exchange.getRequestHeaders().getFirst("Authorization")));
+                long latency = getLatencyMillis(mBackend);
+                if (latency > 0) {
+                    Thread.sleep(latency);
+                }
+                handle(exchange, params);
+            } catch (InterruptedException e) {
+                exchange.close();
+            }
+        }
+
+        protected void handle(HttpExchange exchange, Map<String, String> params) throws IOException {
+            String response = respond(params);
+            byte[] bytes = (response != null ? response : "error=bad_request").getBytes("UTF-8");
+            exchange.getResponseHeaders().set("Content-Type", "application/x-www-form-urlencoded");
+            exchange.sendResponseHeaders(response != null ? 200 : 400, bytes.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(bytes);
+            out.close();
+        }
+
+        protected String respond(Map<String, String> params) {
+            return null;
+        }
+    }
+
+    /**
+     * A Twitter token endpoint, which answers with a 401 unless the request is signed.
+     */
+    private abstract class OAuthEndpoint extends Endpoint {
+
+        private OAuthEndpoint() {
+            super("twitter");
+        }
+
+        @Override
+        protected void handle(HttpExchange exchange, Map<String, String> params) throws IOException {
+            if (!isSigned(exchange, params)) {
+                exchange.sendResponseHeaders(401, -1);
+                exchange.close();
+                return;
+            }
+            super.handle(exchange, params);
+        }
+
+        private boolean isSigned(HttpExchange exchange, Map<String, String> params) {
+            String signature = params.get("oauth_signature");
+            if (signature == null || !CONSUMER_KEY.equals(params.get("oauth_consumer_key"))) {
+                return false;
+            }
+            String[] pairs = new String[2 * (params.size() - 1)];
+            int i = 0;
+            for (Map.Entry<String, String> param : params.entrySet()) {
+                if (!param.getKey().equals("oauth_signature")) {
+                    pairs[i++] = param.getKey();
+                    pairs[i++] = param.getValue();
+                }
+            }
+            /* only request tokens are used to sign requests, their secrets follow from the token */
+            String token = params.get("oauth_token");
+            String tokenSecret = token != null && token.startsWith("request-")
+                    ? "request-secret-" + token.substring("request-".length()) : null;
+            String url = getUrl() + exchange.getRequestURI().getPath();
+            return signature.equals(SIGNER.getSignature(exchange.getRequestMethod(), url, tokenSecret, pairs));
+        }
+    }
+
+    static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            out.write(buffer, 0, read);
+        }
+        in.close();
+        return out.toString("UTF-8");
+    }
+
+    static Map<String, String> parseForm(String form) {
+        Map<String, String> params = new HashMap<String, String>();
+        if (form == null || form.isEmpty()) {
+            return params;
+        }
+        String url = "?" + form;
+        for (String pair : form.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            params.put(name, OAuthCallback.getQueryParameter(url, name));
+        }
+        return params;
+    }
+
+    /* Returns the decoded parameters of an OAuth Authorization header, e.g. OAuth oauth_token="...", ... */
+    private static Map<String, String> parseAuthorization(String header) throws UnsupportedEncodingException {
+        Map<String, String> params = new HashMap<String, String>();
+        if (header == null || !header.startsWith("OAuth ")) {
+            return params;
+        }
+        for (String pair : header.substring("OAuth ".length()).split(",")) {
+            pair = pair.trim();
+            int equals = pair.indexOf('=');
+            if (equals > 0 && pair.length() > equals + 1 && pair.charAt(equals + 1) == '"' && pair.endsWith("\"")) {
+                params.put(pair.substring(0, equals), URLDecoder.decode(pair.substring(equals + 2, pair.length() - 1),
+                        "UTF-8"));
+            }
+        }
+        return params;
+    }
+}
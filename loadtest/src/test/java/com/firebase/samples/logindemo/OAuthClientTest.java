@@ -0,0 +1,150 @@
+package com.firebase.samples.logindemo;
+
+import com.firebase.samples.logindemo.loadtest.StandInServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Collections;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs the Twitter handshake of the {@link OAuthClient} against the Twitter endpoints of the {@link StandInServer},
+ * which reject requests whose signature does not check out.
+ */
+public class OAuthClientTest {
+
+    private StandInServer mServer;
+
+    private AuthHttpClient mHttp;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new StandInServer(Collections.<String, Long>emptyMap());
+        mServer.start();
+        mHttp = new AuthHttpClient(AuthHttpClient.JDK_KEEP_ALIVE_MS, Clock.SYSTEM, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop();
+    }
+
+    @Test
+    public void handshake() throws IOException {
+        OAuthClient client = newClient(StandInServer.CONSUMER_SECRET);
+        OAuthClient.Token requestToken = client.getRequestToken(StandInServer.CALLBACK_URL);
+        assertNotNull(requestToken.getToken());
+        assertNotNull(requestToken.getSecret());
+        assertNull(requestToken.getUserId());
+
+        String authorizationUrl = client.getAuthorizationUrl(requestToken);
+        assertEquals(mServer.getUrl() + "/twitter/oauth/authorize?oauth_token=" + requestToken.getToken(),
+                authorizationUrl);
+        String callbackUrl = authorize(authorizationUrl);
+        assertTrue(OAuthCallback.matches(callbackUrl, StandInServer.CALLBACK_URL));
+        assertEquals(requestToken.getToken(), OAuthCallback.getQueryParameter(callbackUrl, "oauth_token"));
+
+        OAuthClient.Token accessToken = client.getAccessToken(requestToken,
+                OAuthCallback.getQueryParameter(callbackUrl, "oauth_verifier"));
+        assertNotNull(accessToken.getToken());
+        assertNotNull(accessToken.getSecret());
+        assertNotNull(accessToken.getUserId());
+    }
+
+    @Test
+    public void rejectedSignature() throws IOException {
+        OAuthClient client = newClient("wrong-secret");
+        try {
+            client.getRequestToken(StandInServer.CALLBACK_URL);
+            fail("Expected the signature to be rejected");
+        } catch (OAuthClient.HttpException e) {
+            assertEquals(HttpURLConnection.HTTP_UNAUTHORIZED, e.getStatusCode());
+        }
+    }
+
+    @Test
+    public void accessTokenSignedWithTheWrongTokenSecret() throws IOException {
+        OAuthClient client = newClient(StandInServer.CONSUMER_SECRET);
+        OAuthClient.Token requestToken = client.getRequestToken(StandInServer.CALLBACK_URL);
+        String verifier = OAuthCallback.getQueryParameter(authorize(client.getAuthorizationUrl(requestToken)),
+                "oauth_verifier");
+        OAuthClient.Token forged = new OAuthClient.Token("oauth_token=" + requestToken.getToken()
+                + "&oauth_token_secret=forged");
+        try {
+            client.getAccessToken(forged, verifier);
+            fail("Expected the signature to be rejected");
+        } catch (OAuthClient.HttpException e) {
+            assertEquals(HttpURLConnection.HTTP_UNAUTHORIZED, e.getStatusCode());
+        }
+    }
+
+    @Test
+    public void requestErrorsAreThrownWithTheirStatus() throws IOException {
+        OAuthClient client = newClient(StandInServer.CONSUMER_SECRET);
+        try {
+            client.getRequestToken("oauth://elsewhere");
+            fail("Expected the callback url to be refused");
+        } catch (OAuthClient.HttpException e) {
+            assertEquals(HttpURLConnection.HTTP_BAD_REQUEST, e.getStatusCode());
+        }
+    }
+
+    @Test
+    public void abortedCallMakesNoRequest() throws IOException {
+        OAuthClient client = newClient(StandInServer.CONSUMER_SECRET);
+        AuthHttpClient.Call call = new AuthHttpClient.Call(60 * 1000);
+        call.abort();
+        try {
+            client.getRequestToken(StandInServer.CALLBACK_URL, call);
+            fail("Expected the call to be aborted");
+        } catch (AuthHttpClient.AbortedException e) {
+            /* expected */
+        }
+        /* the abort is limited to its call */
+        assertNotNull(client.getRequestToken(StandInServer.CALLBACK_URL, new AuthHttpClient.Call(60 * 1000)));
+    }
+
+    @Test
+    public void callThatRanOutMakesNoRequest() throws IOException {
+        OAuthClient client = newClient(StandInServer.CONSUMER_SECRET);
+        try {
+            client.getRequestToken(StandInServer.CALLBACK_URL, new AuthHttpClient.Call(0));
+            fail("Expected the call to have no time left");
+        } catch (AuthHttpClient.AbortedException e) {
+            /* expected */
+        }
+    }
+
+    private OAuthClient newClient(String consumerSecret) {
+        return new OAuthClient(mServer.getUrl() + "/twitter",
+                new OAuthSigner(StandInServer.CONSUMER_KEY, consumerSecret), mHttp);
+    }
+
+    /* Stands in for the user in the web view, the authorize page redirects to the callback url right away */
+    private static String authorize(String authorizationUrl) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(authorizationUrl).openConnection();
+        try {
+            connection.setInstanceFollowRedirects(false);
+            assertEquals(HttpURLConnection.HTTP_MOVED_TEMP, connection.getResponseCode());
+            return connection.getHeaderField("Location");
+        } finally {
+            connection.disconnect();
+        }
+    }
+}